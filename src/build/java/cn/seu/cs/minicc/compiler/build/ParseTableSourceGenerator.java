@@ -0,0 +1,173 @@
+package cn.seu.cs.minicc.compiler.build;
+
+import cn.seu.cs.minicc.compiler.yacc.table.ParseTable;
+import cn.seu.cs.minicc.compiler.yacc.table.ParseTableIO;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 由二进制LALR分析表生成带静态数组的Java类 MiniCParseTables
+ * <p>
+ * 在构建的generate-sources阶段以单文件源码方式运行，类路径中需有先行编译的分析表相关类，分析表经 ParseTableIO 读取：
+ * java -cp &lt;classes&gt; ParseTableSourceGenerator.java &lt;MiniC-LALRParse.bin&gt; &lt;output_dir&gt;
+ * <p>
+ * 压缩分析表的各数组以游程编码打包进若干字符串常量，每段不超过CHUNK_SIZE个字符，
+ * 以避开class文件中单个常量65535字节与方法体64KB的限制，类初始化时再解包为int[]。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/17
+ */
+public class ParseTableSourceGenerator {
+    private static final int CHUNK_SIZE = 16384;
+    private static final String PACKAGE = "cn.seu.cs.minicc.compiler.yacc.table";
+    private static final String CLASS_NAME = "MiniCParseTables";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ParseTableSourceGenerator <input_bin> <output_dir>");
+            System.exit(1);
+        }
+        // 分析表格式只由 ParseTableIO 解析，格式升级时生成器随之更新
+        ParseTable table = new ParseTableIO().fromFile(Path.of(args[0]));
+        int stateCount = table.getStateCount();
+        int startState = table.getStartState();
+        String[] symbols = table.getSymbols();
+        int[] symbolTypes = Arrays.stream(table.getSymbolTypes()).mapToInt(Enum::ordinal).toArray();
+        int[] producerLhs = table.getProducerLhs();
+        int[] producerRhsLength = table.getProducerRhsLength();
+        int[] producerRhs = table.getProducerRhs();
+        String[] producerActions = table.getProducerActions();
+        int[] base = table.getBase();
+        int[] defaults = table.getDefaults();
+        int[] check = table.getCheck();
+        int[] next = table.getNext();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(PACKAGE).append(";\n\n");
+        sb.append("import cn.seu.cs.minicc.compiler.yacc.grammar.GrammarSymbolType;\n\n");
+        sb.append("/**\n");
+        sb.append(" * 由 ParseTableSourceGenerator 根据 ").append(Path.of(args[0]).getFileName()).append(" 生成，请勿手动修改\n");
+        sb.append(" */\n");
+        sb.append("public final class ").append(CLASS_NAME).append(" {\n");
+        sb.append("    public static final int STATE_COUNT = ").append(stateCount).append(";\n");
+        sb.append("    public static final int START_STATE = ").append(startState).append(";\n\n");
+        sb.append("    private static final String[] SYMBOLS = ").append(stringArray(symbols)).append(";\n");
+        sb.append("    private static final byte[] SYMBOL_TYPES = ").append(intArray("byte", symbolTypes)).append(";\n");
+        sb.append("    private static final int[] PRODUCER_LHS = ").append(intArray("int", producerLhs)).append(";\n");
+        sb.append("    private static final int[] PRODUCER_RHS_LENGTH = ").append(intArray("int", producerRhsLength)).append(";\n");
+        sb.append("    private static final int[] PRODUCER_RHS = ").append(intArray("int", producerRhs)).append(";\n");
+        sb.append("    private static final String[] PRODUCER_ACTIONS = ").append(stringArray(producerActions)).append(";\n\n");
+        sb.append("    private static final int[] BASE = ").append(packedArray(base)).append(";\n");
+        sb.append("    private static final int[] DEFAULTS = ").append(packedArray(defaults)).append(";\n");
+        sb.append("    private static final int[] CHECK = ").append(packedArray(check)).append(";\n");
+        sb.append("    private static final int[] NEXT = ").append(packedArray(next)).append(";\n\n");
+        sb.append("""
+                    private static final ParseTable TABLE = new ParseTable(STATE_COUNT, START_STATE,
+                            SYMBOLS, symbolTypes(), PRODUCER_LHS, PRODUCER_RHS_LENGTH, PRODUCER_RHS, PRODUCER_ACTIONS,
+                            BASE, DEFAULTS, CHECK, NEXT);
+
+                    private %s() {
+                    }
+
+                    public static ParseTable table() {
+                        return TABLE;
+                    }
+
+                    private static GrammarSymbolType[] symbolTypes() {
+                        GrammarSymbolType[] types = new GrammarSymbolType[SYMBOL_TYPES.length];
+                        for (int i = 0; i < types.length; i++) {
+                            types[i] = GrammarSymbolType.values()[SYMBOL_TYPES[i]];
+                        }
+                        return types;
+                    }
+
+                    // 解包游程编码：每段依次为 次数, 值高16位, 值低16位
+                    private static int[] unpack(int size, String[] chunks) {
+                        int[] result = new int[size];
+                        int pos = 0;
+                        for (String chunk : chunks) {
+                            for (int i = 0; i < chunk.length(); i += 3) {
+                                int count = chunk.charAt(i);
+                                int value = (chunk.charAt(i + 1) << 16) | chunk.charAt(i + 2);
+                                while (count-- > 0) {
+                                    result[pos++] = value;
+                                }
+                            }
+                        }
+                        return result;
+                    }
+                }
+                """.formatted(CLASS_NAME));
+
+        Path output = Path.of(args[1], PACKAGE.replace('.', '/'), CLASS_NAME + ".java");
+        Files.createDirectories(output.getParent());
+        Files.writeString(output, sb.toString(), StandardCharsets.UTF_8);
+        System.out.println("Generated " + output);
+    }
+
+    private static String packedArray(int[] values) {
+        StringBuilder sb = new StringBuilder("unpack(").append(values.length).append(", new String[]{\n");
+        for (String chunk : pack(values)) {
+            sb.append("            \"").append(escape(chunk)).append("\",\n");
+        }
+        return sb.append("    })").toString();
+    }
+
+    private static List<String> pack(int[] values) {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder();
+        int i = 0;
+        while (i < values.length) {
+            int value = values[i];
+            int count = 1;
+            while (i + count < values.length && values[i + count] == value && count < Character.MAX_VALUE) {
+                count++;
+            }
+            if (chunk.length() + 3 > CHUNK_SIZE) {
+                chunks.add(chunk.toString());
+                chunk = new StringBuilder();
+            }
+            chunk.append((char) count).append((char) (value >>> 16)).append((char) (value & 0xffff));
+            i += count;
+        }
+        chunks.add(chunk.toString());
+        return chunks;
+    }
+
+    private static String intArray(String type, int[] values) {
+        StringBuilder sb = new StringBuilder("new ").append(type).append("[]{");
+        for (int i = 0; i < values.length; i++) {
+            sb.append(i == 0 ? "" : ", ").append(values[i]);
+        }
+        return sb.append("}").toString();
+    }
+
+    private static String stringArray(String[] values) {
+        StringBuilder sb = new StringBuilder("{\n");
+        for (String value : values) {
+            sb.append("            \"").append(escape(value)).append("\",\n");
+        }
+        return sb.append("    }").toString();
+    }
+
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : value.toCharArray()) {
+            if (c >= 0x20 && c < 0x7f && c != '"' && c != '\\') {
+                sb.append(c);
+            } else if (c <= 0xff) {
+                // 换行、引号等字符不能使用unicode转义，统一使用定长八进制转义
+                sb.append(String.format("\\%03o", (int) c));
+            } else {
+                sb.append(String.format("\\u%04x", (int) c));
+            }
+        }
+        return sb.toString();
+    }
+}
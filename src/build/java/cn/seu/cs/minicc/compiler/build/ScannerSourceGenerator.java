@@ -0,0 +1,194 @@
+package cn.seu.cs.minicc.compiler.build;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 由二进制词法状态转移表生成直接编码的词法分析器 MiniCScanner
+ * <p>
+ * 在构建的generate-sources阶段以单文件源码方式运行，不依赖项目自身的类：
+ * java ScannerSourceGenerator.java &lt;MiniC-Lex.bin&gt; &lt;output_dir&gt;
+ * <p>
+ * 每个DFA状态生成一个按字符switch到目标状态的小方法，主循环按状态分派，
+ * 接受状态的Token编号同样编码在switch中，不再查表。
+ * 主循环需保持在JIT的HugeMethodLimit（8000字节）以内，否则不会被编译，
+ * 因此转移逻辑拆分到各状态方法中，由JIT按热度内联。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/17
+ */
+public class ScannerSourceGenerator {
+    private static final int MAGIC = 0x4D434C58;
+    private static final int VERSION = 2;
+    private static final String PACKAGE = "cn.seu.cs.minicc.compiler.lex";
+    private static final String CLASS_NAME = "MiniCScanner";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ScannerSourceGenerator <input_bin> <output_dir>");
+            System.exit(1);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(Path.of(args[0])));
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Unsupported lex table " + args[0]);
+        }
+        int stateCount = buffer.getInt();
+        int startState = buffer.getInt();
+        int alphabetSize = buffer.getInt();
+        int classCount = buffer.getInt();
+        int otherClass = buffer.getInt();
+        String[] tokenNames = new String[buffer.getInt()];
+        for (int i = 0; i < tokenNames.length; i++) {
+            byte[] bytes = new byte[buffer.getShort() & 0xffff];
+            buffer.get(bytes);
+            tokenNames[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position((buffer.position() + 3) & ~3);
+        IntBuffer ints = buffer.slice().asIntBuffer();
+        int[] charClasses = new int[alphabetSize];
+        int[] transitions = new int[stateCount * classCount];
+        int[] acceptTokens = new int[stateCount];
+        ints.get(charClasses);
+        ints.get(transitions);
+        ints.get(acceptTokens);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(PACKAGE).append(";\n\n");
+        sb.append("import cn.seu.cs.minicc.compiler.exception.LexException;\n\n");
+        sb.append("/**\n");
+        sb.append(" * 由 ScannerSourceGenerator 根据 ").append(Path.of(args[0]).getFileName()).append(" 生成，请勿手动修改\n");
+        sb.append(" * <p>\n");
+        sb.append(" * 直接编码的词法分析器，行为与表驱动的 LexParser 完全一致。\n");
+        sb.append(" */\n");
+        sb.append("public final class ").append(CLASS_NAME).append(" implements Lexer {\n");
+        sb.append("    private static final String[] TOKEN_NAMES = {\n");
+        for (String name : tokenNames) {
+            sb.append("            \"").append(name).append("\",\n");
+        }
+        sb.append("    };\n\n");
+        sb.append("""
+                    @Override
+                    public TokenBuffer tokenize(String sourceCode) throws LexException {
+                        String code = sourceCode.replace("\\r\\n", "\\n");
+                        int length = code.length();
+                        int yyLineNo = 1;
+                        char curChar = ' ';
+                        int curState = %d;
+                        int curPrt = 0;
+                        TokenBuffer tokens = new TokenBuffer(code, TOKEN_NAMES);
+                        while (curPrt != length) {
+                            int tokenStart = curPrt;
+                            int tokenLine = yyLineNo;
+                            int rollBackLine = 0;
+                            int lastAcceptToken = -1;
+                            int lastAcceptPrt = 0;
+                            // 当前状态未结束
+                            while (curState != -1) {
+                                curChar = code.charAt(curPrt++);
+                                if (curChar == '\\n') {
+                                    yyLineNo++;
+                                    rollBackLine++;
+                                }
+                                switch (curState) {
+                """.formatted(startState));
+        for (int state = 0; state < stateCount; state++) {
+            sb.append("                    case ").append(state).append(":\n");
+            sb.append("                        curState = state").append(state).append("(curChar);\n");
+            sb.append("                        break;\n");
+        }
+        sb.append("""
+                                    default:
+                                        curState = -1;
+                                }
+                                // 半路到达接受状态
+                                switch (curState) {
+                """);
+        Map<Integer, List<Integer>> acceptStates = new TreeMap<>();
+        for (int state = 0; state < stateCount; state++) {
+            if (acceptTokens[state] != -1) {
+                acceptStates.computeIfAbsent(acceptTokens[state], k -> new ArrayList<>()).add(state);
+            }
+        }
+        for (Map.Entry<Integer, List<Integer>> entry : acceptStates.entrySet()) {
+            sb.append("                    case ").append(join(entry.getValue())).append(":\n");
+            sb.append("                        lastAcceptToken = ").append(entry.getKey()).append(";\n");
+            sb.append("                        lastAcceptPrt = curPrt - 1;\n");
+            sb.append("                        rollBackLine = 0;\n");
+            sb.append("                        break;\n");
+        }
+        sb.append("""
+                                    default:
+                                        break;
+                                }
+                                if (curPrt >= length) {
+                                    break;
+                                }
+                            }
+                            // 处理接收情况，Token文本与 LexParser 一致，为已读入字符去掉最后一个
+                            if (lastAcceptToken != -1) {
+                                tokens.add(lastAcceptToken, tokenStart, curPrt - 1 - tokenStart, tokenLine);
+                                curPrt = lastAcceptPrt + 1;
+                                yyLineNo -= rollBackLine;
+                                curState = 0;
+                            } else {
+                                throw new LexException(yyLineNo, "无法识别的字符，行号：%s，字符：%s", yyLineNo, curChar);
+                            }
+                        }
+                        tokens.addEnd(yyLineNo);
+                        return tokens;
+                    }
+                """);
+        for (int state = 0; state < stateCount; state++) {
+            appendState(sb, state, transitions, classCount, charClasses, otherClass);
+        }
+        sb.append("}\n");
+
+        Path output = Path.of(args[1], PACKAGE.replace('.', '/'), CLASS_NAME + ".java");
+        Files.createDirectories(output.getParent());
+        Files.writeString(output, sb.toString(), StandardCharsets.UTF_8);
+        System.out.println("Generated " + output);
+    }
+
+    private static void appendState(StringBuilder sb, int state, int[] transitions, int classCount,
+                                    int[] charClasses, int otherClass) {
+        int defaultTarget = transitions[state * classCount + otherClass];
+        // 目标状态 -> 转移到该状态的ASCII字符，与默认目标相同的字符不单独列出
+        Map<Integer, List<Integer>> cases = new TreeMap<>();
+        for (int c = 0; c < charClasses.length; c++) {
+            int target = transitions[state * classCount + charClasses[c]];
+            if (target != defaultTarget) {
+                cases.computeIfAbsent(target, k -> new ArrayList<>()).add(c);
+            }
+        }
+        sb.append("\n    private static int state").append(state).append("(char c) {\n");
+        if (cases.isEmpty()) {
+            sb.append("        return ").append(defaultTarget).append(";\n");
+        } else {
+            sb.append("        switch (c) {\n");
+            for (Map.Entry<Integer, List<Integer>> entry : cases.entrySet()) {
+                sb.append("            case ").append(join(entry.getValue())).append(":\n");
+                sb.append("                return ").append(entry.getKey()).append(";\n");
+            }
+            sb.append("            default:\n");
+            sb.append("                return ").append(defaultTarget).append(";\n");
+            sb.append("        }\n");
+        }
+        sb.append("    }\n");
+    }
+
+    private static String join(List<Integer> values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            sb.append(i == 0 ? "" : ", ").append(values.get(i));
+        }
+        return sb.toString();
+    }
+}
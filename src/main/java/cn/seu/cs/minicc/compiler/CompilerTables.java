@@ -0,0 +1,53 @@
+package cn.seu.cs.minicc.compiler;
+
+import cn.seu.cs.minicc.compiler.lex.table.LexTable;
+import cn.seu.cs.minicc.compiler.lex.table.LexTableIO;
+import cn.seu.cs.minicc.compiler.yacc.YaccParse;
+import cn.seu.cs.minicc.compiler.yacc.table.MiniCParseTables;
+import cn.seu.cs.minicc.compiler.yacc.table.ParseTable;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * 编译器前端所需的只读表：词法状态转移表、LALR分析表及Token编号
+ * <p>
+ * 全进程共享一份，首次使用时加载，之后可被任意多个并发的 LexParser / YaccParse 同时使用。
+ * 表在构造后不再修改，调用方也不应修改其中的数组。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/17
+ */
+@Getter
+public final class CompilerTables {
+    private static final String LEX_TABLE_FILE = "MiniC-Lex.bin";
+
+    private static volatile CompilerTables instance;
+
+    private final LexTable lexTable;
+    private final ParseTable parseTable;
+    private final Map<String, Integer> tokenIds;
+
+    public CompilerTables(LexTable lexTable, ParseTable parseTable) {
+        this.lexTable = lexTable;
+        this.parseTable = parseTable;
+        this.tokenIds = YaccParse.getTokenIds(parseTable);
+    }
+
+    /**
+     * 获取共享的编译器表，首次调用时加载
+     */
+    public static CompilerTables getInstance() {
+        CompilerTables tables = instance;
+        if (tables == null) {
+            synchronized (CompilerTables.class) {
+                tables = instance;
+                if (tables == null) {
+                    tables = new CompilerTables(new LexTableIO().fromFile(LEX_TABLE_FILE), MiniCParseTables.table());
+                    instance = tables;
+                }
+            }
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,247 @@
+package cn.seu.cs.minicc.compiler;
+
+import cn.seu.cs.minicc.compiler.exception.LexException;
+import cn.seu.cs.minicc.compiler.exception.YaccException;
+import cn.seu.cs.minicc.compiler.lex.LexParser;
+import cn.seu.cs.minicc.compiler.lex.TokenBuffer;
+import cn.seu.cs.minicc.compiler.lex.TokenEdit;
+import cn.seu.cs.minicc.compiler.lex.TokenStream;
+import cn.seu.cs.minicc.compiler.yacc.ASTNode;
+import cn.seu.cs.minicc.compiler.yacc.YaccParse;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static cn.seu.cs.minicc.compiler.yacc.grammar.GrammarSymbolType.NON_TERMINAL;
+
+/**
+ * 增量的编译器前端会话，适用于编辑器中每次修改后重新编译
+ * <p>
+ * 会话保存上一次的Token序列与语法树。编辑后由 LexParser.retokenize 只重新分析编辑附近的Token；
+ * 语法分析只重新分析与被替换Token相交的顶层声明，其余decl子树（含完整的fun_decl）直接复用，
+ * 再重建decl_list链。局部分析失败（如编辑使花括号跨越了多个声明）时退回完整的语法分析，
+ * 因此得到的语法树与异常均与从头分析一致。
+ * <p>
+ * 会话的源码为预编译之后的代码。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public class FrontendSession {
+    private static final String PROGRAM = "program";
+    private static final String DECL_LIST = "decl_list";
+
+    /**
+     * 顶层声明，占据Token下标[start, end)，声明之前的空白与注释也计入其中
+     */
+    @AllArgsConstructor
+    private static class TopDecl {
+        private int start;
+        private int end;
+        private final ASTNode node;
+        // 以该声明结尾的decl_list节点
+        private ASTNode list;
+    }
+
+    private final CompilerTables tables;
+    private final LexParser lexParser;
+    @Getter
+    private String source;
+    @Getter
+    private TokenBuffer tokens;
+    /**
+     * 语法树根节点，上一次分析失败时为null
+     */
+    @Getter
+    private ASTNode root;
+    private List<TopDecl> decls = new ArrayList<>();
+
+    public FrontendSession(String source) throws LexException, YaccException {
+        this(source, CompilerTables.getInstance());
+    }
+
+    public FrontendSession(String source, CompilerTables tables) throws LexException, YaccException {
+        this.tables = tables;
+        this.lexParser = new LexParser(tables.getLexTable());
+        this.source = source.replace("\r\n", "\n");
+        this.tokens = lexParser.tokenize(this.source);
+        fullParse();
+    }
+
+    /**
+     * 以新的完整源码更新，按公共前后缀得到编辑范围
+     */
+    public ASTNode update(String newSource) throws LexException, YaccException {
+        String code = newSource.replace("\r\n", "\n");
+        int prefix = 0;
+        int limit = Math.min(source.length(), code.length());
+        while (prefix < limit && source.charAt(prefix) == code.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && source.charAt(source.length() - 1 - suffix) == code.charAt(code.length() - 1 - suffix)) {
+            suffix++;
+        }
+        return edit(prefix, source.length() - suffix - prefix, code.substring(prefix, code.length() - suffix));
+    }
+
+    /**
+     * 把源码中[offset, offset + removed)替换为text，返回新的语法树
+     *
+     * @throws LexException  词法错误
+     * @throws YaccException 语法错误，与从头分析时一致
+     */
+    public ASTNode edit(int offset, int removed, String text) throws LexException, YaccException {
+        if (offset < 0 || removed < 0 || offset + removed > source.length()) {
+            throw new LexException("编辑范围越界：%s + %s", offset, removed);
+        }
+        String oldSource = source;
+        source = oldSource.substring(0, offset) + text.replace("\r\n", "\n") + oldSource.substring(offset + removed);
+        if (tokens == null) {
+            // 上一次词法分析失败
+            tokens = lexParser.tokenize(source);
+            fullParse();
+            return root;
+        }
+        TokenEdit tokenEdit;
+        try {
+            tokenEdit = lexParser.retokenize(tokens, offset, removed, text);
+        } catch (LexException e) {
+            tokens = null;
+            root = null;
+            throw e;
+        }
+        tokens = tokenEdit.getTokens();
+        if (root == null) {
+            fullParse();
+        } else {
+            reparse(tokenEdit);
+        }
+        return root;
+    }
+
+    // 只重新分析与被替换Token相交的顶层声明
+    private void reparse(TokenEdit edit) throws YaccException {
+        int shift = edit.getNewTo() - edit.getOldTo();
+        int first = 0;
+        while (first < decls.size() && decls.get(first).end <= edit.getFrom()) {
+            first++;
+        }
+        int last = first + 1;
+        while (last < decls.size() && decls.get(last).start < edit.getOldTo()) {
+            last++;
+        }
+        last = Math.min(last, decls.size());
+        int trailing = decls.isEmpty() ? 0 : decls.get(decls.size() - 1).end;
+        int regionStart = first < decls.size() ? decls.get(first).start : trailing;
+        // 区间包含最后一个声明时，一并重新分析其后的空白与注释
+        int regionEnd = last == decls.size() ? tokens.size() - 1 : decls.get(last - 1).end + shift;
+
+        List<TopDecl> parsed = null;
+        if (hasSymbol(regionStart, regionEnd)) {
+            try {
+                ASTNode program = new YaccParse().parseTokensLALR(tokens.stream(regionStart, regionEnd), tables);
+                parsed = program == null ? null : split(program, regionStart, regionEnd);
+            } catch (YaccException e) {
+                parsed = null;
+            }
+        } else {
+            parsed = new ArrayList<>();
+        }
+        if (parsed == null || decls.size() - (last - first) + parsed.size() == 0) {
+            fullParse();
+            return;
+        }
+        List<TopDecl> result = new ArrayList<>(decls.subList(0, first));
+        result.addAll(parsed);
+        for (TopDecl decl : decls.subList(last, decls.size())) {
+            decl.start += shift;
+            decl.end += shift;
+            result.add(decl);
+        }
+        decls = result;
+        // 区间之后的声明吸收区间末尾不属于任何声明的空白与注释，保持各声明首尾相接
+        int next = first + parsed.size();
+        if (next < decls.size()) {
+            decls.get(next).start = next == 0 ? 0 : decls.get(next - 1).end;
+        }
+        link(first);
+    }
+
+    private void fullParse() throws YaccException {
+        root = null;
+        decls = new ArrayList<>();
+        ASTNode program = new YaccParse().parseTokensLALR(tokens, tables);
+        if (program == null) {
+            return;
+        }
+        List<TopDecl> parsed = split(program, 0, tokens.size() - 1);
+        if (parsed == null) {
+            throw new YaccException("无法划分顶层声明");
+        }
+        decls = parsed;
+        root = program;
+    }
+
+    // 由语法树的decl_list链与Token中的分号、花括号划分顶层声明，两者数量不一致时返回null
+    private List<TopDecl> split(ASTNode program, int from, int to) throws YaccException {
+        List<ASTNode> lists = new ArrayList<>();
+        ASTNode list = program.getByIndex(1);
+        while (list != null) {
+            lists.add(list);
+            list = list.getChildren().size() == 2 ? list.getByIndex(1) : null;
+        }
+        Collections.reverse(lists);
+        List<TopDecl> result = new ArrayList<>();
+        int depth = 0, start = from;
+        for (int i = from; i < to; i++) {
+            String name = tokens.name(i);
+            if ("LBRACE".equals(name)) {
+                depth++;
+            } else if ("RBRACE".equals(name) && --depth == 0 || "SEMICOLON".equals(name) && depth == 0) {
+                if (result.size() == lists.size()) {
+                    return null;
+                }
+                ASTNode decl = lists.get(result.size());
+                result.add(new TopDecl(start, i + 1, decl.getByIndex(decl.getChildren().size()), decl));
+                start = i + 1;
+            }
+        }
+        return result.size() == lists.size() ? result : null;
+    }
+
+    // 重建从第first个声明开始的decl_list链与根节点
+    private void link(int first) {
+        ASTNode list = first == 0 ? null : decls.get(first - 1).list;
+        for (int i = first; i < decls.size(); i++) {
+            ASTNode node = newNode(DECL_LIST);
+            if (list != null) {
+                node.pushNode(list);
+            }
+            node.pushNode(decls.get(i).node);
+            decls.get(i).list = node;
+            list = node;
+        }
+        root = newNode(PROGRAM);
+        root.pushNode(list);
+    }
+
+    // 区间内是否有注释与空白符以外的Token
+    private boolean hasSymbol(int from, int to) {
+        boolean[] skippable = TokenStream.skippableKinds(tokens.getKindNames());
+        for (int i = from; i < to; i++) {
+            if (!skippable[tokens.kind(i)]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ASTNode newNode(String name) {
+        return new ASTNode(name, NON_TERMINAL.getType(), name, new ArrayList<>());
+    }
+}
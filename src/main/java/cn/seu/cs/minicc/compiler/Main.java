@@ -1,22 +1,25 @@
 package cn.seu.cs.minicc.compiler;
 
 import cn.seu.cs.minicc.compiler.asm.ASMParse;
+import cn.seu.cs.minicc.compiler.exception.CompileException;
 import cn.seu.cs.minicc.compiler.ir.IROptimizer;
 import cn.seu.cs.minicc.compiler.ir.IRParse;
-import cn.seu.cs.minicc.compiler.lex.DFAParser;
+import cn.seu.cs.minicc.compiler.ir.ssa.SSAForm;
 import cn.seu.cs.minicc.compiler.lex.LexParser;
-import cn.seu.cs.minicc.compiler.lex.Token;
-import cn.seu.cs.minicc.compiler.lex.dfa.DFA;
+import cn.seu.cs.minicc.compiler.lex.MiniCScanner;
+import cn.seu.cs.minicc.compiler.lex.PipelinedTokenStream;
+import cn.seu.cs.minicc.compiler.lex.TokenBuffer;
+import cn.seu.cs.minicc.compiler.lex.TokenStream;
+import cn.seu.cs.minicc.compiler.pre.LineMap;
 import cn.seu.cs.minicc.compiler.pre.PreCompilerParse;
 import cn.seu.cs.minicc.compiler.util.Utils;
-import cn.seu.cs.minicc.compiler.yacc.ASTNode;
-import cn.seu.cs.minicc.compiler.yacc.LALRParse;
+import cn.seu.cs.minicc.compiler.yacc.SyntaxTree;
 import cn.seu.cs.minicc.compiler.yacc.YaccParse;
-import cn.seu.cs.minicc.compiler.yacc.grammar.LALR;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.Writer;
+import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * @author Shuxin Wang <shuxinwang662@gmail.com>
@@ -26,11 +29,17 @@ import java.util.List;
 public class Main {
     public static void main(String[] args) {
         if (args.length < 2) {
-            log.error("Usage: java -jar minicc-java.jar <input_file> <output_path> [-i]");
+            log.error("Usage: java -jar minicc-java.jar <input_file> <output_path> [-i] [-d] [-s] [-p] [-ssa]");
             return;
         }
         String input = args[0], output = args[1];
         boolean withIR = Arrays.asList(args).contains("-i");
+        boolean directLexer = Arrays.asList(args).contains("-d");
+        boolean syntaxDirected = Arrays.asList(args).contains("-s");
+        boolean pipelined = Arrays.asList(args).contains("-p");
+        boolean ssa = Arrays.asList(args).contains("-ssa");
+        // 预编译输出的行号来源，用于将错误定位到源文件
+        LineMap lineMap = null;
         try {
             // 计时
             long startTime = System.currentTimeMillis();
@@ -50,8 +59,8 @@ public class Main {
 
             // 读入C代码
             log.warn("Reading source file...");
-            String rawCode = Utils.readCode(input);
-            if (rawCode.isBlank()) {
+            CharSequence rawCode = Utils.readSource(Path.of(input));
+            if (Utils.isBlank(rawCode)) {
                 log.error("ERROR: Empty source file");
                 return;
             }
@@ -59,44 +68,72 @@ public class Main {
 
             // 预编译
             log.warn("Start pre compiling...");
-            String preCode = PreCompilerParse.preCompile(rawCode, basePath);
-            log.info("Pre compiling done");
-
-            // 词法分析
-            log.warn("Loading DFA for lexing...");
-            DFAParser dfaParser = new DFAParser();
-            DFA dfa = dfaParser.fromFile("MiniC-Lex.json");
-            log.info("Loading DFA done");
-            log.warn("Start tokenization...");
-            LexParser lexicalAnalyzer = new LexParser();
-            List<Token> tokens = lexicalAnalyzer.lexSourceCode(preCode, dfa);
-            log.info("Tokenization done. Received {} tokens", tokens.size());
-
-            // 语法分析
-            log.warn("Loading parsing table for parsing...");
-            LALRParse lalrParse = new LALRParse();
-            LALR lalr = lalrParse.fromFile("MiniC-LALRParse.json");
-            log.info("Loading parsing table done");
-            log.warn("Start parsing...");
-            YaccParse yaccParse = new YaccParse();
-            ASTNode astNode = yaccParse.parseTokensLALR(tokens, lalr);
-            if (astNode == null) {
-                log.error("ERROR: Parsing failed, ASTNode is null");
-                return;
+            PreCompilerParse preCompiler = new PreCompilerParse(rawCode, basePath, Path.of(input).getFileName().toString());
+            String preCode = preCompiler.getCode();
+            lineMap = preCompiler.getLineMap();
+            log.info("Pre compiling done. Expanded {} files", lineMap.getFiles().size());
+
+            // 词法分析与语法分析共享的表，进程内只加载一次
+            log.warn("Loading DFA and parsing table...");
+            CompilerTables tables = CompilerTables.getInstance();
+            log.info("Loading DFA and parsing table done");
+
+            // 默认由语法分析按需拉取Token，-p时词法分析在另一线程上提前进行，出错时关闭流以结束其线程
+            IRParse irParse;
+            try (TokenStream stream = directLexer ? null : openStream(tables, preCode, pipelined)) {
+                if (syntaxDirected) {
+                    // 语法分析的同时生成中间代码，不构造语法树
+                    log.warn("Start parsing and generating Intermediate Representation...");
+                    if (directLexer) {
+                        TokenBuffer tokens = new MiniCScanner().tokenize(preCode);
+                        log.info("Tokenization done. Received {} tokens", tokens.size());
+                        irParse = new IRParse(tokens, tables);
+                    } else {
+                        irParse = new IRParse(stream, tables);
+                    }
+                    log.info("Parsing and generating Intermediate Representation done");
+
+                    log.info("*** Start backend part... ***");
+                } else {
+                    // 词法分析与语法分析
+                    log.warn("Start tokenization and parsing...");
+                    YaccParse yaccParse = new YaccParse();
+                    SyntaxTree tree;
+                    if (directLexer) {
+                        TokenBuffer tokens = new MiniCScanner().tokenize(preCode);
+                        log.info("Tokenization done. Received {} tokens", tokens.size());
+                        tree = yaccParse.parseTree(tokens, tables);
+                    } else {
+                        tree = yaccParse.parseTree(stream, tables);
+                    }
+                    if (tree == null) {
+                        log.error("ERROR: Parsing failed, syntax tree is null");
+                        return;
+                    }
+                    log.info("Parsing done");
+
+                    log.info("*** Start backend part... ***");
+
+                    // 中间代码生成
+                    log.warn("Generating Intermediate Representation...");
+                    irParse = new IRParse(tree);
+                    log.info("Generating Intermediate Representation done");
+                }
             }
-            log.info("Parsing done");
-
-            log.info("*** Start backend part... ***");
-
-            // 中间代码生成
-            log.warn("Generating Intermediate Representation...");
-            IRParse irParse = new IRParse(astNode);
-            log.info("Generating Intermediate Representation done");
 
             // 中间代码优化
             log.warn("Optimizing Intermediate Representation...");
             IROptimizer optimizer = new IROptimizer(irParse);
             log.info("IR Optimizing done. Made {} changes", optimizer.getLogs().size());
+            if (ssa) {
+                // 经SSA形式往返一次，消去后再生成汇编代码
+                log.warn("Converting Intermediate Representation to SSA form...");
+                SSAForm ssaForm = new SSAForm(optimizer.getIrParse());
+                log.info("SSA construction done. Inserted {} phi functions, {} versions",
+                        ssaForm.getPhiCount(), ssaForm.getVersionCount());
+                int copies = ssaForm.destruct();
+                log.info("SSA destruction done. Inserted {} copies", copies);
+            }
             // 生成汇编代码
             log.warn("Generating Assembly Code...");
             ASMParse asmParse = new ASMParse(optimizer.getIrParse());
@@ -104,12 +141,14 @@ public class Main {
 
             // 输出
             log.warn("Start output works...");
-            String asmCode = asmParse.toString();
-            Utils.writeFile(output, fileName + ".asm", asmCode);
+            try (Writer writer = Utils.openWriter(output, fileName + ".asm")) {
+                asmParse.write(writer);
+            }
             log.info("Object code output successfully.");
             if (withIR) {
-                String irCode = optimizer.getIrParse().toString();
-                Utils.writeFile(output, fileName + ".ir", irCode);
+                try (Writer writer = Utils.openWriter(output, fileName + ".ir")) {
+                    optimizer.getIrParse().write(writer);
+                }
                 log.info("IR code output successfully.");
             }
             log.info("Output works done");
@@ -119,9 +158,21 @@ public class Main {
             log.info("*** Summary ***");
             log.info("Compilation ended successfully with in {}ms", endTime - startTime);
 
+        } catch (CompileException e) {
+            e.printStackTrace();
+            if (lineMap != null && e.getLine() > 0) {
+                log.error("ERROR: {}: {}", lineMap.origin(e.getLine()), e.getMessage());
+            } else {
+                log.error("ERROR: {}", e.getMessage());
+            }
         } catch (Exception e) {
             e.printStackTrace();
             log.error("ERROR: {}", e.getMessage());
         }
     }
+
+    private static TokenStream openStream(CompilerTables tables, String preCode, boolean pipelined) {
+        TokenStream stream = new LexParser(tables.getLexTable()).stream(preCode);
+        return pipelined ? new PipelinedTokenStream(stream) : stream;
+    }
 }
@@ -6,14 +6,20 @@ import cn.seu.cs.minicc.compiler.asm.compont.StackFrameInfo;
 import cn.seu.cs.minicc.compiler.exception.ASMException;
 import cn.seu.cs.minicc.compiler.ir.IRParse;
 import cn.seu.cs.minicc.compiler.ir.compont.*;
+import cn.seu.cs.minicc.compiler.ir.dataflow.Liveness;
 import lombok.Data;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.*;
-import java.util.stream.Collectors;
 
-import static cn.seu.cs.minicc.compiler.constants.Constants.INIT_IR_OPS;
 import static cn.seu.cs.minicc.compiler.constants.Constants.USEFUL_REGS;
 import static cn.seu.cs.minicc.compiler.ir.compont.QuadOpType.CALL_FUNC;
+import static cn.seu.cs.minicc.compiler.ir.compont.QuadOpType.INIT_OPS;
+import static cn.seu.cs.minicc.compiler.ir.compont.QuadOpType.JUMP;
+import static cn.seu.cs.minicc.compiler.ir.compont.QuadOpType.J_FALSE;
 import static cn.seu.cs.minicc.compiler.ir.compont.QuadOpType.SET_LABEL;
 
 /**
@@ -36,6 +42,7 @@ public class ASMParse {
 
     private IRFunc currFunc;
     private StackFrameInfo currFrameInfo;
+    private Liveness liveness;
 
 
     public ASMParse(IRParse ir) {
@@ -57,6 +64,7 @@ public class ASMParse {
         asm.add(".data");
         initializeGlobalVars();
         asm.add(".text");
+        liveness = new Liveness(ir);
         generateASM();
         peepholeOptimize();
     }
@@ -114,16 +122,16 @@ public class ASMParse {
             for (int irIndex = 0; irIndex < block.getContent().size(); irIndex++) {
                 Quad quad = block.getContent().get(irIndex);
                 if (quad == null) break;
-                String op = quad.getOp(),
-                        arg1 = quad.getArg1(),
-                        arg2 = quad.getArg2(),
-                        res = quad.getRes();
+                QuadOpType op = quad.getOp();
+                String arg1 = ir.getOperands().name(quad.getArg1()),
+                        arg2 = ir.getOperands().name(quad.getArg2()),
+                        res = ir.getOperands().name(quad.getRes());
                 // 二元表达式
-                boolean binaryOp = (!arg1.isEmpty() && !arg2.isEmpty());
+                boolean binaryOp = (quad.getArg1() != Operands.NONE && quad.getArg2() != Operands.NONE);
                 // 一元表达式
-                boolean unaryOp = (arg1.isEmpty() ^ arg2.isEmpty());
-                if (CALL_FUNC.equals(op)) {
-                    dealWithFunc(op, arg1, arg2, res, blockIndex, irIndex);
+                boolean unaryOp = (quad.getArg1() == Operands.NONE ^ quad.getArg2() == Operands.NONE);
+                if (op == CALL_FUNC) {
+                    dealWithFunc(op, arg1, quad.getArgs(), res, blockIndex, irIndex);
                 } else if (binaryOp) {
                     dealWithBinaryOp(op, arg1, arg2, res, blockIndex, irIndex);
                 } else if (unaryOp) {
@@ -131,7 +139,7 @@ public class ASMParse {
                 } else {
                     dealWithOtherOp(op, res);
                 }
-                if (!op.equals("set_label") && !op.equals("j") && !op.equals("j_false") && irIndex == block.getContent().size() - 1) {
+                if (op != SET_LABEL && op != JUMP && op != J_FALSE && irIndex == block.getContent().size() - 1) {
                     deallocateBlockMemory();
                 }
             }
@@ -141,7 +149,7 @@ public class ASMParse {
     /**
      * 处理函数调用
      */
-    private void dealWithFunc(String op, String arg1, String arg2, String res, int blockIndex, int irIndex) {
+    private void dealWithFunc(QuadOpType op, String arg1, int[] args, String res, int blockIndex, int irIndex) {
         IRFunc func = ir.getFuncPool().stream()
                 .filter(inner -> inner.getName().equals(arg1))
                 .findFirst()
@@ -152,10 +160,9 @@ public class ASMParse {
         if (func.getName().equals("main")) {
             throw new ASMException("Cannot call main function");
         }
-        String[] args = arg2.split("&");
-        if (!arg2.trim().isEmpty()) {
+        if (args.length > 0) {
             for (int i = 0; i < func.getParamList().size(); i++) {
-                String actualArg = args[i];
+                String actualArg = ir.getOperands().name(args[i]);
                 AddressDescriptor ad = addressDescriptors.getOrDefault(actualArg, null);
                 if (ad == null || ad.getCurrentAddress() == null || ad.getCurrentAddress().isEmpty()) {
                     throw new ASMException("Actual argument does not have current address");
@@ -227,7 +234,7 @@ public class ASMParse {
         }
 
         if (!res.isEmpty()) {
-            List<String> regs = getRegs(op, arg1, arg2, res, blockIndex, irIndex);
+            List<String> regs = getRegs(op, arg1, "", res, blockIndex, irIndex);
             asm.add(CODE_ASM_FORMAT.formatted("move", regs.get(0), "$v0"));
             manageResDescriptors(regs.get(0), res);
         }
@@ -236,23 +243,23 @@ public class ASMParse {
     /**
      * 处理一元表达式
      */
-    private void dealWithUnaryOp(String op, String arg1, String arg2, String res, int blockIndex, int irIndex) {
+    private void dealWithUnaryOp(QuadOpType op, String arg1, String arg2, String res, int blockIndex, int irIndex) {
         List<String> regs;
         String regX, regY;
         switch (op) {
-            case "out_asm":
+            case OUT_ASM:
                 if (arg1.isEmpty()) {
                     throw new ASMException("out_asm string cannot be empty");
                 }
                 asm.add(arg1.substring(1, arg1.length() - 1));
                 break;
-            case "j_false":
+            case J_FALSE:
                 regs = getRegs(op, arg1, arg2, res, blockIndex, irIndex);
                 deallocateBlockMemory();
                 asm.add(CODE3_ASM_FORMAT.formatted("beq", regs.get(0), "$zero", res));
                 asm.add("nop");
                 break;
-            case "=const":
+            case INIT_CONST:
                 regs = getRegs(op, arg1, arg2, res, blockIndex, irIndex);
                 long immediateNum;
                 if (arg1.startsWith("0x")) {
@@ -268,7 +275,7 @@ public class ASMParse {
                 }
                 manageResDescriptors(regs.get(0), res);
                 break;
-            case "=var":
+            case INIT_VAL:
                 regs = getRegs(op, arg1, arg2, res, blockIndex, irIndex);
                 registerDescriptors.get(regs.get(0)).getVariables().add(res);
                 if (addressDescriptors.containsKey(res)) {
@@ -278,7 +285,7 @@ public class ASMParse {
                     addressDescriptors.put(res, new AddressDescriptor(null, new HashSet<>(Set.of(regs.get(0)))));
                 }
                 break;
-            case "return_expr":
+            case RETURN_EXPR:
                 AddressDescriptor ad = addressDescriptors.getOrDefault(arg1, null);
                 if (ad == null || ad.getCurrentAddress() == null || ad.getCurrentAddress().isEmpty()) {
                     throw new ASMException("Return value does not have current address");
@@ -321,10 +328,10 @@ public class ASMParse {
                 asm.add("jr $ra");
                 asm.add("nop");
                 break;
-            case "NOT_OP":
-            case "MINUS":
-            case "PLUS":
-            case "BITINV_OP":
+            case NOT_OP:
+            case MINUS:
+            case PLUS:
+            case BITINV_OP:
                 regs = getRegs(op, arg1, arg2, res, blockIndex, irIndex);
                 regY = regs.get(0);
                 regX = regs.get(1);
@@ -332,16 +339,16 @@ public class ASMParse {
                     loadVar(arg1, regY);
                 }
                 switch (op) {
-                    case "NOT_OP":
+                    case NOT_OP:
                         asm.add(CODE3_ASM_FORMAT.formatted("xor", regX, "$zero", regY));
                         break;
-                    case "MINUS":
+                    case MINUS:
                         asm.add(CODE3_ASM_FORMAT.formatted("sub", regX, "$zero", regY));
                         break;
-                    case "PLUS":
+                    case PLUS:
                         asm.add(CODE_ASM_FORMAT.formatted("move", regX, regY));
                         break;
-                    case "BITINV_OP":
+                    case BITINV_OP:
                         asm.add(CODE3_ASM_FORMAT.formatted("nor", regX, regY, regY));
                         break;
                     default:
@@ -349,7 +356,7 @@ public class ASMParse {
                 }
                 manageResDescriptors(regX, res);
                 break;
-            case "DOLLAR":
+            case DOLLAR:
                 regs = getRegs(op, arg1, arg2, res, blockIndex, irIndex);
                 regY = regs.get(0);
                 regX = regs.get(1);
@@ -366,12 +373,12 @@ public class ASMParse {
     /**
      * 处理二元表达式
      */
-    private void dealWithBinaryOp(String op, String arg1, String arg2, String res, int blockIndex, int irIndex) {
+    private void dealWithBinaryOp(QuadOpType op, String arg1, String arg2, String res, int blockIndex, int irIndex) {
         List<String> regs;
         String regX, regY, regZ;
         String baseAddr;
         switch (op) {
-            case "=[]":
+            case INIT_ARRAY:
                 regs = getRegs(op, arg1, arg2, res, blockIndex, irIndex);
                 regY = regs.get(0);
                 regZ = regs.get(1);
@@ -383,7 +390,7 @@ public class ASMParse {
                 }
                 asm.add(CODE_ASM_FORMAT.formatted("sw", regZ, String.format("%s($v1)", baseAddr)));
                 break;
-            case "[]":
+            case READ_ARRAY:
                 regs = getRegs(op, arg1, arg2, res, blockIndex, irIndex);
                 regZ = regs.get(0);
                 regX = regs.get(1);
@@ -398,88 +405,88 @@ public class ASMParse {
                 asm.add("nop");
                 manageResDescriptors(regX, res);
                 break;
-            case "=$":
+            case INIT_ADDR:
                 regs = getRegs(op, arg1, arg2, res, blockIndex, irIndex);
                 regY = regs.get(0);
                 regZ = regs.get(1);
                 asm.add(CODE_ASM_FORMAT.formatted("sw", regZ, String.format("0(%s)", regY)));
                 break;
             // X = Y op Z
-            case "OR_OP":
-            case "AND_OP":
-            case "EQ_OP":
-            case "NE_OP":
-            case "LT_OP":
-            case "GT_OP":
-            case "LE_OP":
-            case "GE_OP":
-            case "PLUS":
-            case "MINUS":
-            case "MULTIPLY":
-            case "SLASH":
-            case "PERCENT":
-            case "BITOR_OP":
-            case "BITXOR_OP":
-            case "BITAND_OP":
-            case "LEFT_OP":
-            case "RIGHT_OP":
+            case OR_OP:
+            case AND_OP:
+            case EQ_OP:
+            case NE_OP:
+            case LT_OP:
+            case GT_OP:
+            case LE_OP:
+            case GE_OP:
+            case PLUS:
+            case MINUS:
+            case MULTIPLY:
+            case SLASH:
+            case PERCENT:
+            case BITOR_OP:
+            case BITXOR_OP:
+            case BITAND_OP:
+            case LEFT_OP:
+            case RIGHT_OP:
                 regs = getRegs(op, arg1, arg2, res, blockIndex, irIndex);
                 regX = regs.get(2);
                 regY = regs.get(0);
                 regZ = regs.get(1);
                 switch (op) {
-                    case "BITOR_OP":
-                    case "OR_OP":
+                    case BITOR_OP:
+                    case OR_OP:
                         asm.add(CODE3_ASM_FORMAT.formatted("or", regX, regY, regZ));
                         break;
-                    case "BITAND_OP":
-                    case "AND_OP":
+                    case BITAND_OP:
+                    case AND_OP:
                         asm.add(CODE3_ASM_FORMAT.formatted("and", regX, regY, regZ));
                         break;
-                    case "EQ_OP":
+                    case EQ_OP:
                         asm.add(CODE3_ASM_FORMAT.formatted("sub", regX, regY, regZ));
                         asm.add(CODE3_ASM_FORMAT.formatted("sltu", regX, "$zero", regX));
                         asm.add(CODE3_ASM_FORMAT.formatted("xori", regX, regX, 1));
                         break;
-                    case "NE_OP", "MINUS":
+                    case NE_OP, MINUS:
                         asm.add(CODE3_ASM_FORMAT.formatted("sub", regX, regY, regZ));
                         break;
-                    case "LT_OP":
+                    case LT_OP:
                         asm.add(CODE3_ASM_FORMAT.formatted("slt", regX, regY, regZ));
                         break;
-                    case "GT_OP":
+                    case GT_OP:
                         asm.add(CODE3_ASM_FORMAT.formatted("slt", regX, regZ, regY));
                         break;
-                    case "LE_OP":
+                    case LE_OP:
                         asm.add(CODE3_ASM_FORMAT.formatted("slt", regX, regZ, regY));
                         asm.add(CODE3_ASM_FORMAT.formatted("xori", regX, regX, 1));
                         break;
-                    case "GE_OP":
+                    case GE_OP:
                         asm.add(CODE3_ASM_FORMAT.formatted("slt", regX, regY, regZ));
                         asm.add(CODE3_ASM_FORMAT.formatted("xori", regX, regX, 1));
                         break;
-                    case "PLUS":
+                    case PLUS:
                         asm.add(CODE3_ASM_FORMAT.formatted("add", regX, regY, regZ));
                         break;
-                    case "MULTIPLY":
+                    case MULTIPLY:
                         asm.add(CODE_ASM_FORMAT.formatted("mult", regY, regZ));
                         asm.add(LABEL_ASM_FORMAT.formatted("mflo", regX));
                         break;
-                    case "SLASH":
+                    case SLASH:
                         asm.add(CODE_ASM_FORMAT.formatted("div", regY, regZ));
                         asm.add(LABEL_ASM_FORMAT.formatted("mflo", regX));
                         break;
-                    case "PERCENT":
+                    case PERCENT:
                         asm.add(CODE_ASM_FORMAT.formatted("div", regY, regZ));
                         asm.add(LABEL_ASM_FORMAT.formatted("mfhi", regX));
                         break;
-                    case "BITXOR_OP":
+                    case BITXOR_OP:
                         asm.add(CODE3_ASM_FORMAT.formatted("xor", regX, regY, regZ));
                         break;
-                    case "LEFT_OP":
+                    case LEFT_OP:
                         asm.add(CODE3_ASM_FORMAT.formatted("sllv", regX, regY, regZ));
                         break;
-                    case "RIGHT_OP":
+                    case RIGHT_OP:
                         asm.add(CODE3_ASM_FORMAT.formatted("srlv", regX, regY, regZ));
                         break;
                 }
@@ -493,9 +500,9 @@ public class ASMParse {
     /**
      * 处理其他操作
      */
-    private void dealWithOtherOp(String op, String res) {
+    private void dealWithOtherOp(QuadOpType op, String res) {
         switch (op) {
-            case "set_label":
+            case SET_LABEL:
                 String[] labels = res.split("_");
                 String labelType = labels[labels.length - 1];
                 if (labelType.equals("entry")) {
@@ -534,12 +541,12 @@ public class ASMParse {
                     asm.add(res + ":");
                 }
                 break;
-            case "j":
+            case JUMP:
                 deallocateBlockMemory();
                 asm.add(LABEL_ASM_FORMAT.formatted("j", res));
                 asm.add("nop");
                 break;
-            case "return_void":
+            case RETURN_VOID:
                 deallocateBlockMemory();
                 if (currFrameInfo == null) {
                     throw new ASMException("Current frame info is null");
@@ -596,17 +603,17 @@ public class ASMParse {
     /**
      * 为一条四元式获取每个变量可用的寄存器
      */
-    private List<String> getRegs(String op, String arg1, String arg2, String res, int blockIndex, int irIndex) {
+    private List<String> getRegs(QuadOpType op, String arg1, String arg2, String res, int blockIndex, int irIndex) {
         List<String> regs = new ArrayList<>();
         // 二元表达式
         boolean binaryOp = (!arg1.isEmpty() && !arg2.isEmpty());
         // 一元表达式
         boolean unaryOp = (arg1.isEmpty() ^ arg2.isEmpty());
 
-        if (INIT_IR_OPS.contains(op)) {
+        if (INIT_OPS.contains(op)) {
             String regX, regY, regZ;
             switch (op) {
-                case "=$", "=[]":
+                case INIT_ADDR, INIT_ARRAY:
                     regY = allocateReg(blockIndex, irIndex, arg1, null, null);
                     if (!registerDescriptors.containsKey(regY) || !registerDescriptors.get(regY).getVariables().contains(arg1)) {
                         loadVar(arg1, regY);
@@ -617,26 +624,26 @@ public class ASMParse {
                     }
                     regs = List.of(regY, regZ);
                     break;
-                case "=const":
-                case "call":
+                case INIT_CONST:
+                case CALL_FUNC:
                     regX = allocateReg(blockIndex, irIndex, res, null, null);
                     regs = List.of(regX);
                     break;
-                case "j_false":
+                case J_FALSE:
                     regY = allocateReg(blockIndex, irIndex, arg1, null, null);
                     if (!registerDescriptors.containsKey(regY) || !registerDescriptors.get(regY).getVariables().contains(arg1)) {
                         loadVar(arg1, regY);
                     }
                     regs = List.of(regY);
                     break;
-                case "=var":
+                case INIT_VAL:
                     regY = allocateReg(blockIndex, irIndex, arg1, null, null);
                     if (!registerDescriptors.containsKey(regY) || !registerDescriptors.get(regY).getVariables().contains(arg1)) {
                         loadVar(arg1, regY);
                     }
                     regs = List.of(regY, regY);
                     break;
-                case "[]":
+                case READ_ARRAY:
                     regZ = allocateReg(blockIndex, irIndex, arg2, null, null);
                     if (!registerDescriptors.containsKey(regZ) || !registerDescriptors.get(regZ).getVariables().contains(arg2)) {
                         loadVar(arg2, regZ);
@@ -673,7 +680,7 @@ public class ASMParse {
             String regX = res.equals(arg1) ? regY : allocateReg(blockIndex, irIndex, res, null, null);
             regs = List.of(regY, regX);
         } else {
-            throw new ASMException("Unknown op: %s", op);
+            throw new ASMException("Unknown op: %s", op.getOp());
         }
         return regs;
     }
@@ -721,21 +728,8 @@ public class ASMParse {
                         if (var.equals(res) && !var.equals(otherArg)) {
                             continue;
                         }
-                        boolean reused = false;
-                        int tmpIndex = irIndex;
-                        boolean procedureEnd = false;
-                        while (!procedureEnd) {
-                            Quad quad = basicBlock.getContent().get(++tmpIndex);
-                            if (quad.getArg1().equals(var) ||
-                                    quad.getArg2().equals(var) ||
-                                    quad.getRes().equals(var)) {
-                                reused = true;
-                                break;
-                            }
-                            if (SET_LABEL.equals(quad.getOp()) && quad.getRes().endsWith("_exit")) {
-                                procedureEnd = true;
-                            }
-                        }
+                        // 变量在本条四元式之后仍活跃，则其值需要保留
+                        boolean reused = liveness.isLiveAfter(basicBlock.getStart() + irIndex, ir.getOperands().find(var));
                         if (reused) {
                             String boundMem = addressDescriptors.getOrDefault(var, new AddressDescriptor()).getBoundMemAddress();
                             if (boundMem != null) {
@@ -943,9 +937,30 @@ public class ASMParse {
         asm = newAsm.stream().toList();
     }
 
+    /**
+     * 逐行写出汇编代码，不拼接完整的字符串
+     */
+    public void write(Writer writer) throws IOException {
+        for (int i = 0; i < asm.size(); i++) {
+            String line = asm.get(i);
+            if (i > 0) {
+                writer.write('\n');
+            }
+            if (!(line.startsWith(".") || line.contains(":"))) {
+                writer.write('\t');
+            }
+            writer.write(line);
+        }
+    }
+
     public String toString() {
-        return asm.stream()
-                .map(line -> (!((line.startsWith(".")) || line.contains(":")) ? "\t" : "") + line)
-                .collect(Collectors.joining("\n"));
+        StringWriter writer = new StringWriter();
+        try {
+            write(writer);
+        } catch (IOException e) {
+            // StringWriter 不会抛出
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
     }
 }
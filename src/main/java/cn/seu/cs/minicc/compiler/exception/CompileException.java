@@ -0,0 +1,41 @@
+package cn.seu.cs.minicc.compiler.exception;
+
+import lombok.Getter;
+
+/**
+ * 可定位到源代码行的编译错误
+ * <p>
+ * 行号为预编译输出中的行号，从1开始，未知时为0，可经 LineMap 映射回所在文件与行。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+@Getter
+public class CompileException extends RuntimeException {
+    private int line;
+
+    public CompileException() {
+    }
+
+    public CompileException(String message) {
+        super(message);
+    }
+
+    public CompileException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public CompileException(int line, String message) {
+        super(message);
+        this.line = line;
+    }
+
+    /**
+     * 补充出错行号，已知行号时不覆盖
+     */
+    public void locate(int line) {
+        if (this.line == 0) {
+            this.line = line;
+        }
+    }
+}
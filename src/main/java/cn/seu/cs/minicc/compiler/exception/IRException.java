@@ -4,7 +4,7 @@ package cn.seu.cs.minicc.compiler.exception;
  * @author Shuxin Wang <shuxinwang662@gmail.com>
  * Created on 2023/12/21
  */
-public class IRException extends RuntimeException {
+public class IRException extends CompileException {
     public IRException(String message) {
         super(message);
     }
@@ -12,4 +12,8 @@ public class IRException extends RuntimeException {
     public IRException(String format, Object... args) {
         super(String.format(format, args));
     }
+
+    public IRException(int line, String message) {
+        super(line, message);
+    }
 }
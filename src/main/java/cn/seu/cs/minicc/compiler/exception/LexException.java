@@ -4,7 +4,7 @@ package cn.seu.cs.minicc.compiler.exception;
  * @author Shuxin Wang <shuxinwang662@gmail.com>
  * Created on 2023/11/12
  */
-public class LexException extends RuntimeException{
+public class LexException extends CompileException {
     public LexException(String message) {
         super(message);
     }
@@ -13,6 +13,10 @@ public class LexException extends RuntimeException{
         this(format.formatted(args));
     }
 
+    public LexException(int line, String format, Object... args) {
+        super(line, format.formatted(args));
+    }
+
     public LexException() {
 
     }
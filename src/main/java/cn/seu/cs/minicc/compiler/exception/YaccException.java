@@ -4,7 +4,7 @@ package cn.seu.cs.minicc.compiler.exception;
  * @author Shuxin Wang <shuxinwang662@gmail.com>
  * Created on 2023/11/12
  */
-public class YaccException extends RuntimeException{
+public class YaccException extends CompileException {
     public YaccException(String message) {
         super(message);
     }
@@ -12,4 +12,12 @@ public class YaccException extends RuntimeException{
     public YaccException(String format, Object... args) {
         super(String.format(format, args));
     }
+
+    public YaccException(Throwable cause, String format, Object... args) {
+        super(String.format(format, args), cause);
+    }
+
+    public YaccException(int line, String format, Object... args) {
+        super(line, String.format(format, args));
+    }
 }
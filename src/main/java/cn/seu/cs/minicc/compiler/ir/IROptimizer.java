@@ -3,14 +3,16 @@ package cn.seu.cs.minicc.compiler.ir;
 import cn.seu.cs.minicc.compiler.exception.IRException;
 import cn.seu.cs.minicc.compiler.ir.compont.AbstractIRVal;
 import cn.seu.cs.minicc.compiler.ir.compont.IRFunc;
+import cn.seu.cs.minicc.compiler.ir.compont.Operands;
 import cn.seu.cs.minicc.compiler.ir.compont.Quad;
+import cn.seu.cs.minicc.compiler.ir.compont.QuadOpType;
+import cn.seu.cs.minicc.compiler.ir.dataflow.Liveness;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
 import java.util.*;
 
 import static cn.seu.cs.minicc.compiler.constants.Constants.IO_MAX_ADDR;
-import static cn.seu.cs.minicc.compiler.ir.IRParse.VAR_PREFIX;
 import static cn.seu.cs.minicc.compiler.ir.compont.QuadOpType.*;
 
 /**
@@ -19,15 +21,25 @@ import static cn.seu.cs.minicc.compiler.ir.compont.QuadOpType.*;
  */
 @Data
 public class IROptimizer {
+    // 没有副作用、结果不活跃时可以删除的赋值，调用与端口读写除外
+    private static final Set<QuadOpType> REMOVABLE_OPS = EnumSet.of(INIT_VAL, INIT_CONST, INIT_STR, READ_ARRAY);
+
+    static {
+        REMOVABLE_OPS.addAll(EXPRESSION_OPS);
+    }
+
     private IRParse irParse;
     private List<String> logs;
 
+    /**
+     * 常量折叠表达式树的结点，op 为null时为变量结点，否则 index 为运算的参数个数
+     */
     @Data
     @AllArgsConstructor
     public static class NodeElement {
-        String type;
-        String name;
-        Integer index;
+        QuadOpType op;
+        int var;
+        int index;
     }
 
     public IROptimizer(IRParse irParse) {
@@ -53,37 +65,38 @@ public class IROptimizer {
 
     // 删除变量池中的死变量
     public boolean deadVarEliminate() {
-        List<String> usedVars = new ArrayList<>();
+        Operands operands = irParse.getOperands();
+        boolean[] usedVars = new boolean[operands.size()];
         for (Quad quad : irParse.getQuads()) {
-            if (CALL_FUNC.equals(quad.getOp())) {
-                if (!quad.getArg2().trim().isEmpty()) {
-                    usedVars.addAll(new ArrayList<>(List.of(quad.getArg2().split("&"))));
-                }
-            } else {
-                if (quad.getArg2().startsWith(VAR_PREFIX)) {
-                    usedVars.add(quad.getArg2());
+            if (quad.getOp() == CALL_FUNC) {
+                for (int arg : quad.getArgs()) {
+                    usedVars[arg] = true;
                 }
+            } else if (operands.isVar(quad.getArg2())) {
+                usedVars[quad.getArg2()] = true;
             }
-            if (quad.getArg1().startsWith(VAR_PREFIX)) {
-                usedVars.add(quad.getArg1());
+            if (operands.isVar(quad.getArg1())) {
+                usedVars[quad.getArg1()] = true;
             }
-            if (quad.getRes().startsWith(VAR_PREFIX)) {
-                usedVars.add(quad.getRes());
+            if (operands.isVar(quad.getRes())) {
+                usedVars[quad.getRes()] = true;
             }
         }
-        Set<String> usedVarSet = new HashSet<>(usedVars);
         List<AbstractIRVal> unUsedVars = irParse.getValPool().stream()
-                .filter(v -> !usedVarSet.contains(v.getId()))
+                .filter(v -> !isUsed(operands, usedVars, v))
                 .toList();
-        Set<String> unUsedVarsSet =
-                new HashSet<>(unUsedVars.stream().map(AbstractIRVal::getId).toList());
         if (!unUsedVars.isEmpty()) {
             logs.add("删除了变量池中的死变量：" + unUsedVars);
         }
-        irParse.getValPool().removeIf(v -> unUsedVarsSet.contains(v.getId()));
+        irParse.getValPool().removeIf(v -> !isUsed(operands, usedVars, v));
         return !unUsedVars.isEmpty();
     }
 
+    private static boolean isUsed(Operands operands, boolean[] usedVars, AbstractIRVal val) {
+        int id = operands.find(val.getId());
+        return id >= 0 && usedVars[id];
+    }
+
     // 删除从未使用的函数
     private boolean deadFuncEliminate() {
         List<String> usedFunctions = new ArrayList<>();
@@ -113,13 +126,15 @@ public class IROptimizer {
                 .toList();
         List<int[]> ranges = new ArrayList<>();
         unUsedFunctions.forEach(func -> {
+            int entryLabel = irParse.getOperands().find(func.getEntryLabel());
+            int exitLabel = irParse.getOperands().find(func.getExitLabel());
             int start = -1, end = -1;
             for (int i = 0; i < irParse.getQuads().size(); i++) {
                 Quad temp = irParse.getQuads().get(i);
-                if (SET_LABEL.equals(temp.getOp()) && temp.getRes().equals(func.getEntryLabel())) {
+                if (temp.getOp() == SET_LABEL && temp.getRes() == entryLabel) {
                     start = i;
                 }
-                if (SET_LABEL.equals(temp.getOp()) && temp.getRes().equals(func.getExitLabel())) {
+                if (temp.getOp() == SET_LABEL && temp.getRes() == exitLabel) {
                     end = i;
                 }
             }
@@ -142,51 +157,35 @@ public class IROptimizer {
 
     // 删除在赋值后从未使用的变量的赋值语句
     private boolean deadVarUseEliminate() {
-        Map<String, List<Integer>> varUpdate = new HashMap<>();
+        Operands operands = irParse.getOperands();
+        // 基于当前的四元式重新划分基本块，求各赋值之后变量是否活跃
+        irParse.toBasicBlocks();
+        Liveness liveness = new Liveness(irParse);
+        Map<Integer, List<Integer>> deadDefs = new LinkedHashMap<>();
         for (int i = 0; i < irParse.getQuads().size(); i++) {
             Quad quad = irParse.getQuads().get(i);
-            if (quad.getRes().startsWith(VAR_PREFIX)) {
-                List<Integer> value = varUpdate.getOrDefault(quad.getRes(), new ArrayList<>());
-                value.add(i);
-                varUpdate.put(quad.getRes(), value);
+            int def = quad.def();
+            if (REMOVABLE_OPS.contains(quad.getOp()) && def != Operands.NONE && !liveness.isLiveAfter(i, def)) {
+                deadDefs.computeIfAbsent(def, k -> new ArrayList<>()).add(i);
             }
         }
-
-        List<Integer> quadsToRemove = new ArrayList<>();
-        for (Map.Entry<String, List<Integer>> entry : varUpdate.entrySet()) {
-            List<Integer> indices = entry.getValue();
-            Integer finalIndex = indices.get(indices.size() - 1);
-            String var = entry.getKey();
-            boolean used = false;
-            for (int i = finalIndex; i < irParse.getQuads().size(); i++) {
-                Quad quad = irParse.getQuads().get(i);
-                if (quad.getArg1().equals(var) ||
-                        quad.getArg2().equals(var) ||
-                        List.of(quad.getArg2().split("&")).contains(var) ||
-                        quad.getRes().equals(var) ||
-                        List.of("j", "j_false", "call", "return_void", "return_expr").contains(quad.getOp())) {
-                    used = true;
-                    break;
-                }
-            }
-            if (!used) {
-                this.logs.add("删除从未被使用的变量 " + var + ", 对应四元式索引" + indices);
-                quadsToRemove.add(finalIndex);
+        for (Map.Entry<Integer, List<Integer>> entry : deadDefs.entrySet()) {
+            this.logs.add("删除从未被使用的变量 " + operands.name(entry.getKey()) + ", 对应四元式索引" + entry.getValue());
+            for (Integer index : entry.getValue()) {
+                irParse.getQuads().set(index, null);
             }
         }
-        for (Integer index : quadsToRemove) {
-            irParse.getQuads().set(index, null);
-        }
         irParse.getQuads().removeIf(Objects::isNull);
-        return !quadsToRemove.isEmpty();
+        return !deadDefs.isEmpty();
     }
 
     // 常量传播与常量折叠
     private boolean constPropAndFold() {
+        Operands operands = irParse.getOperands();
         Map<Integer, Quad> eqVars = new HashMap<>();
         for (int i = 0; i < irParse.getQuads().size(); i++) {
             Quad quad = irParse.getQuads().get(i);
-            if (INIT_VAL.equals(quad.getOp())) {
+            if (quad.getOp() == INIT_VAL) {
                 eqVars.put(i, quad);
             }
         }
@@ -199,25 +198,25 @@ public class IROptimizer {
             boolean optimize = true;
             Integer index = entry.getKey();
             Quad value = entry.getValue();
-            nodeStk.add(new NodeElement("var", value.getArg1(), index));
+            nodeStk.add(new NodeElement(null, value.getArg1(), index));
             while (!nodeStk.isEmpty()) {
                 NodeElement node = nodeStk.get(nodeStk.size() - 1);
                 nodeStk.remove(nodeStk.size() - 1);
-                if (node.type.equals("var")) {
+                if (node.op == null) {
                     for (int i = node.index - 1; i >= 0; i--) {
                         Quad tmp = irParse.getQuads().get(i);
-                        if (SET_LABEL.equals(tmp.getOp())) {
+                        if (tmp.getOp() == SET_LABEL) {
                             optimize = false;
                             break;
-                        } else if (tmp.getRes().equals(node.name)) {
-                            if (INIT_CONST.equals(tmp.getOp())) {
-                                constStk.add(tmp.getArg1());
-                            } else if (OPTIMIZE_OP_LIST.contains(tmp.getOp())) {
-                                int argNum = tmp.getArg2().trim().isEmpty() ? 1 : 2;
-                                nodeStk.add(new NodeElement("op", tmp.getOp(), argNum));
-                                nodeStk.add(new NodeElement("var", tmp.getArg1(), i));
+                        } else if (tmp.getRes() == node.var) {
+                            if (tmp.getOp() == INIT_CONST) {
+                                constStk.add(operands.name(tmp.getArg1()));
+                            } else if (OPTIMIZE_OPS.contains(tmp.getOp())) {
+                                int argNum = tmp.getArg2() == Operands.NONE ? 1 : 2;
+                                nodeStk.add(new NodeElement(tmp.getOp(), Operands.NONE, argNum));
+                                nodeStk.add(new NodeElement(null, tmp.getArg1(), i));
                                 if (argNum > 1) {
-                                    nodeStk.add(new NodeElement("var", tmp.getArg2(), i));
+                                    nodeStk.add(new NodeElement(null, tmp.getArg2(), i));
                                 }
                             } else {
                                 optimize = false;
@@ -231,33 +230,32 @@ public class IROptimizer {
                         args.add(constStk.get(constStk.size() - 1));
                         constStk.remove(constStk.size() - 1);
                     }
-                    String name = node.name;
-                    switch (name) {
-                        case "OR_OP" -> constStk.add(
+                    switch (node.op) {
+                        case OR_OP -> constStk.add(
                                 (isBoolean(args.get(0)) || isBoolean(args.get(1))) ? "1" : "0"
                         );
-                        case "AND_OP" -> constStk.add(
+                        case AND_OP -> constStk.add(
                                 (isBoolean(args.get(0)) && isBoolean(args.get(1))) ? "1" : "0"
                         );
-                        case "EQ_OP" -> constStk.add(
+                        case EQ_OP -> constStk.add(
                                 (args.get(0).equals(args.get(1))) ? "1" : "0"
                         );
-                        case "NE_OP" -> constStk.add(
+                        case NE_OP -> constStk.add(
                                 (!args.get(0).equals(args.get(1))) ? "1" : "0"
                         );
-                        case "GT_OP" -> constStk.add(
+                        case GT_OP -> constStk.add(
                                 (Integer.parseInt(args.get(0)) > Integer.parseInt(args.get(1))) ? "1" : "0"
                         );
-                        case "LT_OP" -> constStk.add(
+                        case LT_OP -> constStk.add(
                                 (Integer.parseInt(args.get(0)) < Integer.parseInt(args.get(1))) ? "1" : "0"
                         );
-                        case "GE_OP" -> constStk.add(
+                        case GE_OP -> constStk.add(
                                 (Integer.parseInt(args.get(0)) >= Integer.parseInt(args.get(1))) ? "1" : "0"
                         );
-                        case "LE_OP" -> constStk.add(
+                        case LE_OP -> constStk.add(
                                 (Integer.parseInt(args.get(0)) <= Integer.parseInt(args.get(1))) ? "1" : "0"
                         );
-                        case "PLUS" -> {
+                        case PLUS -> {
                             if (node.index == 2)
                                 constStk.add(
                                         String.valueOf(Integer.parseInt(args.get(0)) + Integer.parseInt(args.get(1)))
@@ -267,7 +265,7 @@ public class IROptimizer {
                                         String.valueOf(Integer.parseInt(args.get(0)))
                                 );
                         }
-                        case "MINUS" -> {
+                        case MINUS -> {
                             if (node.index == 2)
                                 constStk.add(
                                         String.valueOf(Integer.parseInt(args.get(0)) - Integer.parseInt(args.get(1)))
@@ -277,39 +275,41 @@ public class IROptimizer {
                                         String.valueOf(-Integer.parseInt(args.get(0)))
                                 );
                         }
-                        case "MULTIPLY" -> constStk.add(
+                        case MULTIPLY -> constStk.add(
                                 String.valueOf(Integer.parseInt(args.get(0)) * Integer.parseInt(args.get(1)))
                         );
-                        case "SLASH" -> constStk.add(
+                        case SLASH -> constStk.add(
                                 String.valueOf(Integer.parseInt(args.get(0)) / Integer.parseInt(args.get(1)))
                         );
-                        case "PERCENT" -> constStk.add(
+                        case PERCENT -> constStk.add(
                                 String.valueOf(Integer.parseInt(args.get(0)) % Integer.parseInt(args.get(1)))
                         );
-                        case "BITAND_OP" -> constStk.add(
+                        case BITAND_OP -> constStk.add(
                                 String.valueOf(Integer.parseInt(args.get(0)) & Integer.parseInt(args.get(1)))
                         );
-                        case "BITOR_OP" -> constStk.add(
+                        case BITOR_OP -> constStk.add(
                                 String.valueOf(Integer.parseInt(args.get(0)) | Integer.parseInt(args.get(1)))
                         );
-                        case "LEFT_OP" -> constStk.add(
+                        case LEFT_OP -> constStk.add(
                                 String.valueOf(Integer.parseInt(args.get(0)) << Integer.parseInt(args.get(1)))
                         );
-                        case "RIGHT_OP" -> constStk.add(
+                        case RIGHT_OP -> constStk.add(
                                 String.valueOf(Integer.parseInt(args.get(0)) >> Integer.parseInt(args.get(1)))
                         );
-                        case "NOT_OP" -> constStk.add(
+                        case NOT_OP -> constStk.add(
                                 isBoolean(args.get(0)) ? "0" : "1"
                         );
-                        case "BITINV_OP" -> constStk.add(
+                        case BITINV_OP -> constStk.add(
                                 String.valueOf(~Integer.parseInt(args.get(0)))
                         );
+                        default -> {
+                        }
                     }
                 }
                 if (!optimize) break;
             }
             if (optimize) {
-                Quad quad = new Quad(INIT_CONST.getOp(), constStk.get(0), "", value.getRes());
+                Quad quad = new Quad(operands, INIT_CONST, operands.intern(constStk.get(0)), Operands.NONE, value.getRes());
                 unfix = true;
                 irParse.getQuads().set(index, quad);
                 this.logs.add("常量传播与常量折叠：将位于" + entry.getKey() + "的四元式 " + value + " 优化为 " + quad);
@@ -324,19 +324,20 @@ public class IROptimizer {
 
     // 对不合理的命令立即拒绝
     private void rejectInvalidCommand() {
+        Operands operands = irParse.getOperands();
         for (int i = 0; i < irParse.getQuads().size(); i++) {
             Quad quad = irParse.getQuads().get(i);
 
             // 编译期除0错误
-            if (quad.getOp().equals("SLASH") || quad.getOp().equals("PERCENT")) {
+            if (quad.getOp() == SLASH || quad.getOp() == PERCENT) {
                 for (int j = i - 1; j >= 0; j--) {
                     Quad tmp = irParse.getQuads().get(j);
-                    if (INIT_CONST.equals(tmp.getOp()) &&
-                        tmp.getRes().equals(quad.getArg2()) &&
-                        tmp.getArg1().equals("0")) {
+                    if (tmp.getOp() == INIT_CONST &&
+                        tmp.getRes() == quad.getArg2() &&
+                        operands.name(tmp.getArg1()).equals("0")) {
                         throw new IRException("位于" + i + "的四元式" + quad + "存在除以0的错误");
                     }
-                    if (SET_LABEL.equals(tmp.getOp()) || tmp.getRes().equals(quad.getArg2())) {
+                    if (tmp.getOp() == SET_LABEL || tmp.getRes() == quad.getArg2()) {
                         break;
                     }
                 }
@@ -344,18 +345,19 @@ public class IROptimizer {
             }
 
             // 越界的端口访问
-            if (INIT_ADDR.equals(quad.getOp())) {
+            if (quad.getOp() == INIT_ADDR) {
                 for (int j = i - 1; j >= 0; j--) {
                     Quad tmp = irParse.getQuads().get(j);
-                    if (INIT_CONST.equals(tmp.getOp()) &&
-                            tmp.getRes().equals(quad.getArg1())) {
-                        long addr = tmp.getArg1().startsWith("0x") ?
-                                Long.parseLong(tmp.getArg1().substring(2), 16) :
-                                Long.parseLong(tmp.getArg1());
+                    if (tmp.getOp() == INIT_CONST &&
+                            tmp.getRes() == quad.getArg1()) {
+                        String constant = operands.name(tmp.getArg1());
+                        long addr = constant.startsWith("0x") ?
+                                Long.parseLong(constant.substring(2), 16) :
+                                Long.parseLong(constant);
                         if (addr < 0 || addr > IO_MAX_ADDR) {
                             throw new IRException("位于" + i + "的四元式" + quad + "存在越界的端口访问");
                         }
-                        if (SET_LABEL.equals(tmp.getOp()) || tmp.getRes().equals(quad.getArg2())) {
+                        if (tmp.getOp() == SET_LABEL || tmp.getRes() == quad.getArg2()) {
                             break;
                         }
                     }
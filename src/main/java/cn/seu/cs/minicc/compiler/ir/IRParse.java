@@ -1,18 +1,32 @@
 package cn.seu.cs.minicc.compiler.ir;
 
+import cn.seu.cs.minicc.compiler.CompilerTables;
+import cn.seu.cs.minicc.compiler.exception.CompileException;
 import cn.seu.cs.minicc.compiler.exception.IRException;
 import cn.seu.cs.minicc.compiler.exception.YaccException;
 import cn.seu.cs.minicc.compiler.ir.compont.*;
+import cn.seu.cs.minicc.compiler.lex.TokenBuffer;
+import cn.seu.cs.minicc.compiler.lex.TokenStream;
 import cn.seu.cs.minicc.compiler.yacc.ASTNode;
+import cn.seu.cs.minicc.compiler.yacc.ParseListener;
+import cn.seu.cs.minicc.compiler.yacc.SyntaxTree;
+import cn.seu.cs.minicc.compiler.yacc.YaccParse;
+import cn.seu.cs.minicc.compiler.yacc.grammar.MiniCProduction;
+import cn.seu.cs.minicc.compiler.yacc.table.ParseTable;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.*;
 
 import static cn.seu.cs.minicc.compiler.ir.compont.MiniCType.*;
 import static cn.seu.cs.minicc.compiler.ir.compont.QuadOpType.*;
-import static cn.seu.cs.minicc.compiler.yacc.grammar.ASTNodeName.*;
 
 /**
  * @author Shuxin Wang <shuxinwang662@gmail.com>
@@ -20,7 +34,6 @@ import static cn.seu.cs.minicc.compiler.yacc.grammar.ASTNodeName.*;
  */
 @Data
 public class IRParse {
-    public static final List<Integer> GLOBAL_SCOPE = new ArrayList<>(List.of(0));
     public static final String LABEL_PREFIX = "_label_";
     public static final String VAR_PREFIX = "_var_";
 
@@ -43,7 +56,7 @@ public class IRParse {
     @AllArgsConstructor
     @NoArgsConstructor
     public static class ScopeFunc {
-        private List<Integer> scopePath;
+        private Scope scopePath;
         private String funcName;
     }
 
@@ -61,44 +74,113 @@ public class IRParse {
 
     private final List<IRFunc> funcPool;
     private final List<Quad> quads;
+    // 四元式的操作数表
+    private final Operands operands;
     private List<BasicBlock> basicBlocks;
+    private ControlFlowGraph cfg;
     private final List<AbstractIRVal> valPool;
     private Integer varCount;
     private Integer labelCount;
     private Integer scopeCount;
-    private List<Integer> scopePath;
+    private final Scope globalScope;
+    private Scope scopePath;
+    // 当前可见的变量
+    @Getter(AccessLevel.NONE)
+    private final SymbolTable symbolTable;
     private List<LoopEntry> loopStack;
     private List<PostChecker> postChecks;
     private List<ScopeFunc> callInScope;
+    private FuncContext context;
+    // 分析表中各产生式编号对应的产生式
+    private final MiniCProduction[] productions;
+    @Getter(AccessLevel.NONE)
+    private final Translator translator;
 
     public IRParse(ASTNode node) {
+        this(node == null ? null : SyntaxTree.fromNode(node, CompilerTables.getInstance().getParseTable()));
+    }
+
+    /**
+     * 由语法树生成中间代码，语法树按LR分析的动作顺序重放给语法制导的翻译
+     */
+    public IRParse(SyntaxTree tree) {
+        this(tree == null ? null : tree.getTable());
+        if (tree == null || tree.getRoot() == SyntaxTree.NO_NODE) {
+            throw new IRException("AST根节点为null");
+        }
+        tree.replay(translator);
+        finish();
+    }
+
+    /**
+     * 在语法分析的同时生成中间代码，不构造语法树
+     *
+     * @throws YaccException 语法错误，优先于语义错误抛出
+     */
+    public IRParse(TokenStream tokens, CompilerTables tables) {
+        this(tables.getParseTable());
+        YaccParse yaccParse = new YaccParse();
+        if (!yaccParse.parse(tokens, tables, translator)) {
+            throw parsingFailed(yaccParse);
+        }
+        finish();
+    }
+
+    /**
+     * 在语法分析的同时生成中间代码，不构造语法树
+     *
+     * @throws YaccException 语法错误，优先于语义错误抛出
+     */
+    public IRParse(TokenBuffer tokens, CompilerTables tables) {
+        this(tables.getParseTable());
+        YaccParse yaccParse = new YaccParse();
+        if (!yaccParse.parse(tokens, tables, translator)) {
+            throw parsingFailed(yaccParse);
+        }
+        finish();
+    }
+
+    // 与经由语法树的路径中语法树为null时一致，Token序列中存在分析表之外的Token或未被接受
+    private static YaccException parsingFailed(YaccParse yaccParse) {
+        return new YaccException(yaccParse.getLine(), "Parsing failed");
+    }
+
+    private IRParse(ParseTable table) {
+        this.productions = table == null ? new MiniCProduction[0] : MiniCProduction.resolve(table);
+        this.translator = table == null ? null : new Translator(table);
         this.varCount = 0;
         this.labelCount = 0;
         this.scopeCount = 0;
         this.funcPool = new ArrayList<>();
         this.quads = new ArrayList<>();
+        this.operands = new Operands(VAR_PREFIX);
         this.basicBlocks = new ArrayList<>();
         this.valPool = new ArrayList<>();
         this.loopStack = new ArrayList<>();
         this.postChecks = new ArrayList<>();
         this.callInScope = new ArrayList<>();
-        this.scopePath = GLOBAL_SCOPE;
-        // 分析语法树
-        start(node);
+        this.globalScope = Scope.global();
+        this.scopePath = globalScope;
+        this.symbolTable = new SymbolTable();
+    }
+
+    private void finish() {
+        translator.finish();
         // 添加内置函数
-        scopePath.add(++scopeCount);
+        enterScope();
         funcPool.add(new IRFunc(
                 "__asm",
                 VOID,
                 newLabel("__asm_entry"),
                 newLabel("__asm_exit"),
                 true,
-                new ArrayList<>(List.of(new IRVar(newVarId(), "asm", STRING, new ArrayList<>(scopePath), true))),
+                new ArrayList<>(List.of(new IRVar(newVarId(), "asm", STRING, scopePath, true))),
                 new ArrayList<>(),
                 new ArrayList<>(),
-                new ArrayList<>(scopePath)
+                scopePath
         ));
-        scopePath.remove(scopePath.size() - 1);
+        exitScope();
+        globalScope.close(scopeCount);
         // 后置检查
         postProcess1();
         postCheck();
@@ -108,19 +190,27 @@ public class IRParse {
     }
 
     private void postProcess1() {
-        // 补充函数信息
+        // 补充函数信息，函数的作用域是全局作用域的子作用域，变量与调用按其深度为1的祖先作用域归入函数
+        Map<Scope, IRFunc> funcScopes = new HashMap<>();
+        Map<Scope, List<String>> calls = new HashMap<>();
+        for (IRFunc func : funcPool) {
+            funcScopes.put(func.getScopePath(), func);
+            calls.put(func.getScopePath(), new ArrayList<>());
+        }
+        for (AbstractIRVal val : valPool) {
+            IRFunc func = funcScopes.get(val.getScope().ancestor(1));
+            if (func != null) {
+                func.getLocalVars().add(val);
+            }
+        }
+        for (ScopeFunc call : callInScope) {
+            List<String> names = calls.get(call.getScopePath().ancestor(1));
+            if (names != null) {
+                names.add(call.getFuncName());
+            }
+        }
         for (IRFunc func : funcPool) {
-            func.getLocalVars().addAll(
-                    valPool.stream()
-                            .filter(v -> inScope(func.getScopePath(), v.getScope()))
-                            .toList()
-            );
-            func.getChildFunctions().addAll(
-                    new HashSet<>(callInScope.stream()
-                            .filter(call -> inScope(func.getScopePath(), call.scopePath))
-                            .map(ScopeFunc::getFuncName)
-                            .toList())
-            );
+            func.getChildFunctions().addAll(new HashSet<>(calls.get(func.getScopePath())));
         }
     }
 
@@ -128,7 +218,7 @@ public class IRParse {
         for (PostChecker checker : postChecks) {
             for (int i = 0; i < checker.getCheckers().size(); i++) {
                 if (!checker.getCheckers().get(i).test(checker.getParams().get(i))) {
-                    throw new IRException(checker.getHint());
+                    throw new IRException(checker.getLine(), checker.getHint());
                 }
             }
         }
@@ -143,587 +233,594 @@ public class IRParse {
     }
 
     private void postProcess2() {
+        int asmFunc = operands.find("__asm");
         for (int i = 0; i < quads.size(); i++) {
             Quad quad = quads.get(i);
-            if (quad.getOp().equals("call") && quad.getArg1().equals("__asm")) {
+            if (quad.getOp() == CALL_FUNC && quad.getArg1() == asmFunc) {
                 if (i < 1) {
                     throw new IRException("asm函数调用不在函数内");
                 }
                 Quad prev = quads.get(i - 1);
-                if (prev.getArg2().split("&").length != 1) {
+                if (prev.getArgs().length > 1) {
                     throw new IRException("asm函数调用参数不为1");
                 }
-                if (!prev.getOp().equals("=string")) {
+                if (prev.getOp() != INIT_STR) {
                     throw new IRException("asm函数调用参数不为字符串");
                 }
-                quads.set(i, new Quad("out_asm", prev.getArg1(), "", ""));
+                quads.set(i, new Quad(operands, OUT_ASM, prev.getArg1(), Operands.NONE, Operands.NONE));
                 quads.set(i - 1, null);
             }
         }
         quads.removeIf(Objects::isNull);
     }
 
+    /**
+     * 重新构造控制流图，四元式变化后调用
+     */
     public void toBasicBlocks() {
-        basicBlocks = new ArrayList<>();
-        List<Integer> leaders = new ArrayList<>();
-        boolean nextFlag = false;
-        for (int i = 0; i < quads.size(); i++) {
-            if (i == 0) {
-                leaders.add(i);
-                continue;
-            }
-            if (SET_LABEL.equals(quads.get(i).getOp()) &&
-                    quads.get(i).getRes().contains("entry")) {
-                leaders.add(i);
-                continue;
-            }
-            if (JUMP.equals(quads.get(i).getOp()) ||
-                    J_FALSE.equals(quads.get(i).getOp())) {
-                for (int j = 0; j < quads.size(); j++) {
-                    if (SET_LABEL.equals(quads.get(j).getOp()) &&
-                            quads.get(j).getRes().equals(quads.get(i).getRes())) {
-                        leaders.add(j);
-                        break;
-                    }
-                }
-                nextFlag = true;
-                continue;
-            }
-            if (nextFlag) {
-                leaders.add(i);
-                nextFlag = false;
-            }
-        }
-        leaders.sort((Comparator.comparingInt(o -> o)));
-        List<Integer> leaders2 = new ArrayList<>();
-        for (Integer index : leaders) {
-            if (!leaders2.contains(index)) {
-                leaders2.add(index);
-            }
-        }
-        if (leaders2.get(leaders2.size() - 1) != quads.size()) {
-            leaders2.add(quads.size());
-        }
-        int id = 0;
-        for (int i = 0; i < leaders2.size() - 1; i++) {
-            basicBlocks.add(
-                    new BasicBlock(id++,
-                            new ArrayList<>(quads.subList(leaders2.get(i),
-                                    leaders2.get(i + 1))))
-            );
-        }
+        cfg = new ControlFlowGraph(quads, funcPool, operands);
+        basicBlocks = cfg.getBlocks();
+    }
 
+    private void addQuad(QuadOpType op, String arg1, String arg2, String res) {
+        quads.add(new Quad(operands, op, operands.intern(arg1), operands.intern(arg2), operands.intern(res)));
     }
 
-    private String newVarId() {
+    public String newVarId() {
         return VAR_PREFIX + varCount++;
     }
 
-    private String newLabel(String desc) {
+    public String newLabel(String desc) {
         return LABEL_PREFIX + labelCount++ + "_" + desc;
     }
 
-    private static boolean sameScope(List<Integer> scope1, List<Integer> scope2) {
-        if (scope1.size() != scope2.size()) {
-            return false;
-        }
-        for (int i = 0; i < scope1.size(); i++) {
-            if (!scope1.get(i).equals(scope2.get(i))) {
-                return false;
-            }
-        }
-        return true;
+    // 进一层作用域
+    private void enterScope() {
+        scopePath = scopePath.child(++scopeCount);
+        symbolTable.enterScope();
     }
 
-    private static boolean sameVal(AbstractIRVal val1, AbstractIRVal val2) {
-        return val1.getName().equals(val2.getName()) && sameScope(val1.getScope(), val2.getScope());
+    // 退出当前作用域
+    private void exitScope() {
+        scopePath.close(scopeCount);
+        scopePath = scopePath.getParent();
+        symbolTable.exitScope();
     }
 
-    private static boolean inScope(List<Integer> scope1, List<Integer> scope2) {
-        if (scope1.size() > scope2.size()) {
-            return false;
-        }
-        for (int i = 0; i < scope1.size(); i++) {
-            if (!scope1.get(i).equals(scope2.get(i))) {
-                return false;
-            }
+    private AbstractIRVal findVal(String name) throws IRException {
+        AbstractIRVal val = symbolTable.find(name);
+        if (val == null) {
+            throw new IRException("未找到变量：%s", name);
         }
-        return true;
+        return val;
     }
 
-    private AbstractIRVal findVal(String name) throws IRException {
-        List<List<Integer>> validScope = new ArrayList<>();
-        for (int i = scopePath.size() - 1; i >= 0; i--) {
-            List<Integer> scope = new ArrayList<>();
-            for (int j = 0; j <= i; j++) {
-                scope.add(scopePath.get(j));
-            }
-            validScope.add(scope);
-        }
-        for (List<Integer> scope : validScope) {
-            for (AbstractIRVal val : valPool) {
-                if (val.getName().equals(name) && sameScope(val.getScope(), scope)) {
-                    return val;
-                }
+    /**
+     * 语法制导的中间代码生成
+     * <p>
+     * 按LR分析的动作顺序接收移进与规约：规约时执行产生式的语义动作，
+     * 产生式中间的动作（进入函数与作用域、分配循环与条件的标号、赋值左部的查找等）
+     * 在移进其前一个Token时执行，因此四元式、变量与标号的编号均与自顶向下遍历语法树时一致。
+     * 语义错误推迟到分析结束后抛出，语法错误优先。
+     */
+    private class Translator implements ParseListener {
+        private final ParseTable table;
+        // 与分析器同步的状态栈、符号栈与属性栈
+        private int[] states = new int[64];
+        private int[] symbols = new int[64];
+        private Object[] attrs = new Object[64];
+        private int top = -1;
+        private RuntimeException error;
+        // 最近移进的Token所在行，语义错误定位到此行
+        private int line;
+
+        private final int identifier;
+        private final int typeSpec;
+        private final int params;
+        private final int expr;
+        private final int lParen;
+        private final int rParen;
+        private final int lBrace;
+        private final int lBracket;
+        private final int rBracket;
+        private final int assign;
+        private final int ifToken;
+        private final int whileToken;
+        private final int returnToken;
+        // 栈顶为语句开头的IDENTIFIER、下一个Token为LBRACKET时所处的LR状态，即数组赋值语句
+        private final boolean[] arrayAssignStates;
+
+        Translator(ParseTable table) {
+            this.table = table;
+            List<String> names = Arrays.asList(table.getSymbols());
+            this.identifier = names.indexOf("IDENTIFIER");
+            this.typeSpec = names.indexOf("type_spec");
+            this.params = names.indexOf("params");
+            this.expr = names.indexOf("expr");
+            this.lParen = names.indexOf("LPAREN");
+            this.rParen = names.indexOf("RPAREN");
+            this.lBrace = names.indexOf("LBRACE");
+            this.lBracket = names.indexOf("LBRACKET");
+            this.rBracket = names.indexOf("RBRACKET");
+            this.assign = names.indexOf("ASSIGN");
+            this.ifToken = names.indexOf("IF");
+            this.whileToken = names.indexOf("WHILE");
+            this.returnToken = names.indexOf("RETURN");
+            // 读入 [ expr ] 之后仍可移进 = 的只有数组赋值语句，数组取值表达式之后不能出现 =
+            this.arrayAssignStates = new boolean[table.getStateCount()];
+            for (int state = 0; state < table.getStateCount(); state++) {
+                int next = transition(state, lBracket);
+                next = next == -1 ? -1 : transition(next, expr);
+                next = next == -1 ? -1 : transition(next, rBracket);
+                arrayAssignStates[state] = next != -1 && transition(next, assign) != -1;
             }
         }
-        throw new IRException("未找到变量：%s", name);
-    }
 
-    private void start(ASTNode node) throws IRException, YaccException {
-        if (node == null) {
-            throw new IRException("AST根节点为null");
+        // 状态state移进或转移symbol后的状态，不能移进或转移时为-1
+        private int transition(int state, int symbol) {
+            int cell = table.action(state, symbol);
+            int kind = ParseTable.kindOf(cell);
+            return kind == ParseTable.KIND_SHIFT || kind == ParseTable.KIND_GOTO ? ParseTable.targetOf(cell) : -1;
         }
-        parseDeclList(node.getByIndex(1));
-    }
 
-    private void parseDeclList(ASTNode node) throws YaccException, IRException {
-        if (DECL_LIST.equals(node.getByIndex(1).getName())) {
-            parseDeclList(node.getByIndex(1));
-            parseDecl(node.getByIndex(2));
-        }
-        if (DECL.equals(node.getByIndex(1).getName())) {
-            parseDecl(node.getByIndex(1));
+        @Override
+        public int shift(int symbol, String literal, int line) {
+            if (error == null) {
+                if (line > 0) {
+                    this.line = line;
+                }
+                try {
+                    push(symbol, shiftAction(symbol, literal));
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public int reduce(int producer, int[] values, int base) {
+            if (error == null) {
+                try {
+                    int start = top - table.getProducerRhsLength()[producer] + 1;
+                    Object attr = reduceAction(producer, start);
+                    top = start - 1;
+                    push(table.getProducerLhs()[producer], attr);
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+            }
+            return 0;
         }
-    }
 
-    private void parseDecl(ASTNode node) throws YaccException, IRException {
-        if (VAR_DECL.equals(node.getByIndex(1).getName())) {
-            parseVarDecl(node.getByIndex(1));
+        private void fail(RuntimeException e) {
+            if (e instanceof CompileException compileException) {
+                compileException.locate(line);
+            }
+            error = e;
         }
-        if (FUN_DECL.equals(node.getByIndex(1).getName())) {
-            parseFunDecl(node.getByIndex(1));
+
+        /**
+         * 分析结束后抛出推迟的语义错误
+         */
+        void finish() {
+            if (error != null) {
+                throw error;
+            }
         }
-    }
 
-    private void parseVarDecl(ASTNode node) throws YaccException, IRException {
-        if (node.match("type_spec IDENTIFIER")) {
-            MiniCType type = parseTypeSpec(node.getByIndex(1));
-            String name = node.getByIndex(2).getLiteral();
-            if (type == VOID) {
-                throw new IRException("void类型变量声明：%s", name);
+        private void push(int symbol, Object attr) {
+            int state = transition(top >= 0 ? states[top] : table.getStartState(), symbol);
+            if (++top == symbols.length) {
+                states = Arrays.copyOf(states, top * 2);
+                symbols = Arrays.copyOf(symbols, top * 2);
+                attrs = Arrays.copyOf(attrs, top * 2);
             }
-            scopePath = GLOBAL_SCOPE;
-            if (valPool.stream()
-                    .anyMatch(val -> sameScope(val.getScope(), GLOBAL_SCOPE) && val.getName().equals(name))) {
-                throw new IRException("重复声明变量：%s", name);
+            states[top] = state;
+            symbols[top] = symbol;
+            attrs[top] = attr;
+        }
+
+        // 栈顶往下第depth个符号，不存在时为-1
+        private int peek(int depth) {
+            return top - depth >= 0 ? symbols[top - depth] : -1;
+        }
+
+        private Object attr(int depth) {
+            return attrs[top - depth];
+        }
+
+        // 移进Token前执行产生式中间的动作，返回该Token的属性
+        private Object shiftAction(int symbol, String literal) {
+            if (symbol == lParen && peek(0) == identifier && peek(1) == typeSpec) {
+                enterFunction((MiniCType) attr(1), (String) attr(0));
+            } else if (symbol == lBrace && !(peek(0) == rParen && peek(1) == params)) {
+                // 复合语句，函数体的作用域在进入函数时已建立
+                enterScope();
+            } else if (symbol == whileToken) {
+                enterWhile();
+            } else if (symbol == rParen && peek(0) == expr && peek(1) == lParen && peek(2) == ifToken) {
+                return enterIf((String) attr(0));
+            } else if (symbol == rParen && peek(0) == expr && peek(1) == lParen && peek(2) == whileToken) {
+                addQuad(J_FALSE, (String) attr(0), "", loopStack.get(loopStack.size() - 1).getBreakLabel());
+            } else if (symbol == assign && peek(0) == identifier) {
+                // 变量赋值，先于右部表达式标记为已初始化
+                IRVar lhs = (IRVar) findVal((String) attr(0));
+                lhs.setHasInit(true);
+                return lhs;
+            } else if (symbol == lBracket && top >= 0 && arrayAssignStates[states[top]]) {
+                // 数组赋值，先于下标表达式查找数组
+                return (IRArray) findVal((String) attr(0));
+            } else if (symbol == returnToken) {
+                return enterReturn();
             }
-            valPool.add(new IRVar(newVarId(), name, type, new ArrayList<>(scopePath), false));
-        }
-        if (node.match("type_spec IDENTIFIER CONSTANT")) {
-            MiniCType type = parseTypeSpec(node.getByIndex(1));
-            String name = node.getByIndex(2).getLiteral();
-            int len = Integer.parseInt(node.getByIndex(3).getLiteral());
-            scopePath = GLOBAL_SCOPE;
-            if (len <= 0) {
-                throw new IRException("数组长度错误：%s", len);
+            return literal;
+        }
+
+        // 规约时执行产生式的语义动作，返回左部符号的属性；rhs(i)为右部第i个符号（从0开始）的属性
+        private Object reduceAction(int producer, int start) {
+            MiniCProduction production = productions[producer];
+            if (production == null) {
+                throw new IRException("未知语法树节点：%s", table.getSymbols()[table.getProducerLhs()[producer]]);
             }
-            valPool.add(new IRArray(newVarId(), name, type, scopePath, len));
+            return switch (production) {
+                case TYPE_VOID, TYPE_INT, TYPE_STRING -> getByType(rhs(start, 0));
+                case VAR_DECL -> {
+                    parseVarDecl(rhs(start, 0), rhs(start, 1));
+                    yield null;
+                }
+                case VAR_DECL_ARRAY -> {
+                    parseArrayDecl(rhs(start, 0), rhs(start, 1), rhs(start, 3));
+                    yield null;
+                }
+                case FUN_DECL, FUN_DECL_LOCALS -> {
+                    exitFunction();
+                    yield null;
+                }
+                case PARAMS_VOID -> {
+                    funcPool.stream()
+                            .filter(func -> func.getName().equals(context.getFuncName()))
+                            .forEach(func -> func.setParamList(new ArrayList<>()));
+                    yield null;
+                }
+                case PARAM -> {
+                    parseParam(rhs(start, 0), rhs(start, 1));
+                    yield null;
+                }
+                case LOCAL_DECL -> {
+                    parseLocalDecl(rhs(start, 0), rhs(start, 1));
+                    yield null;
+                }
+                case LOCAL_DECL_ARRAY -> throw new IRException("数组声明只能声明在全局域中，而%s不符合", (String) rhs(start, 1));
+                case COMPOUND_STMT, COMPOUND_STMT_LOCALS -> {
+                    exitScope();
+                    yield null;
+                }
+                case IF_STMT -> {
+                    addQuad(SET_LABEL, "", "", rhs(start, 3));
+                    yield null;
+                }
+                case WHILE_STMT -> {
+                    exitWhile();
+                    yield null;
+                }
+                case CONTINUE_STMT -> {
+                    parseContinueStmt();
+                    yield null;
+                }
+                case BREAK_STMT -> {
+                    parseBreakStmt();
+                    yield null;
+                }
+                case RETURN_VOID -> {
+                    parseReturnVoid(rhs(start, 0));
+                    yield null;
+                }
+                case RETURN_EXPR -> {
+                    parseReturnExpr(rhs(start, 0), rhs(start, 1));
+                    yield null;
+                }
+                case EXPR_STMT_ASSIGN -> {
+                    IRVar lhs = rhs(start, 1);
+                    addQuad(INIT_VAL, rhs(start, 2), "", lhs.getId());
+                    yield null;
+                }
+                case EXPR_STMT_ARRAY_ASSIGN -> {
+                    IRArray arr = rhs(start, 1);
+                    addQuad(INIT_ARRAY, rhs(start, 2), rhs(start, 5), arr.getId());
+                    yield null;
+                }
+                case EXPR_STMT_ADDR_ASSIGN -> {
+                    addQuad(INIT_ADDR, rhs(start, 1), rhs(start, 3), "");
+                    yield null;
+                }
+                case EXPR_STMT_CALL -> {
+                    List<String> args = rhs(start, 2);
+                    parseCall(rhs(start, 0), args, "");
+                    yield null;
+                }
+                case EXPR_STMT_CALL_VOID -> {
+                    parseCall(rhs(start, 0), List.of(), "");
+                    yield null;
+                }
+                case EXPR_PAREN -> {
+                    String res = newVarId();
+                    addQuad(INIT_VAL, rhs(start, 1), "", res);
+                    yield res;
+                }
+                case EXPR_IDENTIFIER -> {
+                    IRVar var = (IRVar) findVal(rhs(start, 0));
+                    if (!var.isHasInit()) {
+                        throw new IRException("变量未初始化：%s", var.getName());
+                    }
+                    yield var.getId();
+                }
+                case EXPR_ARRAY -> {
+                    String res = newVarId();
+                    addQuad(READ_ARRAY, findVal(rhs(start, 0)).getId(), rhs(start, 2), res);
+                    yield res;
+                }
+                // 调用函数 有参
+                case EXPR_CALL -> {
+                    List<String> args = rhs(start, 2);
+                    String res = newVarId();
+                    parseCall(rhs(start, 0), args, res);
+                    yield res;
+                }
+                // 调用函数 无参
+                case EXPR_CALL_VOID -> {
+                    String res = newVarId();
+                    parseCall(rhs(start, 0), List.of(), res);
+                    yield res;
+                }
+                case EXPR_CONSTANT -> {
+                    String res = newVarId();
+                    addQuad(INIT_CONST, rhs(start, 0), "", res);
+                    yield res;
+                }
+                case EXPR_STRING -> {
+                    String res = newVarId();
+                    addQuad(INIT_STR, rhs(start, 0), "", res);
+                    yield res;
+                }
+                // 一元运算，运算符为Token名称
+                case EXPR_NOT, EXPR_NEGATE, EXPR_POSITIVE, EXPR_ADDR, EXPR_BITINV -> {
+                    String res = newVarId();
+                    addQuad(QuadOpType.of(table.getSymbols()[table.rhsSymbol(producer, 0)]), rhs(start, 1), "", res);
+                    yield res;
+                }
+                // 二元运算，运算符为Token名称
+                case EXPR_OR, EXPR_AND, EXPR_EQ, EXPR_NE, EXPR_GT, EXPR_LT, EXPR_GE, EXPR_LE,
+                        EXPR_PLUS, EXPR_MINUS, EXPR_MULTIPLY, EXPR_SLASH, EXPR_PERCENT,
+                        EXPR_BITAND, EXPR_BITXOR, EXPR_LEFT, EXPR_RIGHT, EXPR_BITOR -> {
+                    String res = newVarId();
+                    addQuad(QuadOpType.of(table.getSymbols()[table.rhsSymbol(producer, 1)]),
+                            rhs(start, 0), rhs(start, 2), res);
+                    yield res;
+                }
+                case ARGS_SINGLE -> new ArrayList<>(List.of((String) rhs(start, 0)));
+                case ARGS_APPEND -> {
+                    List<String> args = rhs(start, 0);
+                    args.add(rhs(start, 2));
+                    yield args;
+                }
+                default -> null;
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T rhs(int start, int index) {
+            return (T) attrs[start + index];
         }
     }
 
-    private void parseFunDecl(ASTNode node) throws YaccException, IRException {
-        MiniCType retType = parseTypeSpec(node.getByIndex(1));
-        String funcName = node.getByIndex(2).getLiteral();
+    private void enterFunction(MiniCType retType, String funcName) {
         if (funcPool.stream().anyMatch(func -> func.getName().equals(funcName))) {
             throw new IRException("重复声明函数：%s", funcName);
         }
         String entryLabel = newLabel(funcName + "_entry");
         String exitLabel = newLabel(funcName + "_exit");
         // 进一层作用域
-        scopePath.add(++scopeCount);
+        enterScope();
         funcPool.add(new IRFunc(funcName, retType, entryLabel, exitLabel, false,
-                new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>(scopePath)));
-        quads.add(new Quad(SET_LABEL.getOp(), "", "", entryLabel));
-        parseParams(node.getByIndex(3), funcName);
-        if (node.getChildren().size() == 5) {
-            parseLocalDecls(node.getByIndex(4));
-            parseStmtList(node.getByIndex(5), new FuncContext(funcName, entryLabel, exitLabel));
-        } else if (node.getChildren().size() == 4) {
-            parseStmtList(node.getByIndex(4), new FuncContext(funcName, entryLabel, exitLabel));
-        }
-        // 退出作用域
-        quads.add(new Quad(SET_LABEL.getOp(), "", "", exitLabel));
-        scopePath.remove(scopePath.size() - 1);
+                new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), scopePath));
+        addQuad(SET_LABEL, "", "", entryLabel);
+        context = new FuncContext(funcName, entryLabel, exitLabel);
     }
 
-    private MiniCType parseTypeSpec(ASTNode node) {
-        return getByType(node.getByIndex(1).getLiteral());
+    private void exitFunction() {
+        // 退出作用域
+        addQuad(SET_LABEL, "", "", context.getExitLabel());
+        exitScope();
+        context = null;
     }
 
-    private void parseParams(ASTNode node, String funcName) throws YaccException, IRException {
-        if (VOID.equals(node.getByIndex(1).getName())) {
-            funcPool.stream()
-                    .filter(func -> func.getName().equals(funcName))
-                    .forEach(func -> func.setParamList(new ArrayList<>()));
+    private void parseVarDecl(MiniCType type, String name) {
+        if (type == VOID) {
+            throw new IRException("void类型变量声明：%s", name);
         }
-        if (PARAM_LIST.equals(node.getByIndex(1).getName())) {
-            parseParamList(node.getByIndex(1), funcName);
+        if (symbolTable.containsGlobal(name)) {
+            throw new IRException("重复声明变量：%s", name);
         }
+        IRVar var = new IRVar(newVarId(), name, type, globalScope, false);
+        valPool.add(var);
+        symbolTable.declareGlobal(var);
     }
 
-    private void parseParamList(ASTNode node, String funcName) throws YaccException, IRException {
-        if (PARAM_LIST.equals(node.getByIndex(1).getName())){
-            parseParamList(node.getByIndex(1), funcName);
-            parseParam(node.getByIndex(2), funcName);
-        }
-        if (PARAM.equals(node.getByIndex(1).getName())) {
-            parseParam(node.getByIndex(1), funcName);
+    private void parseArrayDecl(MiniCType type, String name, String length) {
+        int len = Integer.parseInt(length);
+        if (len <= 0) {
+            throw new IRException("数组长度错误：%s", len);
         }
+        IRArray array = new IRArray(newVarId(), name, type, globalScope, len);
+        valPool.add(array);
+        symbolTable.declareGlobal(array);
     }
 
-    private void parseParam(ASTNode node, String funcName) throws YaccException, IRException {
-        MiniCType type = parseTypeSpec(node.getByIndex(1));
-        String name = node.getByIndex(2).getLiteral();
+    private void parseParam(MiniCType type, String name) {
         if (type == VOID) {
             throw new IRException("void类型变量声明：%s", name);
         }
-        IRVar var = new IRVar(newVarId(), name, type, new ArrayList<>(scopePath), true);
+        IRVar var = new IRVar(newVarId(), name, type, scopePath, true);
         valPool.add(var);
+        symbolTable.declare(var);
         funcPool.stream()
-                .filter(func -> func.getName().equals(funcName))
+                .filter(func -> func.getName().equals(context.getFuncName()))
                 .forEach(func -> func.getParamList().add(var));
-
     }
 
-    private void parseLocalDecls(ASTNode node) throws YaccException, IRException {
-        if (LOCAL_DECL.equals(node.getByIndex(1).getName())) {
-            parseLocalDecl(node.getByIndex(1));
+    private void parseLocalDecl(MiniCType type, String name) {
+        if (type == VOID) {
+            throw new IRException("void类型变量声明：%s", name);
         }
-        if (LOCAL_DECLS.equals(node.getByIndex(1).getName())) {
-            parseLocalDecls(node.getByIndex(1));
-            parseLocalDecl(node.getByIndex(2));
+        if (symbolTable.containsLocal(name)) {
+            throw new IRException("重复声明局部变量：%s", name);
         }
+        IRVar val = new IRVar(newVarId(), name, type, scopePath, false);
+        valPool.add(val);
+        symbolTable.declare(val);
     }
 
-    private void parseLocalDecl(ASTNode node) throws IRException, YaccException {
-        if (node.getChildren().size() == 2) {
-            MiniCType type = parseTypeSpec(node.getByIndex(1));
-            String name = node.getByIndex(2).getLiteral();
-            if (type == VOID) {
-                throw new IRException("void类型变量声明：%s", name);
-            }
-            IRVar val = new IRVar(newVarId(), name, type, new ArrayList<>(scopePath), false);
-            if (valPool.stream()
-                    .anyMatch(v -> sameVal(v, val))) {
-                throw new IRException("重复声明局部变量：%s", name);
-            }
-            valPool.add(val);
-        }
-        if (node.getChildren().size() == 3) {
-            throw new IRException("数组声明只能声明在全局域中，而%s不符合", node.getByIndex(2).getLiteral());
+    private void parseContinueStmt() {
+        if (loopStack.isEmpty()) {
+            throw new IRException("continue语句不在循环中");
         }
+        addQuad(JUMP, "", "", loopStack.get(loopStack.size() - 1).getLoopLabel());
     }
 
-    private void parseStmtList(ASTNode node, FuncContext context) throws YaccException, IRException {
-        if (STMT_LIST.equals(node.getByIndex(1).getName())) {
-            parseStmtList(node.getByIndex(1), context);
-            parseStmt(node.getByIndex(2), context);
-        }
-        if (STMT.equals(node.getByIndex(1).getName())) {
-            parseStmt(node.getByIndex(1), context);
+    private void parseBreakStmt() {
+        if (loopStack.isEmpty()) {
+            throw new IRException("break语句不在循环中");
         }
+        addQuad(JUMP, "", "", loopStack.get(loopStack.size() - 1).getBreakLabel());
     }
 
-    private void parseStmt(ASTNode node, FuncContext context) throws YaccException, IRException {
-        if (EXPR_STMT.equals(node.getByIndex(1).getName())) {
-            parseExprStmt(node.getByIndex(1));
-        }
-        if (COMP_STMT.equals(node.getByIndex(1).getName())) {
-            parseCompoundStmt(node.getByIndex(1), context);
+    private void parseCall(String funcName, List<String> args, String res) {
+        if (funcName.equals("main")) {
+            throw new IRException("main函数不允许调用");
         }
-        if (IF_STMT.equals(node.getByIndex(1).getName())) {
-            parseIfStmt(node.getByIndex(1), context);
-        }
-        if (WHILE_STMT.equals(node.getByIndex(1).getName())) {
-            parseWhileStmt(node.getByIndex(1), context);
-        }
-        if (RETURN_STMT.equals(node.getByIndex(1).getName())) {
-            parseReturnStmt(node.getByIndex(1), context);
-        }
-        if (BREAK_STMT.equals(node.getByIndex(1).getName())) {
-            parseBreakStmt();
-        }
-        if (CONTINUE_STMT.equals(node.getByIndex(1).getName())) {
-            parseContinueStmt();
+        PostChecker checker1 = new PostChecker(new ArrayList<>(), new ArrayList<>());
+        checker1.addChecker(
+                val -> funcPool.stream().anyMatch(func -> func.getName().equals(val)),
+                funcName
+        );
+        checker1.setHint("未声明就调用了函数 " + funcName);
+        checker1.setLine(translator.line);
+        postChecks.add(checker1);
+        int[] argIds = new int[args.size()];
+        for (int i = 0; i < argIds.length; i++) {
+            argIds[i] = operands.intern(args.get(i));
         }
+        quads.add(Quad.call(operands, operands.intern(funcName), argIds, operands.intern(res)));
+        callInScope.add(new ScopeFunc(scopePath, funcName));
     }
 
-    private void parseContinueStmt() {
-        if (loopStack.isEmpty()) {
-            throw new IRException("continue语句不在循环中");
-        }
-        quads.add(new Quad(JUMP.getOp(), "", "", loopStack.get(loopStack.size() - 1).getLoopLabel()));
-    }
-
-    private void parseExprStmt(ASTNode node) {
-        // 变量赋值
-        if (node.match("IDENTIFIER ASSIGN expr")) {
-            IRVar lhs = (IRVar) findVal(node.getByIndex(1).getLiteral());
-            lhs.setHasInit(true);
-            String rhs = parseExpr(node.getByIndex(3));
-            quads.add(new Quad(INIT_VAL.getOp(), rhs, "", lhs.getId()));
-        }
-        // 数组赋值
-        if (node.match("IDENTIFIER expr ASSIGN expr")) {
-            IRArray arr = (IRArray) findVal(node.getByIndex(1).getLiteral());
-            String index = parseExpr(node.getByIndex(2));
-            String rhs = parseExpr(node.getByIndex(4));
-            quads.add(new Quad(INIT_ARRAY.getOp(), index, rhs, arr.getId()));
-        }
-        // 访问地址
-        if (node.match("DOLLAR expr ASSIGN expr")) {
-            String addr = parseExpr(node.getByIndex(2));
-            String rhs = parseExpr(node.getByIndex(4));
-            quads.add(new Quad(INIT_ADDR.getOp(), addr, rhs, ""));
-        }
-        // 调函数
-        if (node.match("IDENTIFIER args")) {
-            List<String> args = parseArgs(node.getByIndex(2));
-            String funcName = node.getByIndex(1).getLiteral();
-            if (funcName.equals("main")) {
-                throw new IRException("main函数不允许调用");
-            }
-            PostChecker checker1 = new PostChecker(new ArrayList<>(), new ArrayList<>());
-            checker1.addChecker(
-                    val -> funcPool.stream().anyMatch(func -> func.getName().equals(val)),
-                    funcName
-            );
-            checker1.setHint("未声明就调用了函数 " + funcName);
-            postChecks.add(checker1);
-            quads.add(new Quad(CALL_FUNC.getOp(), funcName, String.join("&", args), ""));
-            callInScope.add(new ScopeFunc(new ArrayList<>(scopePath), funcName));
-        }
-        // 调函数 无参
-        if (node.match("IDENTIFIER LPAREN RPAREN")) {
-            String funcName = node.getByIndex(1).getLiteral();
-            if (funcName.equals("main")) {
-                throw new IRException("main函数不允许调用");
-            }
-            PostChecker checker1 = new PostChecker(new ArrayList<>(), new ArrayList<>());
-            checker1.addChecker(
-                    val -> funcPool.stream().anyMatch(func -> func.getName().equals(val)),
-                    funcName
-            );
-            checker1.setHint("未声明就调用了函数 " + funcName);
-            postChecks.add(checker1);
-            quads.add(new Quad(CALL_FUNC.getOp(), funcName, "", ""));
-            callInScope.add(new ScopeFunc(new ArrayList<>(scopePath), funcName));
-        }
-    }
-
-    private String parseExpr(ASTNode node) {
-        if (node.match("LPAREN expr RPAREN")) {
-            String op = parseExpr(node.getByIndex(2));
-            String res = newVarId();
-            quads.add(new Quad(INIT_VAL.getOp(), op, "", res));
-            return res;
-        }
-        if (node.match("IDENTIFIER")) {
-            IRVar var = (IRVar) findVal(node.getByIndex(1).getLiteral());
-            if (!var.isHasInit()) {
-                throw new IRException("变量未初始化：%s", var.getName());
-            }
-            return var.getId();
-        }
-        if (node.match("IDENTIFIER expr")) {
-            String index = parseExpr(node.getByIndex(2));
-            String name = node.getByIndex(1).getLiteral();
-            String res = newVarId();
-            quads.add(new Quad(READ_ARRAY.getOp(), findVal(name).getId(), index, res));
-            return res;
-        }
-        // 调用函数 有参
-        if (node.match("IDENTIFIER args")) {
-            List<String> args = parseArgs(node.getByIndex(2));
-            String funcName = node.getByIndex(1).getLiteral();
-            if (funcName.equals("main")) {
-                throw new IRException("main函数不允许调用");
-            }
-            PostChecker checker1 = new PostChecker(new ArrayList<>(), new ArrayList<>());
-            checker1.addChecker(
-                    val -> funcPool.stream().anyMatch(func -> func.getName().equals(val)),
-                    funcName
-            );
-            checker1.setHint("未声明就调用了函数 " + funcName);
-            postChecks.add(checker1);
-            String res = newVarId();
-            quads.add(new Quad(CALL_FUNC.getOp(), funcName, String.join("&", args), res));
-            callInScope.add(new ScopeFunc(new ArrayList<>(scopePath), funcName));
-            return res;
-        }
-        // 调用函数 无参
-        if (node.match("IDENTIFIER LPAREN RPAREN")) {
-            String funcName = node.getByIndex(1).getLiteral();
-            if (funcName.equals("main")) {
-                throw new IRException("main函数不允许调用");
-            }
-            PostChecker checker1 = new PostChecker(new ArrayList<>(), new ArrayList<>());
-            checker1.addChecker(
-                    val -> funcPool.stream().anyMatch(func -> func.getName().equals(val)),
-                    funcName
-            );
-            checker1.setHint("未声明就调用了函数 " + funcName);
-            postChecks.add(checker1);
-            String res = newVarId();
-            quads.add(new Quad(CALL_FUNC.getOp(), funcName, "", res));
-            callInScope.add(new ScopeFunc(new ArrayList<>(scopePath), funcName));
-            return res;
-        }
-        // 常量
-        if (node.match("CONSTANT")) {
-            String res = newVarId();
-            quads.add(new Quad(INIT_CONST.getOp(), node.getByIndex(1).getLiteral(), "", res));
-            return res;
-        }
-        // 字符串字面量
-        if (node.match("STRING_LITERAL")) {
-            String res = newVarId();
-            quads.add(new Quad(INIT_STR.getOp(), node.getByIndex(1).getLiteral(), "", res));
-            return res;
-        }
-        // 处理二元运算
-        if (node.getChildren().size() == 3 && node.getByIndex(1).getName().equals("expr") && node.getByIndex(3).getName().equals("expr")) {
-            String op1 = parseExpr(node.getByIndex(1));
-            String op2 = parseExpr(node.getByIndex(3));
-            String op = node.getByIndex(2).getName();
-            String res = newVarId();
-            quads.add(new Quad(op, op1, op2, res));
-            return res;
-        }
-        // 处理一元运算
-        if (node.getChildren().size() == 2) {
-            String op1 = parseExpr(node.getByIndex(2));
-            String op = node.getByIndex(1).getName();
-            String res = newVarId();
-            quads.add(new Quad(op, op1, "", res));
-            return res;
-        }
-        throw new IRException("未知表达式类型：%s", node.getName());
-    }
-
-    private List<String> parseArgs(ASTNode node) {
-        List<String> args = new ArrayList<>();
-        if (EXPR.equals(node.getByIndex(1).getName())) {
-            args.add(parseExpr(node.getByIndex(1)));
-            return args;
-        }
-        if (ARGS.equals(node.getByIndex(1).getName())) {
-            args.addAll(parseArgs(node.getByIndex(1)));
-            args.add(parseExpr(node.getByIndex(2)));
-            return args;
-        }
-        return args;
-    }
-
-    private void parseCompoundStmt(ASTNode node, FuncContext context) {
-        scopePath.add(++scopeCount);
-        if (node.getChildren().size() == 2) {
-            parseLocalDecls(node.getByIndex(1));
-            parseStmtList(node.getByIndex(2), context);
-        } else if (node.getChildren().size() == 1) {
-            parseStmtList(node.getByIndex(1), context);
-        }
-        scopePath.remove(scopePath.size() - 1);
-    }
-
-    private void parseIfStmt(ASTNode node, FuncContext context) {
-        String expr = parseExpr(node.getByIndex(1));
+    // 条件为假时跳过if语句体，返回语句体之后的标号
+    private String enterIf(String expr) {
         String trueLabel = newLabel("true");
         String falseLabel = newLabel("false");
-        quads.add(new Quad(SET_LABEL.getOp(), "", "", trueLabel));
-        quads.add(new Quad(J_FALSE.getOp(), expr, "", falseLabel));
-        parseStmt(node.getByIndex(2), context);
-        quads.add(new Quad(SET_LABEL.getOp(), "", "", falseLabel));
+        addQuad(SET_LABEL, "", "", trueLabel);
+        addQuad(J_FALSE, expr, "", falseLabel);
+        return falseLabel;
     }
 
-    private void parseWhileStmt(ASTNode node, FuncContext context) {
+    private void enterWhile() {
         String loopLabel = newLabel("loop");
         String breakLabel = newLabel("break");
         loopStack.add(new LoopEntry(loopLabel, breakLabel));
-        quads.add(new Quad(SET_LABEL.getOp(), "", "", loopLabel));
-        String expr = parseExpr(node.getByIndex(1));
-        quads.add(new Quad(J_FALSE.getOp(), expr, "", breakLabel));
-        parseStmt(node.getByIndex(2), context);
-        quads.add(new Quad(JUMP.getOp(), "", "", loopLabel));
-        quads.add(new Quad(SET_LABEL.getOp(), "", "", breakLabel));
-        loopStack.remove(loopStack.size() - 1);
+        addQuad(SET_LABEL, "", "", loopLabel);
+    }
+
+    private void exitWhile() {
+        LoopEntry loop = loopStack.remove(loopStack.size() - 1);
+        addQuad(JUMP, "", "", loop.getLoopLabel());
+        addQuad(SET_LABEL, "", "", loop.getBreakLabel());
     }
 
-    private void parseReturnStmt(ASTNode node, FuncContext context) {
+    // 返回值检查在返回表达式之前登记，返回其在postChecks中的下标
+    private int enterReturn() {
         funcPool.stream()
                 .filter(func -> func.getName().equals(context.getFuncName()))
                 .forEach(func -> func.setHasReturn(true));
-        if (node.getChildren().isEmpty()) {
-            PostChecker checker = new PostChecker(new ArrayList<>(), new ArrayList<>());
-            checker.addChecker(
-                    val -> funcPool.stream().anyMatch(func -> func.getName().equals(val) && func.getRetType() == VOID),
-                    context.getFuncName()
-                    );
-            checker.setHint("函数 " + context.getFuncName() + " 无返回值");
-            postChecks.add(checker);
-            quads.add(new Quad(RETURN_VOID.getOp(), "", "", context.getExitLabel()));
-        }
-        if (node.getChildren().size() == 1) {
-            PostChecker checker = new PostChecker(new ArrayList<>(), new ArrayList<>());
-            checker.addChecker(
-                    val -> funcPool.stream().anyMatch(func -> func.getName().equals(val) && func.getRetType() != VOID),
-                    context.getFuncName()
-            );
-            checker.setHint("函数 " + context.getFuncName() + " 返回类型为void， 却有返回值");
-            postChecks.add(checker);
-            String expr = parseExpr(node.getByIndex(1));
-            quads.add(new Quad(RETURN_EXPR.getOp(), expr, "", context.getExitLabel()));
-        }
+        postChecks.add(null);
+        return postChecks.size() - 1;
+    }
+
+    private void parseReturnVoid(int checkIndex) {
+        PostChecker checker = new PostChecker(new ArrayList<>(), new ArrayList<>());
+        checker.addChecker(
+                val -> funcPool.stream().anyMatch(func -> func.getName().equals(val) && func.getRetType() == VOID),
+                context.getFuncName()
+                );
+        checker.setHint("函数 " + context.getFuncName() + " 无返回值");
+        checker.setLine(translator.line);
+        postChecks.set(checkIndex, checker);
+        addQuad(RETURN_VOID, "", "", context.getExitLabel());
+    }
+
+    private void parseReturnExpr(int checkIndex, String expr) {
+        PostChecker checker = new PostChecker(new ArrayList<>(), new ArrayList<>());
+        checker.addChecker(
+                val -> funcPool.stream().anyMatch(func -> func.getName().equals(val) && func.getRetType() != VOID),
+                context.getFuncName()
+        );
+        checker.setHint("函数 " + context.getFuncName() + " 返回类型为void， 却有返回值");
+        checker.setLine(translator.line);
+        postChecks.set(checkIndex, checker);
+        addQuad(RETURN_EXPR, expr, "", context.getExitLabel());
     }
 
-    private void parseBreakStmt() {
-        if (loopStack.isEmpty()) {
-            throw new IRException("break语句不在循环中");
-        }
-        quads.add(new Quad(JUMP.getOp(), "", "", loopStack.get(loopStack.size() - 1).getBreakLabel()));
-    }
-
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("函数池：\n");
+    /**
+     * 逐行写出函数池、变量池与四元式，不拼接完整的字符串
+     */
+    public void write(Writer writer) throws IOException {
+        writer.write("函数池：\n");
         for (IRFunc func : funcPool) {
-            sb.append(func);
-            sb.append("\n");
+            writer.write(String.valueOf(func));
+            writer.write('\n');
         }
 
-        sb.append("函数调用域：\n");
+        writer.write("函数调用域：\n");
         for (ScopeFunc call : callInScope) {
-            sb.append(call);
-            sb.append("\n");
+            writer.write(String.valueOf(call));
+            writer.write('\n');
         }
 
-        sb.append("全局变量：\n");
+        writer.write("全局变量：\n");
         for (AbstractIRVal val : valPool) {
-            if (sameScope(val.getScope(), GLOBAL_SCOPE)) {
-                sb.append(val);
-                sb.append("\n");
+            if (val.getScope() == globalScope) {
+                writer.write(String.valueOf(val));
+                writer.write('\n');
             }
         }
 
-        sb.append("变量池：\n");
+        writer.write("变量池：\n");
         for (AbstractIRVal val : valPool) {
-            sb.append(val);
-            sb.append("\n");
+            writer.write(String.valueOf(val));
+            writer.write('\n');
         }
 
-        sb.append("四元式：\n");
+        writer.write("四元式：\n");
         for (Quad quad : quads) {
-            sb.append(quad);
-            sb.append("\n");
+            writer.write(String.valueOf(quad));
+            writer.write('\n');
         }
+    }
 
-        return sb.toString();
+    public String toString() {
+        StringWriter writer = new StringWriter();
+        try {
+            write(writer);
+        } catch (IOException e) {
+            // StringWriter 不会抛出
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
     }
 
     public List<AbstractIRVal> getGlobalVars() {
         return valPool.stream()
-                .filter(val -> sameScope(val.getScope(), GLOBAL_SCOPE))
+                .filter(val -> val.getScope() == globalScope)
                 .toList();
     }
 
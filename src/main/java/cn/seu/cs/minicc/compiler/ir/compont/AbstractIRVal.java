@@ -4,8 +4,6 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.util.List;
-
 /**
  * @author Shuxin Wang <shuxinwang662@gmail.com>
  * Created on 2023/12/21
@@ -17,5 +15,5 @@ public abstract class AbstractIRVal {
     protected String id;
     protected String name;
     protected MiniCType type;
-    protected List<Integer> scope;
+    protected Scope scope;
 }
@@ -14,4 +14,11 @@ import java.util.List;
 public class BasicBlock {
     private Integer id;
     private List<Quad> content;
+    // 首条四元式在四元式列表中的下标
+    private int start;
+    // 后继与前驱基本块的编号
+    private int[] successors;
+    private int[] predecessors;
+    // 逆后序编号，从函数入口不可达时为-1
+    private int rpo;
 }
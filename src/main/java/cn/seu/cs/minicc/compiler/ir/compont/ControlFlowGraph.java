@@ -0,0 +1,322 @@
+package cn.seu.cs.minicc.compiler.ir.compont;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static cn.seu.cs.minicc.compiler.ir.compont.QuadOpType.*;
+
+/**
+ * 控制流图
+ * <p>
+ * 先登记各标号所在的四元式下标，再一遍扫描划分基本块，跳转的目标直接查表，整体为线性时间。
+ * 基本块的首条四元式为：第一条四元式、函数入口标号、跳转与返回的目标标号以及每条跳转与返回之后的四元式，
+ * 因此块内只有末条四元式可能转移控制。末条四元式为跳转或返回时连向其目标所在的块，
+ * 不是无条件跳转或返回时连向下一块，函数之间不连边。
+ * 各函数的四元式连续存放，从入口标号开始；逆后序从各函数的入口块出发，按函数池的顺序依次编号。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+@Getter
+public class ControlFlowGraph {
+    private static final int[] NO_BLOCKS = new int[0];
+
+    private final List<Quad> quads;
+    private final Operands operands;
+    private final List<BasicBlock> blocks;
+    // 按逆后序排列的基本块编号，不含不可达的块
+    private final int[] reversePostorder;
+    // 逆后序之后接上不可达的块，数据流分析按此顺序初始化工作表
+    @Getter(AccessLevel.NONE)
+    private final int[] order;
+    // 标号的操作数编号 -> 所在四元式的下标，不是标号时为-1
+    @Getter(AccessLevel.NONE)
+    private final int[] labelIndex;
+    // 四元式下标 -> 所在基本块的编号
+    @Getter(AccessLevel.NONE)
+    private final int[] blockOf;
+    // 各函数的首条四元式下标，末尾为四元式总数；第一个入口标号之前的四元式单独算作一个函数
+    @Getter(AccessLevel.NONE)
+    private final int[] funcStarts;
+    @Getter(AccessLevel.NONE)
+    private final int[] funcOfBlock;
+    // 函数名 -> 入口块与出口块的编号
+    @Getter(AccessLevel.NONE)
+    private final Map<String, int[]> funcBlocks = new HashMap<>();
+
+    public ControlFlowGraph(List<Quad> quads, List<IRFunc> funcs, Operands operands) {
+        this.quads = quads;
+        this.operands = operands;
+        int n = quads.size();
+        labelIndex = new int[operands.size()];
+        Arrays.fill(labelIndex, -1);
+        for (int i = 0; i < n; i++) {
+            Quad quad = quads.get(i);
+            if (quad.getOp() == SET_LABEL && labelIndex[quad.getRes()] < 0) {
+                labelIndex[quad.getRes()] = i;
+            }
+        }
+
+        // 函数的划分
+        boolean[] funcStart = new boolean[n + 1];
+        funcStart[0] = n > 0;
+        for (IRFunc func : funcs) {
+            int index = labelIndex(operands.find(func.getEntryLabel()));
+            if (index >= 0) {
+                funcStart[index] = true;
+            }
+        }
+        int funcCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (funcStart[i]) {
+                funcCount++;
+            }
+        }
+        funcStarts = new int[funcCount + 1];
+        for (int i = 0, k = 0; i < n; i++) {
+            if (funcStart[i]) {
+                funcStarts[k++] = i;
+            }
+        }
+        funcStarts[funcCount] = n;
+
+        // 划分基本块
+        boolean[] leaders = new boolean[n + 1];
+        for (int i = 0; i < n; i++) {
+            Quad quad = quads.get(i);
+            if (funcStart[i]) {
+                leaders[i] = true;
+            }
+            if (isTransfer(quad.getOp())) {
+                int target = labelIndex[quad.getRes()];
+                if (target >= 0) {
+                    leaders[target] = true;
+                }
+                leaders[i + 1] = true;
+            }
+        }
+        blocks = new ArrayList<>();
+        blockOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (leaders[i]) {
+                int end = i + 1;
+                while (end < n && !leaders[end]) {
+                    end++;
+                }
+                blocks.add(new BasicBlock(blocks.size(), new ArrayList<>(quads.subList(i, end)), i,
+                        NO_BLOCKS, NO_BLOCKS, -1));
+            }
+            blockOf[i] = blocks.size() - 1;
+        }
+        funcOfBlock = new int[blocks.size()];
+        for (int b = 0, f = 0; b < blocks.size(); b++) {
+            while (f + 1 < funcCount && funcStarts[f + 1] <= blocks.get(b).getStart()) {
+                f++;
+            }
+            funcOfBlock[b] = f;
+        }
+
+        // 连边，只看末条四元式
+        int[] predCounts = new int[blocks.size()];
+        for (BasicBlock block : blocks) {
+            int lastIndex = block.getStart() + block.getContent().size() - 1;
+            Quad last = quads.get(lastIndex);
+            int target = -1, next = -1;
+            if (isTransfer(last.getOp()) && labelIndex[last.getRes()] >= 0) {
+                target = blockOf[labelIndex[last.getRes()]];
+            }
+            if (last.getOp() != JUMP && last.getOp() != RETURN_VOID && last.getOp() != RETURN_EXPR
+                    && lastIndex + 1 < n && !funcStart[lastIndex + 1]) {
+                next = block.getId() + 1;
+            }
+            if (target == next) {
+                next = -1;
+            }
+            int[] succs = target < 0 ? (next < 0 ? NO_BLOCKS : new int[]{next})
+                    : (next < 0 ? new int[]{target} : new int[]{target, next});
+            block.setSuccessors(succs);
+            for (int succ : succs) {
+                predCounts[succ]++;
+            }
+        }
+        for (BasicBlock block : blocks) {
+            block.setPredecessors(predCounts[block.getId()] == 0 ? NO_BLOCKS : new int[predCounts[block.getId()]]);
+            predCounts[block.getId()] = 0;
+        }
+        for (BasicBlock block : blocks) {
+            for (int succ : block.getSuccessors()) {
+                blocks.get(succ).getPredecessors()[predCounts[succ]++] = block.getId();
+            }
+        }
+
+        // 各函数的入口与出口
+        for (IRFunc func : funcs) {
+            int entry = labelIndex(operands.find(func.getEntryLabel()));
+            int exit = labelIndex(operands.find(func.getExitLabel()));
+            if (entry >= 0 && exit >= 0) {
+                funcBlocks.put(func.getName(), new int[]{blockOf[entry], blockOf[exit]});
+            }
+        }
+        reversePostorder = numberReversePostorder(funcs);
+        order = Arrays.copyOf(reversePostorder, blocks.size());
+        for (int b = 0, k = reversePostorder.length; b < blocks.size(); b++) {
+            if (blocks.get(b).getRpo() < 0) {
+                order[k++] = b;
+            }
+        }
+    }
+
+    private static boolean isTransfer(QuadOpType op) {
+        return op == JUMP || op == J_FALSE || op == RETURN_VOID || op == RETURN_EXPR;
+    }
+
+    // 从各函数入口深度优先遍历，函数内的后序逆置后依次拼接
+    private int[] numberReversePostorder(List<IRFunc> funcs) {
+        int[] order = new int[blocks.size()];
+        int count = 0;
+        boolean[] visited = new boolean[blocks.size()];
+        int[] stack = new int[blocks.size()];
+        int[] nextSucc = new int[blocks.size()];
+        for (IRFunc func : funcs) {
+            int[] range = funcBlocks.get(func.getName());
+            if (range == null || visited[range[0]]) {
+                continue;
+            }
+            int first = count;
+            int top = 0;
+            stack[0] = range[0];
+            visited[range[0]] = true;
+            while (top >= 0) {
+                int block = stack[top];
+                int[] succs = blocks.get(block).getSuccessors();
+                if (nextSucc[block] < succs.length) {
+                    int succ = succs[nextSucc[block]++];
+                    if (!visited[succ]) {
+                        visited[succ] = true;
+                        stack[++top] = succ;
+                    }
+                } else {
+                    order[count++] = block;
+                    top--;
+                }
+            }
+            for (int i = first, j = count - 1; i < j; i++, j--) {
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            blocks.get(order[i]).setRpo(i);
+        }
+        return Arrays.copyOf(order, count);
+    }
+
+    /**
+     * 标号所在四元式的下标，标号未出现时为-1
+     *
+     * @param label 标号的操作数编号
+     */
+    public int labelIndex(int label) {
+        return label >= 0 && label < labelIndex.length ? labelIndex[label] : -1;
+    }
+
+    /**
+     * 四元式所在的基本块
+     */
+    public BasicBlock blockOf(int quadIndex) {
+        return blocks.get(blockOf[quadIndex]);
+    }
+
+    /**
+     * 四元式所在基本块的编号
+     */
+    public int blockIdOf(int quadIndex) {
+        return blockOf[quadIndex];
+    }
+
+    public int blockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * 基本块首条四元式的下标
+     */
+    public int start(int block) {
+        return blocks.get(block).getStart();
+    }
+
+    /**
+     * 基本块末条四元式之后的下标
+     */
+    public int end(int block) {
+        BasicBlock basicBlock = blocks.get(block);
+        return basicBlock.getStart() + basicBlock.getContent().size();
+    }
+
+    public int[] successors(int block) {
+        return blocks.get(block).getSuccessors();
+    }
+
+    public int[] predecessors(int block) {
+        return blocks.get(block).getPredecessors();
+    }
+
+    /**
+     * 按逆后序排列的基本块，不可达的块排在最后
+     */
+    public int[] order() {
+        return order;
+    }
+
+    /**
+     * 函数划分的个数，第一个入口标号之前有四元式时多出一个
+     */
+    public int funcCount() {
+        return funcStarts.length - 1;
+    }
+
+    public int funcStart(int func) {
+        return funcStarts[func];
+    }
+
+    public int funcEnd(int func) {
+        return funcStarts[func + 1];
+    }
+
+    /**
+     * 基本块所在的函数划分
+     */
+    public int funcOf(int block) {
+        return funcOfBlock[block];
+    }
+
+    /**
+     * 四元式所在的函数划分
+     */
+    public int funcOfQuad(int quadIndex) {
+        return funcOfBlock[blockOf[quadIndex]];
+    }
+
+    /**
+     * 函数的入口块，函数没有四元式时为null
+     */
+    public BasicBlock entry(IRFunc func) {
+        int[] range = funcBlocks.get(func.getName());
+        return range == null ? null : blocks.get(range[0]);
+    }
+
+    /**
+     * 函数出口标号所在的块，函数没有四元式时为null
+     */
+    public BasicBlock exit(IRFunc func) {
+        int[] range = funcBlocks.get(func.getName());
+        return range == null ? null : blocks.get(range[1]);
+    }
+}
@@ -4,8 +4,6 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
-import java.util.List;
-
 /**
  * @author Shuxin Wang <shuxinwang662@gmail.com>
  * Created on 2023/12/21
@@ -16,7 +14,7 @@ import java.util.List;
 public class IRArray extends AbstractIRVal{
     private Integer len;
 
-    public IRArray(String s, String name, MiniCType type, List<Integer>scope, Integer len) {
+    public IRArray(String s, String name, MiniCType type, Scope scope, Integer len) {
         super(s, name, type, scope);
         this.len = len;
     }
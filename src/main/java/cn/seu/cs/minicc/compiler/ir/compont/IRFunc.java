@@ -23,7 +23,7 @@ public class IRFunc {
     private List<IRVar> paramList;
     private List<AbstractIRVal> localVars;
     private List<String> childFunctions;
-    private List<Integer> scopePath;
+    private Scope scopePath;
 
     public String toString() {
         return "\tname: " + name + "\n" +
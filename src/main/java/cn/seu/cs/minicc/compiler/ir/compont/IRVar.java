@@ -5,8 +5,6 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
-import java.util.List;
-
 /**
  * @author Shuxin Wang <shuxinwang662@gmail.com>
  * Created on 2023/12/21
@@ -17,8 +15,8 @@ import java.util.List;
 public class IRVar extends AbstractIRVal{
     private boolean hasInit;
 
-    public IRVar(String s, String name, MiniCType type, List<Integer> scopePath, boolean b) {
-        super(s, name, type, scopePath);
+    public IRVar(String s, String name, MiniCType type, Scope scope, boolean b) {
+        super(s, name, type, scope);
         this.hasInit = b;
     }
 
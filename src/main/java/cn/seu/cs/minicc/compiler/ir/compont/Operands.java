@@ -0,0 +1,67 @@
+package cn.seu.cs.minicc.compiler.ir.compont;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 四元式的操作数表
+ * <p>
+ * 变量、常量、字符串与标号按首次出现的顺序编号，四元式中只保存编号，同一操作数的编号相同。
+ * 编号0为空操作数。以变量前缀开头的操作数在登记时记为变量，各遍不再比较前缀。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public class Operands {
+    public static final int NONE = 0;
+    private static final int MIN_CAPACITY = 64;
+
+    private final String varPrefix;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[MIN_CAPACITY];
+    private boolean[] vars = new boolean[MIN_CAPACITY];
+    private int size;
+
+    public Operands(String varPrefix) {
+        this.varPrefix = varPrefix;
+        intern("");
+    }
+
+    /**
+     * 操作数的编号，首次出现时登记
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            vars = Arrays.copyOf(vars, size * 2);
+        }
+        names[size] = name;
+        vars[size] = name.startsWith(varPrefix);
+        ids.put(name, size);
+        return size++;
+    }
+
+    /**
+     * 已登记的操作数的编号，未登记时为-1
+     */
+    public int find(String name) {
+        return ids.getOrDefault(name, -1);
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public boolean isVar(int id) {
+        return vars[id];
+    }
+
+    public int size() {
+        return size;
+    }
+}
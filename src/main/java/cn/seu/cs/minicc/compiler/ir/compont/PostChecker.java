@@ -16,6 +16,8 @@ public class PostChecker {
     private List<Predicate<Object>> checkers;
     private List<Object> params;
     private String hint;
+    // 登记检查时所在的行，未知时为0
+    private int line;
 
     public PostChecker(List<Predicate<Object>> checkers, List<Object> params) {
         this.checkers = checkers;
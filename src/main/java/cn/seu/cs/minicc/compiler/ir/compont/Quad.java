@@ -1,23 +1,96 @@
 package cn.seu.cs.minicc.compiler.ir.compont;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Getter;
 
 /**
+ * 四元式
+ * <p>
+ * 操作数为 Operands 中的编号，空操作数为 Operands.NONE。函数调用的实参依次存放在 args 中，arg2 为空。
+ *
  * @author Shuxin Wang <shuxinwang662@gmail.com>
  * Created on 2023/12/21
  */
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+@Getter
 public class Quad {
-    private String op;
-    private String arg1;
-    private String arg2;
-    private String res;
+    private static final int[] NO_ARGS = new int[0];
+
+    private final Operands operands;
+    private final QuadOpType op;
+    private final int arg1;
+    private final int arg2;
+    private final int res;
+    private final int[] args;
+
+    public Quad(Operands operands, QuadOpType op, int arg1, int arg2, int res) {
+        this(operands, op, arg1, arg2, res, NO_ARGS);
+    }
+
+    private Quad(Operands operands, QuadOpType op, int arg1, int arg2, int res, int[] args) {
+        this.operands = operands;
+        this.op = op;
+        this.arg1 = arg1;
+        this.arg2 = arg2;
+        this.res = res;
+        this.args = args;
+    }
+
+    /**
+     * 函数调用，res 为空时不取返回值
+     */
+    public static Quad call(Operands operands, int func, int[] args, int res) {
+        return new Quad(operands, QuadOpType.CALL_FUNC, func, Operands.NONE, res, args);
+    }
+
+    /**
+     * SSA形式的 phi 函数，第 k 个实参为从所在基本块的第 k 个前驱到达时的值
+     */
+    public static Quad phi(Operands operands, int[] args, int res) {
+        return new Quad(operands, QuadOpType.PHI, Operands.NONE, Operands.NONE, res, args);
+    }
+
+    /**
+     * 运算符相同、操作数替换后的四元式
+     */
+    public Quad replace(int arg1, int arg2, int res, int[] args) {
+        return new Quad(operands, op, arg1, arg2, res, args);
+    }
+
+    /**
+     * 定值的变量，没有时为 Operands.NONE。数组元素的赋值不是对数组变量的定值
+     */
+    public int def() {
+        return switch (op) {
+            case INIT_ARRAY, INIT_ADDR, SET_LABEL, J_FALSE, JUMP, RETURN_VOID, RETURN_EXPR, OUT_ASM -> Operands.NONE;
+            default -> operands.isVar(res) ? res : Operands.NONE;
+        };
+    }
+
+    /**
+     * 是否以 id 为实参
+     */
+    public boolean hasArg(int id) {
+        for (int arg : args) {
+            if (arg == id) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     public String toString() {
-        return "\t(" + op + ", " + arg1 + ", " + arg2 + ", " + res + ")";
+        StringBuilder sb = new StringBuilder("\t(").append(op.getOp())
+                .append(", ").append(operands.name(arg1))
+                .append(", ");
+        if (args.length == 0) {
+            sb.append(operands.name(arg2));
+        } else {
+            for (int i = 0; i < args.length; i++) {
+                if (i > 0) {
+                    sb.append('&');
+                }
+                sb.append(operands.name(args[i]));
+            }
+        }
+        return sb.append(", ").append(operands.name(res)).append(')').toString();
     }
 }
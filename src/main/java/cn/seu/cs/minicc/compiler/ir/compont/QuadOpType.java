@@ -3,9 +3,14 @@ package cn.seu.cs.minicc.compiler.ir.compont;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
-import java.util.List;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 /**
+ * 四元式的操作符，运算符的名称与词法分析的Token名称一致
+ *
  * @author Shuxin Wang <shuxinwang662@gmail.com>
  * Created on 2023/12/21
  */
@@ -29,35 +34,107 @@ public enum QuadOpType {
 
     CALL_FUNC("call"),
 
+    OUT_ASM("out_asm"),
+
+    // 只出现在SSA形式中
+    PHI("phi"),
+
+    OR_OP("OR_OP"),
+    AND_OP("AND_OP"),
+    EQ_OP("EQ_OP"),
+    NE_OP("NE_OP"),
+    GT_OP("GT_OP"),
+    LT_OP("LT_OP"),
+    GE_OP("GE_OP"),
+    LE_OP("LE_OP"),
+    PLUS("PLUS"),
+    MINUS("MINUS"),
+    MULTIPLY("MULTIPLY"),
+    SLASH("SLASH"),
+    PERCENT("PERCENT"),
+    BITAND_OP("BITAND_OP"),
+    BITOR_OP("BITOR_OP"),
+    BITXOR_OP("BITXOR_OP"),
+    LEFT_OP("LEFT_OP"),
+    RIGHT_OP("RIGHT_OP"),
+    NOT_OP("NOT_OP"),
+    BITINV_OP("BITINV_OP"),
+    DOLLAR("DOLLAR"),
+
     ;
     final String op;
 
-    public static final List<String> OPTIMIZE_OP_LIST = List.of(
-            "=var",
-            "OR_OP",
-            "AND_OP",
-            "EQ_OP",
-            "NE_OP",
-            "GT_OP",
-            "LT_OP",
-            "GE_OP",
-            "LE_OP",
-            "PLUS",
-            "MINUS",
-            "MULTIPLY",
-            "SLASH",
-            "PERCENT",
-            "BITAND_OP",
-            "BITOR_OP",
-            "LEFT_OP",
-            "RIGHT_OP",
-            "NOT_OP",
-            "MINUS",
-            "PLUS",
-            "BITINV_OP"
+    /**
+     * 常量传播与折叠中可展开的操作
+     */
+    public static final Set<QuadOpType> OPTIMIZE_OPS = EnumSet.of(
+            INIT_VAL,
+            OR_OP,
+            AND_OP,
+            EQ_OP,
+            NE_OP,
+            GT_OP,
+            LT_OP,
+            GE_OP,
+            LE_OP,
+            PLUS,
+            MINUS,
+            MULTIPLY,
+            SLASH,
+            PERCENT,
+            BITAND_OP,
+            BITOR_OP,
+            LEFT_OP,
+            RIGHT_OP,
+            NOT_OP,
+            BITINV_OP
+    );
+
+    /**
+     * 结果只由操作数决定、没有副作用的一元与二元运算，操作数相同时计算结果相同
+     */
+    public static final Set<QuadOpType> EXPRESSION_OPS = EnumSet.of(
+            OR_OP,
+            AND_OP,
+            EQ_OP,
+            NE_OP,
+            GT_OP,
+            LT_OP,
+            GE_OP,
+            LE_OP,
+            PLUS,
+            MINUS,
+            MULTIPLY,
+            SLASH,
+            PERCENT,
+            BITAND_OP,
+            BITOR_OP,
+            BITXOR_OP,
+            LEFT_OP,
+            RIGHT_OP,
+            NOT_OP,
+            BITINV_OP
     );
 
-    public boolean equals(String op) {
-        return this.op.equals(op);
+    /**
+     * 目标代码生成中单独分配寄存器的操作
+     */
+    public static final Set<QuadOpType> INIT_OPS = EnumSet.of(
+            INIT_ADDR, CALL_FUNC, J_FALSE, INIT_VAL, INIT_CONST, INIT_ARRAY, READ_ARRAY
+    );
+
+    private static final Map<String, QuadOpType> BY_OP = new HashMap<>();
+
+    static {
+        for (QuadOpType type : values()) {
+            BY_OP.put(type.op, type);
+        }
+    }
+
+    /**
+     * 由操作符名称或Token名称查找，不存在时为null
+     */
+    public static QuadOpType of(String op) {
+        return BY_OP.get(op);
     }
 }
@@ -0,0 +1,90 @@
+package cn.seu.cs.minicc.compiler.ir.compont;
+
+import lombok.Getter;
+
+/**
+ * 作用域树中的作用域
+ * <p>
+ * 每个作用域只创建一次，比较作用域是否相同只需比较引用。作用域编号按创建顺序递增，
+ * 即作用域树的先序编号，因此一个作用域的子树恰为编号区间 [id, last]，包含关系可在常数时间内判断。
+ * 作用域关闭前其后创建的作用域都在其子树中，last 取最大值。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+@Getter
+public final class Scope {
+    private final int id;
+    private final Scope parent;
+    private final int depth;
+    // 子树中最大的作用域编号
+    private int last = Integer.MAX_VALUE;
+
+    private Scope(int id, Scope parent) {
+        this.id = id;
+        this.parent = parent;
+        this.depth = parent == null ? 0 : parent.depth + 1;
+    }
+
+    /**
+     * 全局作用域，编号为0
+     */
+    public static Scope global() {
+        return new Scope(0, null);
+    }
+
+    /**
+     * 创建子作用域，编号须大于此前创建的所有作用域
+     */
+    public Scope child(int id) {
+        return new Scope(id, this);
+    }
+
+    /**
+     * 关闭作用域，此后不再创建其子作用域
+     *
+     * @param lastId 目前为止最大的作用域编号
+     */
+    public void close(int lastId) {
+        this.last = lastId;
+    }
+
+    /**
+     * scope 是否为本作用域或其子孙
+     */
+    public boolean contains(Scope scope) {
+        return id <= scope.id && scope.id <= last;
+    }
+
+    /**
+     * 深度为 depth 的祖先，本作用域更浅时为null
+     */
+    public Scope ancestor(int depth) {
+        Scope scope = this;
+        while (scope != null && scope.depth > depth) {
+            scope = scope.parent;
+        }
+        return scope != null && scope.depth == depth ? scope : null;
+    }
+
+    /**
+     * 从全局作用域到本作用域的编号序列，形如 [0, 1, 3]
+     */
+    @Override
+    public String toString() {
+        int[] path = new int[depth + 1];
+        Scope scope = this;
+        for (int i = depth; i >= 0; i--) {
+            path[i] = scope.id;
+            scope = scope.parent;
+        }
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i <= depth; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(path[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,82 @@
+package cn.seu.cs.minicc.compiler.ir.compont;
+
+import cn.seu.cs.minicc.compiler.exception.IRException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按作用域嵌套的符号表
+ * <p>
+ * 每个活动作用域对应一个以变量名为键的哈希表，进入作用域时压栈、退出时弹出，栈底为全局作用域。
+ * 查找从最内层作用域向外逐层进行，同一作用域中同名的变量以先声明者为准。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public class SymbolTable {
+    private final List<Map<String, AbstractIRVal>> scopes = new ArrayList<>();
+
+    public SymbolTable() {
+        scopes.add(new HashMap<>());
+    }
+
+    public void enterScope() {
+        scopes.add(new HashMap<>());
+    }
+
+    public void exitScope() throws IRException {
+        if (scopes.size() == 1) {
+            throw new IRException("无法退出全局作用域");
+        }
+        scopes.remove(scopes.size() - 1);
+    }
+
+    /**
+     * 在当前作用域中声明变量，已有同名变量时保留原变量
+     *
+     * @return 当前作用域中原先没有同名变量
+     */
+    public boolean declare(AbstractIRVal val) {
+        return scopes.get(scopes.size() - 1).putIfAbsent(val.getName(), val) == null;
+    }
+
+    /**
+     * 在全局作用域中声明变量，已有同名变量时保留原变量
+     *
+     * @return 全局作用域中原先没有同名变量
+     */
+    public boolean declareGlobal(AbstractIRVal val) {
+        return scopes.get(0).putIfAbsent(val.getName(), val) == null;
+    }
+
+    public boolean containsLocal(String name) {
+        return scopes.get(scopes.size() - 1).containsKey(name);
+    }
+
+    public boolean containsGlobal(String name) {
+        return scopes.get(0).containsKey(name);
+    }
+
+    /**
+     * 由内向外查找变量，未找到时为null
+     */
+    public AbstractIRVal find(String name) {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            AbstractIRVal val = scopes.get(i).get(name);
+            if (val != null) {
+                return val;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 当前作用域的嵌套深度，全局作用域为0
+     */
+    public int depth() {
+        return scopes.size() - 1;
+    }
+}
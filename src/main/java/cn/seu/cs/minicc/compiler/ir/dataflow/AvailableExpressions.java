@@ -0,0 +1,148 @@
+package cn.seu.cs.minicc.compiler.ir.dataflow;
+
+import cn.seu.cs.minicc.compiler.ir.IRParse;
+import cn.seu.cs.minicc.compiler.ir.compont.AbstractIRVal;
+import cn.seu.cs.minicc.compiler.ir.compont.ControlFlowGraph;
+import cn.seu.cs.minicc.compiler.ir.compont.Operands;
+import cn.seu.cs.minicc.compiler.ir.compont.Quad;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static cn.seu.cs.minicc.compiler.ir.compont.QuadOpType.*;
+
+/**
+ * 可用表达式分析
+ * <p>
+ * 前向、交汇为交。表达式为运算符与操作数相同的一元或二元运算，在函数内按首次出现的顺序编号。
+ * 操作数被重新定值时注销用到它的表达式，调用可能修改全局变量，注销用到全局变量的表达式。
+ * 端口读取与数组读取依赖内存，不作为表达式。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public class AvailableExpressions extends DataFlowAnalysis {
+    private final Operands operands;
+    // 四元式计算的表达式在所在函数中的编号，不是表达式时为-1
+    private final int[] exprOf;
+    private final int[] widths;
+    // 用到变量 v 的表达式为 users[userStarts[v]] 到 users[userStarts[v + 1] - 1]，存放计算该表达式的首条四元式的下标
+    private final int[] userStarts;
+    private final int[] users;
+    private final int[] globals;
+
+    public AvailableExpressions(IRParse ir) {
+        this(ir.getCfg(), ir.getGlobalVars());
+    }
+
+    public AvailableExpressions(ControlFlowGraph graph, List<AbstractIRVal> globalVars) {
+        super(graph, true, false);
+        this.operands = graph.getOperands();
+        exprOf = new int[quads.size()];
+        Arrays.fill(exprOf, -1);
+        widths = new int[graph.funcCount()];
+        // 每个表达式的首条四元式
+        boolean[] first = new boolean[quads.size()];
+        for (int func = 0; func < widths.length; func++) {
+            Map<Long, Integer> exprs = new HashMap<>();
+            for (int i = graph.funcStart(func); i < graph.funcEnd(func); i++) {
+                Quad quad = quads.get(i);
+                if (!EXPRESSION_OPS.contains(quad.getOp())) {
+                    continue;
+                }
+                long key = ((long) quad.getOp().ordinal() << 58) | ((long) quad.getArg1() << 29) | quad.getArg2();
+                Integer expr = exprs.get(key);
+                if (expr == null) {
+                    expr = exprs.size();
+                    exprs.put(key, expr);
+                    first[i] = true;
+                }
+                exprOf[i] = expr;
+            }
+            widths[func] = exprs.size();
+        }
+        userStarts = new int[operands.size() + 1];
+        for (int i = 0; i < quads.size(); i++) {
+            if (first[i]) {
+                countUser(quads.get(i).getArg1());
+                if (quads.get(i).getArg2() != quads.get(i).getArg1()) {
+                    countUser(quads.get(i).getArg2());
+                }
+            }
+        }
+        for (int v = 0; v < operands.size(); v++) {
+            userStarts[v + 1] += userStarts[v];
+        }
+        users = new int[userStarts[operands.size()]];
+        int[] next = Arrays.copyOf(userStarts, operands.size());
+        for (int i = 0; i < quads.size(); i++) {
+            if (first[i]) {
+                int arg1 = quads.get(i).getArg1(), arg2 = quads.get(i).getArg2();
+                if (operands.isVar(arg1)) {
+                    users[next[arg1]++] = i;
+                }
+                if (operands.isVar(arg2) && arg2 != arg1) {
+                    users[next[arg2]++] = i;
+                }
+            }
+        }
+        globals = globalVars.stream()
+                .mapToInt(val -> operands.find(val.getId()))
+                .filter(id -> id >= 0)
+                .toArray();
+        solve();
+    }
+
+    private void countUser(int operand) {
+        if (operands.isVar(operand)) {
+            userStarts[operand + 1]++;
+        }
+    }
+
+    @Override
+    protected int width(int func) {
+        return widths[func];
+    }
+
+    @Override
+    protected void transfer(int index, Quad quad, long[] facts) {
+        if (exprOf[index] >= 0) {
+            BitSets.set(facts, exprOf[index]);
+        }
+        int func = graph.funcOfQuad(index);
+        int def = quad.def();
+        if (def != Operands.NONE) {
+            kill(def, func, facts);
+        }
+        if (quad.getOp() == CALL_FUNC) {
+            for (int global : globals) {
+                kill(global, func, facts);
+            }
+        }
+    }
+
+    // 注销函数中用到变量 var 的表达式
+    private void kill(int var, int func, long[] facts) {
+        int start = graph.funcStart(func), end = graph.funcEnd(func);
+        int k = Arrays.binarySearch(users, userStarts[var], userStarts[var + 1], start);
+        for (k = k >= 0 ? k : -k - 1; k < userStarts[var + 1] && users[k] < end; k++) {
+            BitSets.clear(facts, exprOf[users[k]]);
+        }
+    }
+
+    /**
+     * 四元式计算的表达式在执行前是否已经可用，即可以复用之前的计算结果
+     */
+    public boolean isAvailable(int index) {
+        return exprOf[index] >= 0 && BitSets.get(before(index), exprOf[index]);
+    }
+
+    /**
+     * 四元式计算的表达式在所在函数中的编号，不是表达式时为-1
+     */
+    public int expressionOf(int index) {
+        return exprOf[index];
+    }
+}
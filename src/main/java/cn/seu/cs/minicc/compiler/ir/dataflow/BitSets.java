@@ -0,0 +1,63 @@
+package cn.seu.cs.minicc.compiler.ir.dataflow;
+
+import java.util.Arrays;
+
+/**
+ * 以 long[] 表示的位集合的基本操作
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public final class BitSets {
+    private BitSets() {
+    }
+
+    /**
+     * 容纳 width 位所需的字数
+     */
+    public static int words(int width) {
+        return (width + 63) >>> 6;
+    }
+
+    public static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    public static void clear(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * 置位 [0, width) 中的所有位，其余位清零
+     */
+    public static void fill(long[] bits, int width) {
+        Arrays.fill(bits, -1L);
+        if ((width & 63) != 0) {
+            bits[bits.length - 1] = -1L >>> (64 - (width & 63));
+        }
+    }
+
+    public static void or(long[] bits, long[] other) {
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] |= other[i];
+        }
+    }
+
+    public static void and(long[] bits, long[] other) {
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] &= other[i];
+        }
+    }
+
+    public static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,183 @@
+package cn.seu.cs.minicc.compiler.ir.dataflow;
+
+import cn.seu.cs.minicc.compiler.ir.compont.ControlFlowGraph;
+import cn.seu.cs.minicc.compiler.ir.compont.Quad;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 位向量数据流分析的迭代求解
+ * <p>
+ * 在控制流图的基本块上用工作表迭代到不动点，事实为以 long[] 表示的位集合。函数之间没有边，
+ * 因此位的编号只需在函数内唯一，各函数的全集大小由子类给出。前向分析按逆后序、后向分析按其逆序初始化工作表，
+ * 基本块的事实变化时只重新计算受影响的相邻块。求解后可查询任一四元式前后的事实，同一块内的查询复用一次计算的结果。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public abstract class DataFlowAnalysis {
+    @Getter
+    protected final ControlFlowGraph graph;
+    protected final List<Quad> quads;
+    private final boolean forward;
+    private final boolean union;
+    // 各基本块之前与之后的事实
+    private long[][] in;
+    private long[][] out;
+    // 求解中基本块重新计算的次数
+    @Getter
+    private int evaluations;
+
+    private int cachedBlock = -1;
+    // cachedPoints[k] 为缓存块中第 k 条四元式之前的事实，最后一项为块之后
+    private long[][] cachedPoints;
+
+    /**
+     * @param forward 是否为前向分析
+     * @param union   交汇运算为并（可能性分析）或交（必然性分析）
+     */
+    protected DataFlowAnalysis(ControlFlowGraph graph, boolean forward, boolean union) {
+        this.graph = graph;
+        this.quads = graph.getQuads();
+        this.forward = forward;
+        this.union = union;
+    }
+
+    /**
+     * 函数 func 中位的个数
+     */
+    protected abstract int width(int func);
+
+    /**
+     * 一条四元式的传递函数，原地修改 facts：前向分析由执行前的事实得到执行后的事实，后向分析相反
+     */
+    protected abstract void transfer(int index, Quad quad, long[] facts);
+
+    /**
+     * 边界上的事实：前向分析为没有前驱的块之前，后向分析为没有后继的块之后，默认为空集
+     */
+    protected void boundary(int func, long[] facts) {
+    }
+
+    /**
+     * 迭代求解，子类准备好位的编号后调用
+     */
+    protected final void solve() {
+        int count = graph.blockCount();
+        in = new long[count][];
+        out = new long[count][];
+        for (int s = 0; s < count; s++) {
+            int width = width(graph.funcOf(s));
+            in[s] = new long[BitSets.words(width)];
+            out[s] = new long[BitSets.words(width)];
+            if (!union) {
+                BitSets.fill(in[s], width);
+                BitSets.fill(out[s], width);
+            }
+        }
+        // 循环队列，每个块至多在队列中出现一次
+        int[] queue = new int[count + 1];
+        boolean[] queued = new boolean[count];
+        int head = 0, tail = 0;
+        int[] order = graph.order();
+        for (int i = 0; i < count; i++) {
+            int s = forward ? order[i] : order[count - 1 - i];
+            queue[tail++] = s;
+            queued[s] = true;
+        }
+        evaluations = 0;
+        while (head != tail) {
+            int s = queue[head];
+            head = head + 1 == queue.length ? 0 : head + 1;
+            queued[s] = false;
+            evaluations++;
+            long[] facts = meet(s);
+            if (forward) {
+                in[s] = facts;
+                facts = facts.clone();
+                for (int i = graph.start(s); i < graph.end(s); i++) {
+                    transfer(i, quads.get(i), facts);
+                }
+            } else {
+                out[s] = facts;
+                facts = facts.clone();
+                for (int i = graph.end(s) - 1; i >= graph.start(s); i--) {
+                    transfer(i, quads.get(i), facts);
+                }
+            }
+            long[][] result = forward ? out : in;
+            if (Arrays.equals(result[s], facts)) {
+                continue;
+            }
+            result[s] = facts;
+            for (int next : forward ? graph.successors(s) : graph.predecessors(s)) {
+                if (!queued[next]) {
+                    queued[next] = true;
+                    queue[tail] = next;
+                    tail = tail + 1 == queue.length ? 0 : tail + 1;
+                }
+            }
+        }
+        cachedBlock = -1;
+    }
+
+    // 相邻块的事实的交汇
+    private long[] meet(int s) {
+        int[] neighbors = forward ? graph.predecessors(s) : graph.successors(s);
+        long[] facts = new long[in[s].length];
+        if (neighbors.length == 0) {
+            boundary(graph.funcOf(s), facts);
+            return facts;
+        }
+        long[][] source = forward ? out : in;
+        System.arraycopy(source[neighbors[0]], 0, facts, 0, facts.length);
+        for (int i = 1; i < neighbors.length; i++) {
+            if (union) {
+                BitSets.or(facts, source[neighbors[i]]);
+            } else {
+                BitSets.and(facts, source[neighbors[i]]);
+            }
+        }
+        return facts;
+    }
+
+    /**
+     * 四元式执行前的事实，不得修改
+     */
+    protected final long[] before(int index) {
+        return points(graph.blockIdOf(index))[index - graph.start(cachedBlock)];
+    }
+
+    /**
+     * 四元式执行后的事实，不得修改
+     */
+    protected final long[] after(int index) {
+        return points(graph.blockIdOf(index))[index + 1 - graph.start(cachedBlock)];
+    }
+
+    private long[][] points(int s) {
+        if (s == cachedBlock) {
+            return cachedPoints;
+        }
+        int start = graph.start(s), length = graph.end(s) - start;
+        long[][] points = new long[length + 1][];
+        if (forward) {
+            points[0] = in[s];
+            for (int k = 0; k < length; k++) {
+                points[k + 1] = points[k].clone();
+                transfer(start + k, quads.get(start + k), points[k + 1]);
+            }
+        } else {
+            points[length] = out[s];
+            for (int k = length - 1; k >= 0; k--) {
+                points[k] = points[k + 1].clone();
+                transfer(start + k, quads.get(start + k), points[k]);
+            }
+        }
+        cachedBlock = s;
+        cachedPoints = points;
+        return points;
+    }
+}
@@ -0,0 +1,137 @@
+package cn.seu.cs.minicc.compiler.ir.dataflow;
+
+import cn.seu.cs.minicc.compiler.ir.IRParse;
+import cn.seu.cs.minicc.compiler.ir.compont.AbstractIRVal;
+import cn.seu.cs.minicc.compiler.ir.compont.ControlFlowGraph;
+import cn.seu.cs.minicc.compiler.ir.compont.Operands;
+import cn.seu.cs.minicc.compiler.ir.compont.Quad;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static cn.seu.cs.minicc.compiler.ir.compont.QuadOpType.*;
+
+/**
+ * 活跃变量分析
+ * <p>
+ * 后向、交汇为并。全局变量在每个函数中占前几位，局部变量与临时变量只出现在所属函数中，在其后编号。
+ * 被调用的函数与内联汇编可能读取全局变量，因此调用与内联汇编之前、函数结束时全局变量都是活跃的。
+ * 数组元素的赋值视为对数组的使用。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public class Liveness extends DataFlowAnalysis {
+    private final Operands operands;
+    // 变量的操作数编号 -> 在所属函数中的位，不是变量时为-1
+    private final int[] bits;
+    // 局部变量所属的函数，全局变量为-1
+    private final int[] owners;
+    private final int globalCount;
+    private final int[] widths;
+
+    public Liveness(IRParse ir) {
+        this(ir.getCfg(), ir.getGlobalVars());
+    }
+
+    public Liveness(ControlFlowGraph graph, List<AbstractIRVal> globals) {
+        super(graph, false, true);
+        this.operands = graph.getOperands();
+        bits = new int[operands.size()];
+        owners = new int[operands.size()];
+        Arrays.fill(bits, -1);
+        Arrays.fill(owners, -1);
+        int count = 0;
+        for (AbstractIRVal global : globals) {
+            int id = operands.find(global.getId());
+            if (id >= 0 && bits[id] < 0) {
+                bits[id] = count++;
+            }
+        }
+        globalCount = count;
+        widths = new int[graph.funcCount()];
+        for (int func = 0; func < widths.length; func++) {
+            int width = globalCount;
+            for (int i = graph.funcStart(func); i < graph.funcEnd(func); i++) {
+                Quad quad = quads.get(i);
+                width = number(quad.getArg1(), func, width);
+                width = number(quad.getArg2(), func, width);
+                width = number(quad.getRes(), func, width);
+                for (int arg : quad.getArgs()) {
+                    width = number(arg, func, width);
+                }
+            }
+            widths[func] = width;
+        }
+        solve();
+    }
+
+    private int number(int operand, int func, int width) {
+        if (operands.isVar(operand) && bits[operand] < 0) {
+            bits[operand] = width;
+            owners[operand] = func;
+            return width + 1;
+        }
+        return width;
+    }
+
+    @Override
+    protected int width(int func) {
+        return widths[func];
+    }
+
+    @Override
+    protected void transfer(int index, Quad quad, long[] facts) {
+        int def = quad.def();
+        if (def != Operands.NONE) {
+            BitSets.clear(facts, bits[def]);
+        }
+        if (quad.getOp() == CALL_FUNC || quad.getOp() == OUT_ASM) {
+            for (int i = 0; i < globalCount; i++) {
+                BitSets.set(facts, i);
+            }
+        }
+        use(quad.getArg1(), facts);
+        use(quad.getArg2(), facts);
+        for (int arg : quad.getArgs()) {
+            use(arg, facts);
+        }
+        if (quad.getOp() == INIT_ARRAY) {
+            use(quad.getRes(), facts);
+        }
+    }
+
+    private void use(int operand, long[] facts) {
+        if (operands.isVar(operand)) {
+            BitSets.set(facts, bits[operand]);
+        }
+    }
+
+    @Override
+    protected void boundary(int func, long[] facts) {
+        for (int i = 0; i < globalCount; i++) {
+            BitSets.set(facts, i);
+        }
+    }
+
+    /**
+     * 变量在四元式执行后是否活跃
+     *
+     * @param var 变量的操作数编号，未登记的操作数为-1
+     */
+    public boolean isLiveAfter(int index, int var) {
+        return hasBit(var, graph.funcOfQuad(index)) && BitSets.get(after(index), bits[var]);
+    }
+
+    /**
+     * 变量在四元式执行前是否活跃
+     */
+    public boolean isLiveBefore(int index, int var) {
+        return hasBit(var, graph.funcOfQuad(index)) && BitSets.get(before(index), bits[var]);
+    }
+
+    // 变量在该函数中有编号
+    private boolean hasBit(int var, int func) {
+        return var >= 0 && var < bits.length && bits[var] >= 0 && (owners[var] < 0 || owners[var] == func);
+    }
+}
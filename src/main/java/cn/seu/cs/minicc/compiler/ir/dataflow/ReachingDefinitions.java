@@ -0,0 +1,106 @@
+package cn.seu.cs.minicc.compiler.ir.dataflow;
+
+import cn.seu.cs.minicc.compiler.ir.IRParse;
+import cn.seu.cs.minicc.compiler.ir.compont.ControlFlowGraph;
+import cn.seu.cs.minicc.compiler.ir.compont.Operands;
+import cn.seu.cs.minicc.compiler.ir.compont.Quad;
+
+import java.util.Arrays;
+
+/**
+ * 到达定值分析
+ * <p>
+ * 前向、交汇为并。定值以定值四元式的下标表示，在函数内的位为其相对函数首条四元式的偏移。
+ * 各变量的定值按下标顺序存放，注销时只遍历同一函数中的定值。参数的初值与被调用函数对全局变量的修改不计为定值。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public class ReachingDefinitions extends DataFlowAnalysis {
+    private final Operands operands;
+    // 变量 v 的定值为 defs[defStarts[v]] 到 defs[defStarts[v + 1] - 1]，按下标递增
+    private final int[] defStarts;
+    private final int[] defs;
+
+    public ReachingDefinitions(IRParse ir) {
+        this(ir.getCfg());
+    }
+
+    public ReachingDefinitions(ControlFlowGraph graph) {
+        super(graph, true, true);
+        this.operands = graph.getOperands();
+        defStarts = new int[operands.size() + 1];
+        for (Quad quad : quads) {
+            int def = quad.def();
+            if (def != Operands.NONE) {
+                defStarts[def + 1]++;
+            }
+        }
+        for (int v = 0; v < operands.size(); v++) {
+            defStarts[v + 1] += defStarts[v];
+        }
+        defs = new int[defStarts[operands.size()]];
+        int[] next = Arrays.copyOf(defStarts, operands.size());
+        for (int i = 0; i < quads.size(); i++) {
+            int def = quads.get(i).def();
+            if (def != Operands.NONE) {
+                defs[next[def]++] = i;
+            }
+        }
+        solve();
+    }
+
+    @Override
+    protected int width(int func) {
+        return graph.funcEnd(func) - graph.funcStart(func);
+    }
+
+    @Override
+    protected void transfer(int index, Quad quad, long[] facts) {
+        int def = quad.def();
+        if (def == Operands.NONE) {
+            return;
+        }
+        int func = graph.funcOfQuad(index);
+        int start = graph.funcStart(func), end = graph.funcEnd(func);
+        for (int k = firstDef(def, start); k < defStarts[def + 1] && defs[k] < end; k++) {
+            BitSets.clear(facts, defs[k] - start);
+        }
+        BitSets.set(facts, index - start);
+    }
+
+    // 变量下标不小于 start 的第一个定值在 defs 中的位置
+    private int firstDef(int var, int start) {
+        int index = Arrays.binarySearch(defs, defStarts[var], defStarts[var + 1], start);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * 下标为 def 的定值能否到达四元式 index 之前
+     */
+    public boolean reaches(int def, int index) {
+        int func = graph.funcOfQuad(index);
+        int start = graph.funcStart(func);
+        return def >= start && def < graph.funcEnd(func) && BitSets.get(before(index), def - start);
+    }
+
+    /**
+     * 到达四元式 index 之前的变量 var 的所有定值，按下标递增
+     */
+    public int[] reachingDefs(int index, int var) {
+        if (var < 0 || var >= operands.size()) {
+            return new int[0];
+        }
+        int func = graph.funcOfQuad(index);
+        int start = graph.funcStart(func), end = graph.funcEnd(func);
+        long[] facts = before(index);
+        int[] result = new int[defStarts[var + 1] - defStarts[var]];
+        int size = 0;
+        for (int k = firstDef(var, start); k < defStarts[var + 1] && defs[k] < end; k++) {
+            if (BitSets.get(facts, defs[k] - start)) {
+                result[size++] = defs[k];
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,230 @@
+package cn.seu.cs.minicc.compiler.ir.ssa;
+
+import cn.seu.cs.minicc.compiler.ir.compont.ControlFlowGraph;
+
+import java.util.Arrays;
+
+/**
+ * 支配树与支配边界
+ * <p>
+ * 结点为控制流图的基本块，各函数从其首个块出发深度优先求逆后序，再按 Cooper–Harvey–Kennedy 的方法迭代求直接支配者：
+ * 两个结点的公共支配者沿直接支配者向上、后序编号较小的一方先走，直到相遇。
+ * 支配边界从每个汇合点的各前驱沿直接支配者向上走到汇合点的直接支配者为止。不可达的块不在支配树中。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public class DominatorTree {
+    private static final int[] NO_BLOCKS = new int[0];
+
+    private final ControlFlowGraph graph;
+    // 直接支配者，函数的首个块为其自身，不可达时为-1
+    private final int[] idom;
+    // 各函数内的后序编号，不可达时为-1
+    private final int[] postorder;
+    // 所有可达块的逆后序，函数依次排列
+    private final int[] reversePostorder;
+    private final int[][] children;
+    private final int[][] frontiers;
+    // 支配树先序遍历的进入与离开编号，用于 O(1) 判断支配关系
+    private final int[] enter;
+    private final int[] leave;
+
+    public DominatorTree(ControlFlowGraph graph) {
+        this.graph = graph;
+        int count = graph.blockCount();
+        idom = new int[count];
+        postorder = new int[count];
+        Arrays.fill(idom, -1);
+        Arrays.fill(postorder, -1);
+
+        // 深度优先求后序，栈中保存块与下一个待访问的后继
+        int[] order = new int[count];
+        int size = 0;
+        int[] stack = new int[count];
+        int[] nextSucc = new int[count];
+        boolean[] visited = new boolean[count];
+        for (int func = 0; func < graph.funcCount(); func++) {
+            if (graph.funcStart(func) == graph.funcEnd(func)) {
+                continue;
+            }
+            int entry = graph.blockIdOf(graph.funcStart(func));
+            int from = size, number = 0, top = 0;
+            stack[0] = entry;
+            visited[entry] = true;
+            while (top >= 0) {
+                int s = stack[top];
+                int[] succs = graph.successors(s);
+                if (nextSucc[s] < succs.length) {
+                    int next = succs[nextSucc[s]++];
+                    if (!visited[next]) {
+                        visited[next] = true;
+                        stack[++top] = next;
+                    }
+                } else {
+                    postorder[s] = number++;
+                    order[size++] = s;
+                    top--;
+                }
+            }
+            // 函数内逆转为逆后序
+            for (int i = from, j = size - 1; i < j; i++, j--) {
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+            solve(order, from, size);
+        }
+        reversePostorder = Arrays.copyOf(order, size);
+
+        // 支配树的孩子
+        int[] childCounts = new int[count];
+        for (int s = 0; s < count; s++) {
+            if (idom[s] >= 0 && idom[s] != s) {
+                childCounts[idom[s]]++;
+            }
+        }
+        children = new int[count][];
+        for (int s = 0; s < count; s++) {
+            children[s] = childCounts[s] == 0 ? NO_BLOCKS : new int[childCounts[s]];
+            childCounts[s] = 0;
+        }
+        for (int s : reversePostorder) {
+            if (idom[s] != s) {
+                children[idom[s]][childCounts[idom[s]]++] = s;
+            }
+        }
+
+        // 支配树的先序编号
+        enter = new int[count];
+        leave = new int[count];
+        int clock = 0;
+        Arrays.fill(nextSucc, 0);
+        for (int s : reversePostorder) {
+            if (idom[s] != s) {
+                continue;
+            }
+            int top = 0;
+            stack[0] = s;
+            enter[s] = clock++;
+            while (top >= 0) {
+                int node = stack[top];
+                if (nextSucc[node] < children[node].length) {
+                    int child = children[node][nextSucc[node]++];
+                    enter[child] = clock++;
+                    stack[++top] = child;
+                } else {
+                    leave[node] = clock++;
+                    top--;
+                }
+            }
+        }
+
+        // 支配边界
+        int[][] lists = new int[count][];
+        int[] sizes = new int[count];
+        int[] marks = new int[count];
+        Arrays.fill(marks, -1);
+        for (int s : reversePostorder) {
+            int[] preds = graph.predecessors(s);
+            if (preds.length < 2) {
+                continue;
+            }
+            for (int pred : preds) {
+                for (int runner = pred; idom[runner] >= 0 && runner != idom[s]; runner = idom[runner]) {
+                    if (marks[runner] == s) {
+                        break;
+                    }
+                    marks[runner] = s;
+                    if (lists[runner] == null) {
+                        lists[runner] = new int[2];
+                    } else if (sizes[runner] == lists[runner].length) {
+                        lists[runner] = Arrays.copyOf(lists[runner], sizes[runner] * 2);
+                    }
+                    lists[runner][sizes[runner]++] = s;
+                    if (runner == idom[runner]) {
+                        break;
+                    }
+                }
+            }
+        }
+        frontiers = new int[count][];
+        for (int s = 0; s < count; s++) {
+            frontiers[s] = sizes[s] == 0 ? NO_BLOCKS : Arrays.copyOf(lists[s], sizes[s]);
+        }
+    }
+
+    // 按逆后序迭代求一个函数中各块的直接支配者，order[from] 为函数的首个块
+    private void solve(int[] order, int from, int to) {
+        idom[order[from]] = order[from];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = from + 1; i < to; i++) {
+                int s = order[i];
+                int newIdom = -1;
+                for (int pred : graph.predecessors(s)) {
+                    if (idom[pred] < 0) {
+                        continue;
+                    }
+                    newIdom = newIdom < 0 ? pred : intersect(pred, newIdom);
+                }
+                if (idom[s] != newIdom) {
+                    idom[s] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private int intersect(int a, int b) {
+        while (a != b) {
+            while (postorder[a] < postorder[b]) {
+                a = idom[a];
+            }
+            while (postorder[b] < postorder[a]) {
+                b = idom[b];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * 直接支配者，函数的首个块与不可达的块为-1
+     */
+    public int idom(int block) {
+        return idom[block] == block ? -1 : idom[block];
+    }
+
+    public boolean isReachable(int block) {
+        return idom[block] >= 0;
+    }
+
+    /**
+     * a 是否支配 b，块支配其自身
+     */
+    public boolean dominates(int a, int b) {
+        return isReachable(a) && isReachable(b) && enter[a] <= enter[b] && leave[b] <= leave[a];
+    }
+
+    /**
+     * 支配树中的孩子，按逆后序排列
+     */
+    public int[] children(int block) {
+        return children[block];
+    }
+
+    /**
+     * 支配边界
+     */
+    public int[] frontier(int block) {
+        return frontiers[block];
+    }
+
+    /**
+     * 所有可达块的逆后序，各函数依次排列
+     */
+    public int[] reversePostorder() {
+        return reversePostorder;
+    }
+}
@@ -0,0 +1,405 @@
+package cn.seu.cs.minicc.compiler.ir.ssa;
+
+import cn.seu.cs.minicc.compiler.exception.IRException;
+import cn.seu.cs.minicc.compiler.ir.IRParse;
+import cn.seu.cs.minicc.compiler.ir.compont.AbstractIRVal;
+import cn.seu.cs.minicc.compiler.ir.compont.ControlFlowGraph;
+import cn.seu.cs.minicc.compiler.ir.compont.IRFunc;
+import cn.seu.cs.minicc.compiler.ir.compont.IRVar;
+import cn.seu.cs.minicc.compiler.ir.compont.Operands;
+import cn.seu.cs.minicc.compiler.ir.compont.Quad;
+import cn.seu.cs.minicc.compiler.ir.compont.QuadOpType;
+import cn.seu.cs.minicc.compiler.ir.dataflow.Liveness;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static cn.seu.cs.minicc.compiler.ir.compont.QuadOpType.*;
+
+/**
+ * 四元式的SSA形式
+ * <p>
+ * 构造时把 IRParse 中的四元式原地改写为SSA形式：函数的标量局部变量与参数每次赋值都定值一个新版本，
+ * 版本与原变量同名、同作用域，加入变量池与所属函数的局部变量；原变量本身作为函数入口处的初始版本。
+ * phi 函数按支配边界迭代放置，只放在变量活跃的汇合点，紧跟在基本块的标号之后。全局变量、数组与临时变量不改写。
+ * <p>
+ * 消去时把每个 phi 函数换成各前驱边上的复制，同一条边上的复制是并行的，按依赖排成顺序执行，成环时借助临时变量。
+ * 条件跳转的目标边是关键边，为其新建标号，复制放在目标标号之前。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public class SSAForm {
+    private final IRParse ir;
+    private final Operands operands;
+    @Getter
+    private int phiCount;
+    @Getter
+    private int versionCount;
+
+    // 构造时使用：需要改写的变量的操作数编号 -> 在 vars 中的下标
+    private int[] slots;
+    private List<IRVar> vars;
+    private List<IRFunc> owners;
+    // 各变量当前版本的栈
+    private int[][] stacks;
+    private int[] depths;
+    private List<List<Phi>> phis;
+
+    /**
+     * 尚未放入四元式的 phi 函数
+     */
+    private static class Phi {
+        final int var;
+        int res;
+        final int[] args;
+
+        Phi(int var, int origin, int predCount) {
+            this.var = var;
+            this.args = new int[predCount];
+            Arrays.fill(args, origin);
+        }
+    }
+
+    public SSAForm(IRParse ir) {
+        this.ir = ir;
+        this.operands = ir.getOperands();
+        ir.toBasicBlocks();
+        ControlFlowGraph graph = ir.getCfg();
+        DominatorTree dom = new DominatorTree(graph);
+        Liveness liveness = new Liveness(ir);
+        List<Quad> quads = ir.getQuads();
+
+        // 需要改写的变量
+        slots = new int[operands.size()];
+        Arrays.fill(slots, -1);
+        vars = new ArrayList<>();
+        owners = new ArrayList<>();
+        for (IRFunc func : ir.getFuncPool()) {
+            for (AbstractIRVal val : func.getLocalVars()) {
+                int id = operands.find(val.getId());
+                if (val instanceof IRVar var && id >= 0 && slots[id] < 0) {
+                    slots[id] = vars.size();
+                    vars.add(var);
+                    owners.add(func);
+                }
+            }
+        }
+
+        // 各变量的定值所在块
+        List<List<Integer>> defSites = new ArrayList<>();
+        for (int k = 0; k < vars.size(); k++) {
+            defSites.add(new ArrayList<>());
+        }
+        for (int i = 0; i < quads.size(); i++) {
+            int def = quads.get(i).def();
+            if (def != Operands.NONE && slots[def] >= 0) {
+                List<Integer> sites = defSites.get(slots[def]);
+                int block = graph.blockIdOf(i);
+                if (sites.isEmpty() || sites.get(sites.size() - 1).intValue() != block) {
+                    sites.add(block);
+                }
+            }
+        }
+
+        // 在支配边界上迭代放置 phi 函数
+        int count = graph.blockCount();
+        phis = new ArrayList<>(count);
+        for (int s = 0; s < count; s++) {
+            phis.add(new ArrayList<>());
+        }
+        int[] placed = new int[count];
+        int[] queued = new int[count];
+        Arrays.fill(placed, -1);
+        Arrays.fill(queued, -1);
+        for (int k = 0; k < vars.size(); k++) {
+            int origin = operands.find(vars.get(k).getId());
+            List<Integer> work = defSites.get(k);
+            for (int block : work) {
+                queued[block] = k;
+            }
+            for (int w = 0; w < work.size(); w++) {
+                for (int d : dom.frontier(work.get(w))) {
+                    if (placed[d] == k) {
+                        continue;
+                    }
+                    placed[d] = k;
+                    if (!liveness.isLiveBefore(graph.start(d), origin)) {
+                        continue;
+                    }
+                    phis.get(d).add(new Phi(k, origin, graph.predecessors(d).length));
+                    phiCount++;
+                    if (queued[d] != k) {
+                        queued[d] = k;
+                        work.add(d);
+                    }
+                }
+            }
+        }
+
+        // 沿支配树重命名
+        stacks = new int[vars.size()][4];
+        depths = new int[vars.size()];
+        for (int k = 0; k < vars.size(); k++) {
+            stacks[k][depths[k]++] = operands.find(vars.get(k).getId());
+        }
+        for (int s : dom.reversePostorder()) {
+            if (dom.idom(s) < 0) {
+                rename(s, graph, dom, quads);
+            }
+        }
+
+        // 把 phi 函数放在基本块的标号之后
+        List<Quad> result = new ArrayList<>(quads.size() + phiCount);
+        for (int s = 0; s < count; s++) {
+            int start = graph.start(s);
+            if (quads.get(start).getOp() == SET_LABEL) {
+                result.add(quads.get(start));
+                start++;
+            }
+            for (Phi phi : phis.get(s)) {
+                result.add(Quad.phi(operands, phi.args, phi.res));
+            }
+            result.addAll(quads.subList(start, graph.end(s)));
+        }
+        quads.clear();
+        quads.addAll(result);
+        ir.toBasicBlocks();
+
+        slots = null;
+        vars = null;
+        owners = null;
+        stacks = null;
+        depths = null;
+        phis = null;
+    }
+
+    private void rename(int s, ControlFlowGraph graph, DominatorTree dom, List<Quad> quads) {
+        int[] saved = depths.clone();
+        for (Phi phi : phis.get(s)) {
+            phi.res = newVersion(phi.var);
+        }
+        for (int i = graph.start(s); i < graph.end(s); i++) {
+            Quad quad = quads.get(i);
+            int arg1 = current(quad.getArg1()), arg2 = current(quad.getArg2()), res = quad.getRes();
+            int[] args = quad.getArgs();
+            for (int j = 0; j < args.length; j++) {
+                int arg = current(args[j]);
+                if (arg != args[j]) {
+                    args = args == quad.getArgs() ? args.clone() : args;
+                    args[j] = arg;
+                }
+            }
+            int def = quad.def();
+            if (def != Operands.NONE && isRenamed(def)) {
+                res = newVersion(slots[def]);
+            } else {
+                res = current(res);
+            }
+            if (arg1 != quad.getArg1() || arg2 != quad.getArg2() || res != quad.getRes() || args != quad.getArgs()) {
+                quads.set(i, quad.replace(arg1, arg2, res, args));
+            }
+        }
+        for (int succ : graph.successors(s)) {
+            int index = indexOf(graph.predecessors(succ), s);
+            for (Phi phi : phis.get(succ)) {
+                phi.args[index] = stacks[phi.var][depths[phi.var] - 1];
+            }
+        }
+        for (int child : dom.children(s)) {
+            rename(child, graph, dom, quads);
+        }
+        System.arraycopy(saved, 0, depths, 0, depths.length);
+    }
+
+    private boolean isRenamed(int operand) {
+        return operand < slots.length && slots[operand] >= 0;
+    }
+
+    // 变量的当前版本，不需要改写的操作数原样返回
+    private int current(int operand) {
+        if (!isRenamed(operand)) {
+            return operand;
+        }
+        int k = slots[operand];
+        return stacks[k][depths[k] - 1];
+    }
+
+    // 为变量定值一个新版本并压栈
+    private int newVersion(int k) {
+        IRVar origin = vars.get(k);
+        IRVar version = new IRVar(ir.newVarId(), origin.getName(), origin.getType(), origin.getScope(), true);
+        ir.getValPool().add(version);
+        owners.get(k).getLocalVars().add(version);
+        versionCount++;
+        if (depths[k] == stacks[k].length) {
+            stacks[k] = Arrays.copyOf(stacks[k], depths[k] * 2);
+        }
+        int id = operands.intern(version.getId());
+        stacks[k][depths[k]++] = id;
+        return id;
+    }
+
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        throw new IRException("基本块 %d 不是后继的前驱", value);
+    }
+
+    /**
+     * 消去 phi 函数，转换回普通的四元式
+     *
+     * @return 插入的复制的条数
+     */
+    public int destruct() {
+        List<Quad> quads = ir.getQuads();
+        ir.toBasicBlocks();
+        ControlFlowGraph graph = ir.getCfg();
+        int count = graph.blockCount();
+        // 条件跳转之前、基本块末尾的复制
+        List<List<Quad>> tails = new ArrayList<>(count);
+        // 从上一块顺序执行到达时的复制，放在块之前
+        List<List<Quad>> fallthroughs = new ArrayList<>(count);
+        // 拆分关键边得到的块，放在目标块之前
+        List<List<Quad>> splits = new ArrayList<>(count);
+        int[] retargets = new int[count];
+        for (int s = 0; s < count; s++) {
+            tails.add(new ArrayList<>());
+            fallthroughs.add(new ArrayList<>());
+            splits.add(new ArrayList<>());
+        }
+        int copies = 0;
+        for (int s = 0; s < count; s++) {
+            int first = graph.start(s);
+            if (quads.get(first).getOp() == SET_LABEL) {
+                first++;
+            }
+            int last = first;
+            while (last < graph.end(s) && quads.get(last).getOp() == PHI) {
+                last++;
+            }
+            if (first == last) {
+                continue;
+            }
+            int[] preds = graph.predecessors(s);
+            for (int j = 0; j < preds.length; j++) {
+                int pred = preds[j];
+                Map<Integer, Integer> parallel = new LinkedHashMap<>();
+                for (int i = first; i < last; i++) {
+                    Quad phi = quads.get(i);
+                    if (phi.getArgs()[j] != phi.getRes()) {
+                        parallel.put(phi.getRes(), phi.getArgs()[j]);
+                    }
+                }
+                List<Quad> sequence = sequentialize(parallel);
+                if (sequence.isEmpty()) {
+                    continue;
+                }
+                copies += sequence.size();
+                Quad branch = quads.get(graph.end(pred) - 1);
+                boolean transfer = isTransfer(branch.getOp());
+                if (graph.successors(pred).length == 1) {
+                    (transfer ? tails.get(pred) : fallthroughs.get(s)).addAll(sequence);
+                } else if (graph.end(pred) == graph.start(s)) {
+                    // 条件跳转不成立时顺序到达
+                    fallthroughs.get(s).addAll(sequence);
+                } else {
+                    // 条件跳转的目标边，新建标号拆分
+                    int label = operands.intern(ir.newLabel("phi"));
+                    retargets[pred] = label;
+                    List<Quad> split = splits.get(s);
+                    if (!split.isEmpty()) {
+                        split.add(new Quad(operands, JUMP, Operands.NONE, Operands.NONE, labelOf(quads, graph, s)));
+                    }
+                    split.add(new Quad(operands, SET_LABEL, Operands.NONE, Operands.NONE, label));
+                    split.addAll(sequence);
+                }
+            }
+        }
+
+        List<Quad> result = new ArrayList<>(quads.size() + copies);
+        for (int s = 0; s < count; s++) {
+            result.addAll(fallthroughs.get(s));
+            if (!splits.get(s).isEmpty()) {
+                // 拆分得到的块只能经由跳转进入
+                if (s > 0 && graph.funcOf(s - 1) == graph.funcOf(s)
+                        && !isUnconditional(result.get(result.size() - 1).getOp())) {
+                    result.add(new Quad(operands, JUMP, Operands.NONE, Operands.NONE, labelOf(quads, graph, s)));
+                }
+                result.addAll(splits.get(s));
+            }
+            for (int i = graph.start(s); i < graph.end(s); i++) {
+                Quad quad = quads.get(i);
+                if (quad.getOp() == PHI) {
+                    continue;
+                }
+                if (i == graph.end(s) - 1) {
+                    result.addAll(tails.get(s));
+                    if (retargets[s] != Operands.NONE) {
+                        quad = quad.replace(quad.getArg1(), quad.getArg2(), retargets[s], quad.getArgs());
+                    }
+                }
+                result.add(quad);
+            }
+        }
+        quads.clear();
+        quads.addAll(result);
+        ir.toBasicBlocks();
+        return copies;
+    }
+
+    /**
+     * 把同一条边上的并行复制排成顺序执行的复制。
+     * 目的变量不再被其余复制读取时即可复制；剩下的复制都在环上，先把其中一个目的变量存入临时变量再继续
+     */
+    private List<Quad> sequentialize(Map<Integer, Integer> parallel) {
+        List<Quad> sequence = new ArrayList<>();
+        while (!parallel.isEmpty()) {
+            boolean progress = false;
+            for (Map.Entry<Integer, Integer> copy : new ArrayList<>(parallel.entrySet())) {
+                parallel.remove(copy.getKey());
+                if (parallel.containsValue(copy.getKey())) {
+                    parallel.put(copy.getKey(), copy.getValue());
+                    continue;
+                }
+                sequence.add(copy(copy.getKey(), copy.getValue()));
+                progress = true;
+            }
+            if (!progress) {
+                int blocked = parallel.keySet().iterator().next();
+                int temp = operands.intern(ir.newVarId());
+                sequence.add(copy(temp, blocked));
+                parallel.replaceAll((dst, src) -> src == blocked ? temp : src);
+            }
+        }
+        return sequence;
+    }
+
+    private Quad copy(int dst, int src) {
+        QuadOpType op = operands.isVar(src) ? INIT_VAL : INIT_CONST;
+        return new Quad(operands, op, src, Operands.NONE, dst);
+    }
+
+    private static int labelOf(List<Quad> quads, ControlFlowGraph graph, int block) {
+        Quad quad = quads.get(graph.start(block));
+        if (quad.getOp() != SET_LABEL) {
+            throw new IRException("汇合点没有标号：%s", quad);
+        }
+        return quad.getRes();
+    }
+
+    private static boolean isTransfer(QuadOpType op) {
+        return op == J_FALSE || isUnconditional(op);
+    }
+
+    private static boolean isUnconditional(QuadOpType op) {
+        return op == JUMP || op == RETURN_VOID || op == RETURN_EXPR;
+    }
+}
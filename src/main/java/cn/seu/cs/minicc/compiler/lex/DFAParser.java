@@ -20,7 +20,10 @@ import java.util.Map;
  */
 public class DFAParser {
     public DFA fromFile(String path) throws IOException, LexException {
-        String json = Utils.readJson(path);
+        return fromJson(Utils.readJson(path));
+    }
+
+    public DFA fromJson(String json) throws IOException, LexException {
         ObjectMapper mapper = new ObjectMapper();
         DFA dfa = mapper.readValue(json, DFA.class);
         // 构建状态
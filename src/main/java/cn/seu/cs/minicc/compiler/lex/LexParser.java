@@ -1,55 +1,289 @@
 package cn.seu.cs.minicc.compiler.lex;
 
+import cn.seu.cs.minicc.compiler.CompilerTables;
 import cn.seu.cs.minicc.compiler.exception.LexException;
 import cn.seu.cs.minicc.compiler.lex.dfa.DFA;
-import cn.seu.cs.minicc.compiler.lex.dfa.Transform;
+import cn.seu.cs.minicc.compiler.lex.table.LexTable;
+import lombok.AllArgsConstructor;
 
+import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * @author Shuxin Wang <shuxinwang662@gmail.com>
  * Created on 2023/12/20
  */
-public class LexParser {
+public class LexParser implements Lexer {
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+    // 扫描器在Token结束后多读入的字符数，用于判断已没有转移
+    private static final int LOOKAHEAD = 1;
+
+    private final LexTable table;
+
+    public LexParser() {
+        this(null);
+    }
+
+    /**
+     * @param table 状态转移表，为null时使用共享的 CompilerTables
+     */
+    public LexParser(LexTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public TokenBuffer tokenize(String sourceCode) throws LexException {
+        return tokenize(sourceCode, getTable());
+    }
+
+    /**
+     * 按需拉取的Token流，注释与空白符在流中过滤
+     */
+    public TokenStream stream(CharSequence sourceCode) {
+        return new LexTokenStream(sourceCode, getTable());
+    }
+
+    /**
+     * 边读入边分析的Token流，注释与空白符在流中过滤
+     */
+    public TokenStream stream(Reader reader) {
+        return new LexTokenStream(reader, getTable());
+    }
+
+    private LexTable getTable() {
+        return table == null ? CompilerTables.getInstance().getLexTable() : table;
+    }
 
     public List<Token> lexSourceCode(String sourceCode, DFA dfa) throws LexException {
+        return lexSourceCode(sourceCode, LexTable.fromDFA(dfa));
+    }
+
+    public List<Token> lexSourceCode(String sourceCode, LexTable table) throws LexException {
+        return tokenize(sourceCode, table).toTokens();
+    }
+
+    /**
+     * 词法分析，Token以类别与源码位置记录，不截取文本
+     */
+    public TokenBuffer tokenize(String sourceCode, LexTable table) throws LexException {
+        String code = sourceCode.replace("\r\n", "\n");
+        TokenBuffer tokens = new TokenBuffer(code, table.getTokenNames());
+        ScanState state = new ScanState(0, 1);
+        scan(code, table, code.length(), table.getStartState(), state, tokens);
+        tokens.addEnd(state.line);
+        return tokens;
+    }
+
+    /**
+     * 增量词法分析：把tokens源码中[from, from + removed)替换为text后重新分析
+     * <p>
+     * 从编辑位置之前最近的、读入范围未触及编辑位置的Token开始重新扫描，
+     * 直到新Token的起始位置对应旧Token序列中编辑范围之后的某个起始位置为止；
+     * 由于每个Token结束后状态均回到0，此后的Token与旧Token相同，只需平移位置与行号。
+     *
+     * @param tokens 本分析器对其源码的分析结果
+     * @return 新的Token序列及被替换的Token范围
+     */
+    public TokenEdit retokenize(TokenBuffer tokens, int from, int removed, String text) throws LexException {
+        LexTable table = getTable();
+        String oldCode = tokens.getSource();
+        String insert = text.replace("\r\n", "\n");
+        String code = oldCode.substring(0, from) + insert + oldCode.substring(from + removed);
+        int delta = insert.length() - removed;
+        int oldEnd = tokens.size() - 1;
+
+        // 读入换行后Token至多再读LOOKAHEAD个字符即结束，故换行n之前开始的Token读入的字符都在n + LOOKAHEAD之前；
+        // 取满足n + LOOKAHEAD < from的最后一个换行，其之前开始的Token读不到编辑位置，最早可能变化的是其后的第一个Token
+        int first = 0;
+        if (newlineBounded(table)) {
+            first = firstTokenFrom(tokens, oldCode.lastIndexOf('\n', from - 1 - LOOKAHEAD) + 1);
+        }
+        // Token读入的字符为[start, start + length + LOOKAHEAD)，全部位于from之前的Token不受影响
+        while (first < oldEnd && tokens.start(first) + tokens.length(first) + LOOKAHEAD < from) {
+            first++;
+        }
+
+        TokenBuffer result = new TokenBuffer(code, table.getTokenNames(), tokens.size() + Math.max(delta, 0));
+        result.append(tokens, 0, first, 0, 0);
+        ScanState state = first < oldEnd
+                ? new ScanState(tokens.start(first), tokens.line(first))
+                : new ScanState(oldCode.length(), tokens.line(oldEnd));
+        int editEnd = from + insert.length();
+        scan(code, table, editEnd, state.position == 0 ? table.getStartState() : 0, state, result);
+        // 逐个Token重新分析，直到与旧Token的起始位置同步
+        int resync = firstTokenFrom(tokens, from + removed);
+        while (state.position < code.length()) {
+            while (resync < oldEnd && tokens.start(resync) < state.position - delta) {
+                resync++;
+            }
+            if (resync < oldEnd && tokens.start(resync) == state.position - delta) {
+                break;
+            }
+            scan(code, table, state.position + 1, state.position == 0 ? table.getStartState() : 0, state, result);
+        }
+        if (state.position >= code.length()) {
+            resync = oldEnd;
+        }
+        int newTo = result.size();
+        int lineOffset = state.line - tokens.line(resync);
+        result.append(tokens, resync, oldEnd, delta, lineOffset);
+        result.addEnd(tokens.line(oldEnd) + lineOffset);
+        return new TokenEdit(result, first, resync, newTo);
+    }
+
+    // 起始位置不小于position的第一个Token下标，不含SP_END
+    private static int firstTokenFrom(TokenBuffer tokens, int position) {
+        int low = 0, high = tokens.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens.start(mid) < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // 任意状态读入换行后要么失败，要么进入不再有任何转移的状态
+    private static boolean newlineBounded(LexTable table) {
+        for (int state = 0; state < table.getStateCount(); state++) {
+            int next = table.next(state, '\n');
+            if (next == -1) {
+                continue;
+            }
+            for (char c = 0; c < LexTable.ALPHABET_SIZE; c++) {
+                if (table.next(next, c) != -1) {
+                    return false;
+                }
+            }
+            if (table.next(next, (char) LexTable.ALPHABET_SIZE) != -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 在公共ForkJoinPool上并行词法分析
+     */
+    public TokenBuffer tokenizeParallel(String sourceCode) throws LexException {
+        return tokenizeParallel(sourceCode, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行词法分析，结果与 tokenize 完全一致
+     * <p>
+     * 源码在换行处切分为若干块，在pool上分别分析后按顺序拼接并修正行号；
+     * 若某块的起点与前一块实际结束的Token边界不一致，则从该处起改为顺序分析。
+     */
+    public TokenBuffer tokenizeParallel(String sourceCode, ForkJoinPool pool) throws LexException {
+        return tokenizeParallel(sourceCode, pool, MIN_CHUNK_SIZE);
+    }
+
+    TokenBuffer tokenizeParallel(String sourceCode, ForkJoinPool pool, int minChunkSize) throws LexException {
+        LexTable table = getTable();
         String code = sourceCode.replace("\r\n", "\n");
+        int[] splits = splitPoints(code, Math.min(pool.getParallelism() * 4, code.length() / minChunkSize));
+        // 单线程时拼接只会增加开销
+        if (pool.getParallelism() <= 1 || splits.length <= 2) {
+            return tokenize(code, table);
+        }
+        // 各块独立分析，行号从1开始计
+        List<Callable<ChunkResult>> tasks = new ArrayList<>();
+        for (int i = 0; i < splits.length - 1; i++) {
+            int from = splits[i], to = splits[i + 1];
+            int initState = i == 0 ? table.getStartState() : 0;
+            tasks.add(() -> {
+                TokenBuffer tokens = new TokenBuffer(code, table.getTokenNames(), (to - from) / 3);
+                ScanState state = new ScanState(from, 1);
+                try {
+                    scan(code, table, to, initState, state, tokens);
+                    return new ChunkResult(tokens, state, null);
+                } catch (LexException e) {
+                    return new ChunkResult(tokens, state, e);
+                }
+            });
+        }
+        List<ChunkResult> results = new ArrayList<>();
+        for (Future<ChunkResult> future : pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException | ExecutionException e) {
+                throw new LexException("并行词法分析失败：%s", e.getMessage());
+            }
+        }
+        // 按顺序拼接
+        TokenBuffer tokens = new TokenBuffer(code, table.getTokenNames());
+        ScanState state = new ScanState(0, 1);
+        for (int i = 0; i < results.size(); i++) {
+            ChunkResult result = results.get(i);
+            if (state.position != splits[i] || result.error != null) {
+                // 边界不一致或块内出错，剩余部分顺序分析，出错时得到与顺序分析相同的异常
+                scan(code, table, code.length(), i == 0 ? table.getStartState() : 0, state, tokens);
+                break;
+            }
+            tokens.append(result.tokens, state.line - 1);
+            state.position = result.state.position;
+            state.line += result.state.line - 1;
+        }
+        tokens.addEnd(state.line);
+        return tokens;
+    }
+
+    // 在各等分点之后的第一个换行处切分，MiniC的注释与字符串均不跨行，换行之后即为Token边界
+    private static int[] splitPoints(String code, int chunks) {
+        List<Integer> points = new ArrayList<>();
+        points.add(0);
+        for (int i = 1; i < chunks; i++) {
+            int newline = code.indexOf('\n', (int) ((long) code.length() * i / chunks));
+            if (newline == -1) {
+                break;
+            }
+            if (newline + 1 > points.get(points.size() - 1) && newline + 1 < code.length()) {
+                points.add(newline + 1);
+            }
+        }
+        points.add(code.length());
+        return points.stream().mapToInt(Integer::intValue).toArray();
+    }
 
-        Integer initState = dfa.getStartStatesIndex().get(0);
-        int yyLineNo = 1;
-        String yyText;
+    /**
+     * 从state.position开始扫描，记录起始位置小于to的Token，
+     * 结束后state为下一个Token的起始位置与行号
+     */
+    private static void scan(String code, LexTable table, int to, int initState,
+                             ScanState state, TokenBuffer tokens) throws LexException {
+        int yyLineNo = state.line;
         char curChar = ' ';
-        StringBuilder curBuf = new StringBuilder();
         int curState = initState;
-        int curPrt = 0;
+        int curPrt = state.position;
         int lastAcceptState = -1;
         int lastAcceptPrt = 0;
 
-        List<Token> tokens = new ArrayList<>();
-
-        List<int[]> transMatrix = getTransMatrix(dfa);
-
-        List<Integer> acceptList = getAcceptList(dfa);
-
         while (true) {
             int rollBackLine = 0;
-            if (curPrt == code.length()) {
+            if (curPrt == code.length() || curPrt >= to) {
                 break;
             }
+            int tokenStart = curPrt;
+            int tokenLine = yyLineNo;
             // 当前状态未结束
             while (curState != -1) {
                 curChar = code.charAt(curPrt);
-                curBuf.append(curChar);
                 curPrt++;
                 if (curChar == '\n') {
                     yyLineNo++;
                     rollBackLine++;
                 }
-                curState = transMatrix.get(curState)[curChar];
+                curState = table.next(curState, curChar);
                 // 半路到达接受状态
-                if (curState != -1 && acceptList.get(curState) != -1) {
+                if (curState != -1 && table.isAccept(curState)) {
                     lastAcceptState = curState;
                     lastAcceptPrt = curPrt - 1;
                     rollBackLine = 0;
@@ -60,70 +294,34 @@ public class LexParser {
             }
             // 处理接收情况
             if (lastAcceptState != -1) {
+                // Token文本为已读入的字符去掉最后一个
+                tokens.add(table.acceptToken(lastAcceptState), tokenStart, curPrt - 1 - tokenStart, tokenLine);
                 // 回退多余的失败匹配
                 curPrt = lastAcceptPrt + 1;
                 yyLineNo -= rollBackLine;
-                yyText = curBuf.substring(0, curBuf.length() - 1);
                 curState = 0;
-                curBuf = new StringBuilder();
-                tokens.add(new Token(getTokenName(dfa.getAcceptActionMap().get(dfa.getStates().get(lastAcceptState).getUuid()).getCode()), yyText));
                 lastAcceptState = -1;
                 lastAcceptPrt = 0;
             } else {
-                throw new LexException("无法识别的字符，行号：%s，字符：%s", yyLineNo, curChar);
-            }
-        }
-
-        tokens.add(new Token("SP_END", ""));
-
-        return tokens;
-    }
-
-    // 生成状态转义矩阵
-    private List<int[]> getTransMatrix(DFA dfa) {
-        List<int[]> transMatrix = new ArrayList<>();
-        for (int i = 0; i < dfa.getTransformAdjList().size(); i++) {
-            int[] targets = new int[128];
-            Arrays.fill(targets, -1);
-            int other = -1;
-            for (Transform transform : dfa.getTransformAdjList().get(i)) {
-                if (transform.getAlpha() == SpAlpha.OTHER.getIndex() || transform.getAlpha() == SpAlpha.ANY.getIndex()) {
-                    other = transform.getTarget();
-                } else {
-                    targets[dfa.getAlphabet().get(transform.getAlpha()).charAt(0)] = transform.getTarget();
-                }
+                state.position = curPrt;
+                state.line = yyLineNo;
+                throw new LexException(yyLineNo, "无法识别的字符，行号：%s，字符：%s", yyLineNo, curChar);
             }
-            if (other != -1) {
-                for (int j = 0; j < targets.length; j++) {
-                    if (targets[j] == -1) {
-                        targets[j] = other;
-                    }
-                }
-            }
-            transMatrix.add(targets);
         }
-        return transMatrix;
+        state.position = curPrt;
+        state.line = yyLineNo;
     }
 
-    // 生成接受状态列表
-    private List<Integer> getAcceptList(DFA dfa) {
-        List<Integer> acceptList = new ArrayList<>(dfa.getStateCount());
-        for (int i = 0; i < dfa.getStates().size(); i++) {
-            if (dfa.getAcceptStates().contains(dfa.getStates().get(i))) {
-                acceptList.add(i);
-            } else {
-                acceptList.add(-1);
-            }
-        }
-        return acceptList;
+    @AllArgsConstructor
+    private static class ScanState {
+        private int position;
+        private int line;
     }
 
-    // 拆解动作代码
-    private String getTokenName(String actionCode) {
-        return actionCode.replace(" ", "")
-                .replace("return", "")
-                .replace(";", "")
-                .replace("(", "")
-                .replace(")", "");
+    @AllArgsConstructor
+    private static class ChunkResult {
+        private final TokenBuffer tokens;
+        private final ScanState state;
+        private final LexException error;
     }
 }
@@ -0,0 +1,260 @@
+package cn.seu.cs.minicc.compiler.lex;
+
+import cn.seu.cs.minicc.compiler.exception.LexException;
+import cn.seu.cs.minicc.compiler.lex.table.LexTable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * 边读入边分析的词法Token流
+ * <p>
+ * 源码按块从Reader读入，只保留从当前Token起始位置开始的窗口，"\r\n"在读入时归一化为"\n"；
+ * 扫描逻辑与 LexParser.tokenize 完全一致，注释与空白符在流中直接过滤，
+ * 遇到未匹配符号立即抛出异常。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public class LexTokenStream implements TokenStream {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final LexTable table;
+    private final Reader reader;
+    private final String[] kindNames;
+    private final boolean[] skippable;
+    private final int endKind;
+    private final int unMatchKind;
+    // 由完整源码构造时保留的源码
+    private CharSequence source;
+
+    // 输入窗口：window[0, limit) 对应源码位置 [base, base + limit)
+    private final char[] chunk = new char[CHUNK_SIZE];
+    private char[] window = new char[CHUNK_SIZE * 2];
+    private int base = 0;
+    private int limit = 0;
+    private boolean eof = false;
+    private boolean pendingCR = false;
+
+    // 扫描状态
+    private int curState;
+    private int curPrt = 0;
+    private int yyLineNo = 1;
+    private boolean ended = false;
+
+    // 当前Token
+    private int kind = -1;
+    private int start;
+    private int length;
+    private int line;
+
+    public LexTokenStream(Reader reader, LexTable table) {
+        this.table = table;
+        this.reader = reader;
+        this.curState = table.getStartState();
+        String[] tokenNames = table.getTokenNames();
+        this.endKind = tokenNames.length;
+        this.kindNames = Arrays.copyOf(tokenNames, tokenNames.length + 1);
+        this.kindNames[endKind] = TokenBuffer.END_NAME;
+        this.skippable = TokenStream.skippableKinds(kindNames);
+        this.unMatchKind = Arrays.asList(kindNames).indexOf(TokenName.UN_MATCH.getName());
+    }
+
+    /**
+     * 源码预先归一化换行并保留，Token文本可按位置从中截取
+     */
+    public LexTokenStream(CharSequence sourceCode, LexTable table) {
+        this(new CharSequenceReader(sourceCode.toString().replace("\r\n", "\n")), table);
+        this.source = ((CharSequenceReader) reader).sequence;
+    }
+
+    @Override
+    public boolean next() throws LexException {
+        while (true) {
+            if (!ensure(curPrt)) {
+                if (ended) {
+                    return false;
+                }
+                ended = true;
+                setToken(endKind, curPrt, 0, yyLineNo);
+                return true;
+            }
+            compact(curPrt);
+            int tokenStart = curPrt;
+            int tokenLine = yyLineNo;
+            int rollBackLine = 0;
+            int lastAcceptState = -1;
+            int lastAcceptPrt = 0;
+            char curChar = ' ';
+            // 当前状态未结束
+            while (curState != -1) {
+                curChar = window[curPrt - base];
+                curPrt++;
+                if (curChar == '\n') {
+                    yyLineNo++;
+                    rollBackLine++;
+                }
+                curState = table.next(curState, curChar);
+                // 半路到达接受状态
+                if (curState != -1 && table.isAccept(curState)) {
+                    lastAcceptState = curState;
+                    lastAcceptPrt = curPrt - 1;
+                    rollBackLine = 0;
+                }
+                if (!ensure(curPrt)) {
+                    break;
+                }
+            }
+            if (lastAcceptState == -1) {
+                throw new LexException(yyLineNo, "无法识别的字符，行号：%s，字符：%s", yyLineNo, curChar);
+            }
+            // Token文本为已读入的字符去掉最后一个
+            int tokenKind = table.acceptToken(lastAcceptState);
+            int tokenLength = curPrt - 1 - tokenStart;
+            // 回退多余的失败匹配
+            curPrt = lastAcceptPrt + 1;
+            yyLineNo -= rollBackLine;
+            curState = 0;
+            if (tokenKind == unMatchKind) {
+                throw new LexException(tokenLine, "Token中存在未匹配符号，行号：%s", tokenLine);
+            }
+            if (!skippable[tokenKind] || (tokenLength == 1 && window[tokenStart - base] == '\n')) {
+                setToken(tokenKind, tokenStart, tokenLength, tokenLine);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public int kind() {
+        return kind;
+    }
+
+    @Override
+    public String name() {
+        return kindNames[kind];
+    }
+
+    @Override
+    public String literal() {
+        return new String(window, start - base, length);
+    }
+
+    @Override
+    public int line() {
+        return line;
+    }
+
+    @Override
+    public int start() {
+        return start;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public CharSequence getSource() {
+        return source;
+    }
+
+    @Override
+    public String[] getKindNames() {
+        return kindNames;
+    }
+
+    private void setToken(int kind, int start, int length, int line) {
+        this.kind = kind;
+        this.start = start;
+        this.length = length;
+        this.line = line;
+    }
+
+    // 确保源码位置position已读入窗口，已到达输入末尾时返回false
+    private boolean ensure(int position) throws LexException {
+        while (position >= base + limit) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 丢弃position之前不再需要的字符
+    private void compact(int position) {
+        int discard = position - base;
+        if (discard >= window.length / 2) {
+            System.arraycopy(window, discard, window, 0, limit - discard);
+            limit -= discard;
+            base = position;
+        }
+    }
+
+    private boolean fill() throws LexException {
+        if (eof) {
+            return false;
+        }
+        int count;
+        try {
+            count = reader.read(chunk, 0, chunk.length);
+        } catch (IOException e) {
+            throw new LexException("读取源代码失败：%s", e.getMessage());
+        }
+        if (limit + count + 1 > window.length) {
+            window = Arrays.copyOf(window, Math.max(window.length * 2, limit + count + 1));
+        }
+        if (count == -1) {
+            eof = true;
+            if (pendingCR) {
+                pendingCR = false;
+                window[limit++] = '\r';
+                return true;
+            }
+            return false;
+        }
+        // "\r\n"归一化为"\n"，块末尾的'\r'留待下一块确定
+        for (int i = 0; i < count; i++) {
+            char c = chunk[i];
+            if (pendingCR) {
+                pendingCR = false;
+                if (c != '\n') {
+                    window[limit++] = '\r';
+                }
+            }
+            if (c == '\r') {
+                pendingCR = true;
+            } else {
+                window[limit++] = c;
+            }
+        }
+        return true;
+    }
+
+    private static class CharSequenceReader extends Reader {
+        private final CharSequence sequence;
+        private int position = 0;
+
+        CharSequenceReader(CharSequence sequence) {
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position >= sequence.length()) {
+                return -1;
+            }
+            int count = Math.min(length, sequence.length() - position);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = sequence.charAt(position++);
+            }
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
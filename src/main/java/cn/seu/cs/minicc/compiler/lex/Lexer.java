@@ -0,0 +1,31 @@
+package cn.seu.cs.minicc.compiler.lex;
+
+import cn.seu.cs.minicc.compiler.exception.LexException;
+
+import java.util.List;
+
+/**
+ * 词法分析器
+ * <p>
+ * 表驱动的 LexParser 与直接编码的 MiniCScanner 产生完全相同的Token序列。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/17
+ */
+public interface Lexer {
+    /**
+     * 词法分析
+     *
+     * @param sourceCode 预编译后的源代码
+     * @return Token序列，以SP_END结尾
+     * @throws LexException 无法识别的字符
+     */
+    TokenBuffer tokenize(String sourceCode) throws LexException;
+
+    /**
+     * 词法分析，结果转换为Token对象列表
+     */
+    default List<Token> lexSourceCode(String sourceCode) throws LexException {
+        return tokenize(sourceCode).toTokens();
+    }
+}
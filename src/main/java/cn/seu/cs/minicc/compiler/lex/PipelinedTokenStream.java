@@ -0,0 +1,246 @@
+package cn.seu.cs.minicc.compiler.lex;
+
+import cn.seu.cs.minicc.compiler.exception.LexException;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 在另一线程上预先读取的Token流
+ * <p>
+ * 生产者线程从上游Token流中按批读取Token，写入容量固定的单生产者单消费者环形缓冲区；
+ * 消费者（通常为语法分析）在调用线程上逐个取出。两端只通过两个递增的序号同步，不使用锁，
+ * 缓冲区满时生产者等待，因此内存占用有上界。
+ * <p>
+ * 上游保留源码时批中只记录Token的位置，文本在消费者调用 literal 时才截取；否则由生产者复制文本。
+ * Token的顺序与上游完全一致；上游抛出的异常在消费者读到出错位置时原样抛出，
+ * 与顺序读取时的行为相同。提前结束读取时应调用 close 以结束生产者线程。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public class PipelinedTokenStream implements TokenStream {
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    public static final int DEFAULT_CAPACITY = 16;
+    private static final int SPIN_TIMES = 100;
+    private static final long PARK_NANOS = 20_000;
+
+    /**
+     * 一批Token，由生产者填满后整体发布
+     */
+    private static class Batch {
+        private final int[] kinds;
+        private final int[] lines;
+        private final int[] starts;
+        private final int[] lengths;
+        // 上游不保留源码时的Token文本
+        private final String[] literals;
+        private int size;
+        // 上游结束或出错后的最后一批
+        private boolean last;
+        private Throwable error;
+
+        Batch(int capacity, boolean copyLiterals) {
+            kinds = new int[capacity];
+            lines = new int[capacity];
+            starts = new int[capacity];
+            lengths = new int[capacity];
+            literals = copyLiterals ? new String[capacity] : null;
+        }
+    }
+
+    private final TokenStream upstream;
+    private final String[] kindNames;
+    private final CharSequence source;
+    private final int batchSize;
+    private final Batch[] ring;
+    private final int mask;
+    // 生产者已发布的批数与消费者已用完的批数，两者之差即缓冲区中的批数
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private volatile boolean closed = false;
+
+    // 消费者状态
+    private Batch current;
+    private int index;
+    private long readCount = 0;
+
+    /**
+     * 在新的守护线程上读取上游
+     */
+    public PipelinedTokenStream(TokenStream upstream) {
+        this(upstream, task -> {
+            Thread thread = new Thread(task, "minicc-lexer");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * @param executor 运行生产者的线程，生产者会一直占用该线程直到上游结束或 close
+     */
+    public PipelinedTokenStream(TokenStream upstream, Executor executor) {
+        this(upstream, executor, DEFAULT_BATCH_SIZE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param batchSize 每批的Token数
+     * @param capacity  缓冲区的批数，须为2的幂
+     */
+    PipelinedTokenStream(TokenStream upstream, Executor executor, int batchSize, int capacity) {
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("capacity must be a power of 2: " + capacity);
+        }
+        this.upstream = upstream;
+        this.kindNames = upstream.getKindNames();
+        this.source = upstream.getSource();
+        this.batchSize = batchSize;
+        this.ring = new Batch[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Batch(batchSize, source == null);
+        }
+        this.mask = capacity - 1;
+        executor.execute(this::produce);
+    }
+
+    private void produce() {
+        long sequence = 0;
+        while (true) {
+            // 等待消费者空出一个槽位
+            int spins = 0;
+            while (sequence - consumed.get() >= ring.length) {
+                if (closed) {
+                    return;
+                }
+                spins = idle(spins);
+            }
+            Batch batch = ring[(int) sequence & mask];
+            batch.size = 0;
+            batch.last = false;
+            batch.error = null;
+            try {
+                while (batch.size < batchSize && !closed) {
+                    if (!upstream.next()) {
+                        batch.last = true;
+                        break;
+                    }
+                    batch.kinds[batch.size] = upstream.kind();
+                    batch.lines[batch.size] = upstream.line();
+                    batch.starts[batch.size] = upstream.start();
+                    batch.lengths[batch.size] = upstream.length();
+                    if (batch.literals != null) {
+                        batch.literals[batch.size] = upstream.literal();
+                    }
+                    batch.size++;
+                }
+            } catch (Throwable e) {
+                batch.error = e;
+                batch.last = true;
+            }
+            // 发布，批内容对消费者可见
+            published.lazySet(++sequence);
+            if (batch.last || closed) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean next() throws LexException {
+        while (current == null || index + 1 >= current.size) {
+            if (current != null) {
+                if (current.last) {
+                    rethrow(current.error);
+                    return false;
+                }
+                // 当前批已读完，归还槽位
+                current = null;
+                consumed.lazySet(++readCount);
+            }
+            int spins = 0;
+            while (published.get() <= readCount) {
+                if (closed) {
+                    throw new LexException("Token流已关闭");
+                }
+                spins = idle(spins);
+            }
+            current = ring[(int) readCount & mask];
+            index = -1;
+        }
+        index++;
+        return true;
+    }
+
+    private static void rethrow(Throwable error) {
+        if (error instanceof RuntimeException e) {
+            throw e;
+        } else if (error instanceof Error e) {
+            throw e;
+        } else if (error != null) {
+            throw new LexException("读取Token失败：%s", error.getMessage());
+        }
+    }
+
+    // 先自旋，之后短暂挂起
+    private static int idle(int spins) {
+        if (spins < SPIN_TIMES) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return spins + 1;
+    }
+
+    @Override
+    public int kind() {
+        return current.kinds[index];
+    }
+
+    @Override
+    public String name() {
+        return kindNames[current.kinds[index]];
+    }
+
+    @Override
+    public String literal() {
+        if (current.literals != null) {
+            return current.literals[index];
+        }
+        int start = current.starts[index];
+        return source.subSequence(start, start + current.lengths[index]).toString();
+    }
+
+    @Override
+    public int line() {
+        return current.lines[index];
+    }
+
+    @Override
+    public int start() {
+        return current.starts[index];
+    }
+
+    @Override
+    public int length() {
+        return current.lengths[index];
+    }
+
+    @Override
+    public CharSequence getSource() {
+        return source;
+    }
+
+    @Override
+    public String[] getKindNames() {
+        return kindNames;
+    }
+
+    /**
+     * 结束生产者线程，之后不能再读取
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
@@ -0,0 +1,254 @@
+package cn.seu.cs.minicc.compiler.lex;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 词法分析结果的紧凑存储
+ * <p>
+ * Token以并行的int数组保存（类别、在源码中的起始位置、长度、行号），不为每个Token分配对象；
+ * 类别为词法分析表中的Token编号，最后一个类别固定为SP_END。
+ * Token文本只在调用 literal 时才从源码中截取。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/17
+ */
+public class TokenBuffer {
+    public static final String END_NAME = "SP_END";
+    private static final int MIN_CAPACITY = 16;
+
+    @Getter
+    private final String source;
+    @Getter
+    private final String[] kindNames;
+    @Getter
+    private final int endKind;
+
+    private int[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int size;
+
+    /**
+     * @param source     Token所在的源码
+     * @param tokenNames 词法分析表中的Token名称
+     */
+    public TokenBuffer(String source, String[] tokenNames) {
+        this(source, tokenNames, source.length() / 3);
+    }
+
+    /**
+     * @param capacity 预估的Token数
+     */
+    public TokenBuffer(String source, String[] tokenNames, int capacity) {
+        this.source = source;
+        this.endKind = tokenNames.length;
+        this.kindNames = Arrays.copyOf(tokenNames, tokenNames.length + 1);
+        this.kindNames[endKind] = END_NAME;
+        capacity = Math.max(MIN_CAPACITY, capacity);
+        this.kinds = new int[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+    }
+
+    public void add(int kind, int start, int length, int line) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        kinds[size] = kind;
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        size++;
+    }
+
+    /**
+     * 追加另一段同一源码上的Token，行号加上lineOffset
+     */
+    public void append(TokenBuffer other, int lineOffset) {
+        append(other, 0, other.size, 0, lineOffset);
+    }
+
+    /**
+     * 追加other中下标为[from, to)的Token，起始位置加上startOffset，行号加上lineOffset
+     */
+    public void append(TokenBuffer other, int from, int to, int startOffset, int lineOffset) {
+        int count = to - from;
+        int total = size + count;
+        if (total > kinds.length) {
+            int capacity = Math.max(total, size * 2);
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        System.arraycopy(other.kinds, from, kinds, size, count);
+        System.arraycopy(other.lengths, from, lengths, size, count);
+        for (int i = 0; i < count; i++) {
+            starts[size + i] = other.starts[from + i] + startOffset;
+            lines[size + i] = other.lines[from + i] + lineOffset;
+        }
+        size = total;
+    }
+
+    /**
+     * 追加结束符SP_END
+     */
+    public void addEnd(int line) {
+        add(endKind, source.length(), 0, line);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int kind(int index) {
+        return kinds[index];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    public String name(int index) {
+        return kindNames[kinds[index]];
+    }
+
+    public String literal(int index) {
+        return source.substring(starts[index], starts[index] + lengths[index]);
+    }
+
+    /**
+     * Token文本是否恰为单个字符c，不截取文本
+     */
+    public boolean literalIs(int index, char c) {
+        return lengths[index] == 1 && source.charAt(starts[index]) == c;
+    }
+
+    public Token token(int index) {
+        return new Token(name(index), literal(index));
+    }
+
+    /**
+     * 以流的方式遍历，跳过注释与换行以外的空白符
+     */
+    public TokenStream stream() {
+        return stream(0, size);
+    }
+
+    /**
+     * 以流的方式遍历下标为[from, to)的Token，其后以SP_END结尾
+     */
+    public TokenStream stream(int from, int to) {
+        boolean[] skippable = TokenStream.skippableKinds(kindNames);
+        int end = size - 1;
+        return new TokenStream() {
+            private int index = from - 1;
+
+            @Override
+            public boolean next() {
+                if (index >= end) {
+                    index = size;
+                    return false;
+                }
+                while (++index < to) {
+                    if (!skippable[kinds[index]] || literalIs(index, '\n')) {
+                        return true;
+                    }
+                }
+                // 范围之后直接跳到末尾的SP_END
+                index = end;
+                return kinds[end] == endKind;
+            }
+
+            @Override
+            public int kind() {
+                return kinds[index];
+            }
+
+            @Override
+            public String name() {
+                return TokenBuffer.this.name(index);
+            }
+
+            @Override
+            public String literal() {
+                return TokenBuffer.this.literal(index);
+            }
+
+            @Override
+            public int line() {
+                return lines[index];
+            }
+
+            @Override
+            public int start() {
+                return starts[index];
+            }
+
+            @Override
+            public int length() {
+                return lengths[index];
+            }
+
+            @Override
+            public CharSequence getSource() {
+                return source;
+            }
+
+            @Override
+            public String[] getKindNames() {
+                return kindNames;
+            }
+        };
+    }
+
+    public List<Token> toTokens() {
+        List<Token> tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tokens.add(token(i));
+        }
+        return tokens;
+    }
+
+    /**
+     * 由Token列表构造，源码为各Token文本依次拼接
+     */
+    public static TokenBuffer of(List<Token> tokens) {
+        List<String> names = new ArrayList<>();
+        StringBuilder source = new StringBuilder();
+        for (Token token : tokens) {
+            source.append(token.getLiteral());
+            if (!END_NAME.equals(token.getName()) && !names.contains(token.getName())) {
+                names.add(token.getName());
+            }
+        }
+        TokenBuffer buffer = new TokenBuffer(source.toString(), names.toArray(new String[0]));
+        int start = 0, line = 1;
+        for (Token token : tokens) {
+            String literal = token.getLiteral();
+            int kind = END_NAME.equals(token.getName()) ? buffer.endKind : names.indexOf(token.getName());
+            buffer.add(kind, start, literal.length(), line);
+            start += literal.length();
+            line += (int) literal.chars().filter(c -> c == '\n').count();
+        }
+        return buffer;
+    }
+}
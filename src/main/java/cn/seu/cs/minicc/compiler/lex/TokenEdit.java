@@ -0,0 +1,22 @@
+package cn.seu.cs.minicc.compiler.lex;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 增量词法分析的结果
+ * <p>
+ * 旧Token序列中下标为[from, oldTo)的Token被替换为新序列中下标为[from, newTo)的Token，
+ * 其余Token相同，编辑之后的部分仅平移了位置与行号。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+@Getter
+@AllArgsConstructor
+public class TokenEdit {
+    private final TokenBuffer tokens;
+    private final int from;
+    private final int oldTo;
+    private final int newTo;
+}
@@ -0,0 +1,68 @@
+package cn.seu.cs.minicc.compiler.lex;
+
+import cn.seu.cs.minicc.compiler.exception.LexException;
+
+/**
+ * 按需拉取的Token流
+ * <p>
+ * 注释与空白符在流中直接过滤，仅保留恰为单个换行符的Token以维护行号；流以SP_END结尾。
+ * 当前Token的各项属性在下一次调用 next 之前有效。读取结束或出错后应调用 close 释放流占用的资源。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public interface TokenStream extends AutoCloseable {
+    /**
+     * 前进到下一个Token
+     *
+     * @return 流已结束时返回false
+     * @throws LexException 无法识别的字符或未匹配符号
+     */
+    boolean next() throws LexException;
+
+    int kind();
+
+    String name();
+
+    String literal();
+
+    int line();
+
+    /**
+     * 当前Token在源码中的起始位置，换行已归一化
+     */
+    int start();
+
+    int length();
+
+    /**
+     * 流所分析的源码，换行已归一化，Token文本为其中[start, start + length)的部分；
+     * 边读入边分析、不保留源码时为null
+     */
+    default CharSequence getSource() {
+        return null;
+    }
+
+    /**
+     * Token类别名称，下标为类别
+     */
+    String[] getKindNames();
+
+    /**
+     * 释放流占用的资源，之后不能再读取，默认无操作
+     */
+    @Override
+    default void close() {
+    }
+
+    /**
+     * 标记各类别是否为注释或空白符，流中这些Token除单个换行符外均被跳过
+     */
+    static boolean[] skippableKinds(String[] kindNames) {
+        boolean[] skippable = new boolean[kindNames.length];
+        for (int kind = 0; kind < kindNames.length; kind++) {
+            skippable[kind] = TokenName.COMMENT.equals(kindNames[kind]) || TokenName.WHITESPACE.equals(kindNames[kind]);
+        }
+        return skippable;
+    }
+}
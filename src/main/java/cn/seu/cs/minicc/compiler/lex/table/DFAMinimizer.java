@@ -0,0 +1,198 @@
+package cn.seu.cs.minicc.compiler.lex.table;
+
+import cn.seu.cs.minicc.compiler.exception.LexException;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * 基于Hopcroft算法的DFA最小化
+ * <p>
+ * 无转移（-1）视为一个单独的陷阱状态参与划分：它在初始划分中独占一块，单元素块不会再被拆分，
+ * 因此显式的死状态（非接受且只转移到自身或陷阱）也不会与它合并，最小化后仍是一个真实状态，
+ * 这样最小化前后词法分析器读入的字符序列完全一致；接受状态按Token编号区分初始划分。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/17
+ */
+public class DFAMinimizer {
+    private static final int SINK_TOKEN = -2;
+
+    private final int stateCount;
+    private final int columnCount;
+    private final int[] transitions;
+    private final int[] acceptTokens;
+
+    // 划分：elements中同一块的状态连续存放，块b占据[first[b], end[b])
+    private final int[] elements;
+    private final int[] location;
+    private final int[] blockOf;
+    private final int[] first;
+    private final int[] end;
+    private final int[] marked;
+    private int blockCount;
+
+    /**
+     * @param stateCount   状态数
+     * @param columnCount  每个状态的转移列数
+     * @param transitions  下标为 状态 × 列数 + 列 的转移表，-1表示无转移
+     * @param acceptTokens 每个状态的Token编号，非接受状态为-1
+     */
+    public DFAMinimizer(int stateCount, int columnCount, int[] transitions, int[] acceptTokens) {
+        this.stateCount = stateCount;
+        this.columnCount = columnCount;
+        this.transitions = transitions;
+        this.acceptTokens = acceptTokens;
+        int total = stateCount + 1;
+        this.elements = new int[total];
+        this.location = new int[total];
+        this.blockOf = new int[total];
+        this.first = new int[total];
+        this.end = new int[total];
+        this.marked = new int[total];
+    }
+
+    /**
+     * 计算最小化后的状态编号
+     *
+     * @param keepState 最小化后编号需为0的原状态
+     * @return 原状态到新状态的映射，长度为stateCount，新状态数为最大值+1
+     */
+    public int[] minimize(int keepState) {
+        int sink = stateCount;
+        initPartition();
+        int[][] inverse = inverseTransitions();
+        Deque<Integer> worklist = new ArrayDeque<>();
+        boolean[] inWorklist = new boolean[stateCount + 1];
+        for (int b = 0; b < blockCount; b++) {
+            worklist.add(b);
+            inWorklist[b] = true;
+        }
+        int[] touched = new int[stateCount + 1];
+        while (!worklist.isEmpty()) {
+            int splitter = worklist.poll();
+            inWorklist[splitter] = false;
+            int[] members = Arrays.copyOfRange(elements, first[splitter], end[splitter]);
+            for (int column = 0; column < columnCount; column++) {
+                int touchedCount = 0;
+                // 标记所有经column转移到splitter中的状态
+                for (int target : members) {
+                    int[] sources = inverse[column * (stateCount + 1) + target];
+                    for (int source : sources) {
+                        int block = blockOf[source];
+                        int slot = first[block] + marked[block];
+                        int other = elements[slot];
+                        elements[location[source]] = other;
+                        location[other] = location[source];
+                        elements[slot] = source;
+                        location[source] = slot;
+                        if (marked[block]++ == 0) {
+                            touched[touchedCount++] = block;
+                        }
+                    }
+                }
+                // 被部分标记的块拆分为两块
+                for (int i = 0; i < touchedCount; i++) {
+                    int block = touched[i];
+                    int count = marked[block];
+                    marked[block] = 0;
+                    if (count == end[block] - first[block]) {
+                        continue;
+                    }
+                    int split = blockCount++;
+                    first[split] = first[block];
+                    end[split] = first[block] + count;
+                    first[block] = end[split];
+                    for (int j = first[split]; j < end[split]; j++) {
+                        blockOf[elements[j]] = split;
+                    }
+                    if (inWorklist[block] || count <= end[block] - first[block]) {
+                        worklist.add(split);
+                        inWorklist[split] = true;
+                    } else {
+                        worklist.add(block);
+                        inWorklist[block] = true;
+                    }
+                }
+            }
+        }
+        // 重新编号：keepState所在块为0，其余按最小原状态的顺序编号；陷阱状态不在映射中，每个原状态都有非负编号
+        int[] blockIds = new int[blockCount];
+        Arrays.fill(blockIds, -1);
+        int nextId = 0;
+        blockIds[blockOf[keepState]] = nextId++;
+        for (int state = 0; state < stateCount; state++) {
+            if (blockIds[blockOf[state]] == -1) {
+                blockIds[blockOf[state]] = nextId++;
+            }
+        }
+        int[] mapping = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            if (blockOf[state] == blockOf[sink]) {
+                throw new LexException("状态 %d 被并入了陷阱状态", state);
+            }
+            mapping[state] = blockIds[blockOf[state]];
+        }
+        return mapping;
+    }
+
+    // 初始划分：陷阱状态、非接受状态以及每种Token的接受状态各为一块；SINK_TOKEN小于所有Token编号，陷阱状态独占0号块
+    private void initPartition() {
+        int total = stateCount + 1;
+        Integer[] order = new Integer[total];
+        for (int i = 0; i < total; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(initialKey(a), initialKey(b)));
+        blockCount = 0;
+        for (int i = 0; i < total; i++) {
+            int state = order[i];
+            if (i == 0 || initialKey(state) != initialKey(order[i - 1])) {
+                if (blockCount > 0) {
+                    end[blockCount - 1] = i;
+                }
+                first[blockCount++] = i;
+            }
+            elements[i] = state;
+            location[state] = i;
+            blockOf[state] = blockCount - 1;
+        }
+        end[blockCount - 1] = total;
+    }
+
+    private int initialKey(int state) {
+        return state == stateCount ? SINK_TOKEN : acceptTokens[state];
+    }
+
+    // 逆转移表：下标为 列 × (状态数+1) + 目标状态，陷阱状态的所有转移指向自身
+    private int[][] inverseTransitions() {
+        int total = stateCount + 1;
+        int[] counts = new int[columnCount * total];
+        for (int state = 0; state < total; state++) {
+            for (int column = 0; column < columnCount; column++) {
+                counts[column * total + target(state, column)]++;
+            }
+        }
+        int[][] inverse = new int[columnCount * total][];
+        for (int i = 0; i < inverse.length; i++) {
+            inverse[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int state = 0; state < total; state++) {
+            for (int column = 0; column < columnCount; column++) {
+                int index = column * total + target(state, column);
+                inverse[index][counts[index]++] = state;
+            }
+        }
+        return inverse;
+    }
+
+    private int target(int state, int column) {
+        if (state == stateCount) {
+            return stateCount;
+        }
+        int target = transitions[state * columnCount + column];
+        return target == -1 ? stateCount : target;
+    }
+}
@@ -0,0 +1,180 @@
+package cn.seu.cs.minicc.compiler.lex.table;
+
+import cn.seu.cs.minicc.compiler.lex.SpAlpha;
+import cn.seu.cs.minicc.compiler.lex.dfa.DFA;
+import cn.seu.cs.minicc.compiler.lex.dfa.State;
+import cn.seu.cs.minicc.compiler.lex.dfa.Transform;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 词法分析运行时所需的DFA状态转移表
+ * <p>
+ * DFA经过最小化，字符按转移行为划分为等价类：ASCII字符通过charClasses查得类别，
+ * 其余字符统一归入otherClass（即各状态的OTHER转移）。状态转移表为一维数组，
+ * 下标为 状态 × 类别数 + 类别，值为目标状态，-1表示无转移；
+ * 接受表记录每个状态对应的Token编号，非接受状态为-1。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/17
+ */
+@Getter
+public class LexTable {
+    public static final int ALPHABET_SIZE = 128;
+    public static final int NO_TOKEN = -1;
+
+    private final int stateCount;
+    private final int startState;
+    private final int classCount;
+    private final int[] charClasses;
+    private final int otherClass;
+    private final int[] transitions;
+    private final int[] acceptTokens;
+    private final String[] tokenNames;
+
+    public LexTable(int stateCount, int startState, int classCount, int[] charClasses, int otherClass,
+                    int[] transitions, int[] acceptTokens, String[] tokenNames) {
+        this.stateCount = stateCount;
+        this.startState = startState;
+        this.classCount = classCount;
+        this.charClasses = charClasses;
+        this.otherClass = otherClass;
+        this.transitions = transitions;
+        this.acceptTokens = acceptTokens;
+        this.tokenNames = tokenNames;
+    }
+
+    public int charClass(char c) {
+        return c < ALPHABET_SIZE ? charClasses[c] : otherClass;
+    }
+
+    public int next(int state, char c) {
+        return transitions[state * classCount + charClass(c)];
+    }
+
+    public int acceptToken(int state) {
+        return acceptTokens[state];
+    }
+
+    public boolean isAccept(int state) {
+        return acceptTokens[state] != NO_TOKEN;
+    }
+
+    public String tokenName(int token) {
+        return tokenNames[token];
+    }
+
+    /**
+     * 由JSON反序列化得到的DFA构造状态转移表，并进行最小化与字符等价类压缩
+     */
+    public static LexTable fromDFA(DFA dfa) {
+        int stateCount = dfa.getTransformAdjList().size();
+        // 生成状态转移矩阵，最后一列为非ASCII字符
+        int columns = ALPHABET_SIZE + 1;
+        int[] transitions = new int[stateCount * columns];
+        Arrays.fill(transitions, -1);
+        for (int i = 0; i < stateCount; i++) {
+            int base = i * columns;
+            int other = -1;
+            for (Transform transform : dfa.getTransformAdjList().get(i)) {
+                if (transform.getAlpha() == SpAlpha.OTHER.getIndex() || transform.getAlpha() == SpAlpha.ANY.getIndex()) {
+                    other = transform.getTarget();
+                } else {
+                    transitions[base + dfa.getAlphabet().get(transform.getAlpha()).charAt(0)] = transform.getTarget();
+                }
+            }
+            if (other != -1) {
+                for (int j = base; j < base + columns; j++) {
+                    if (transitions[j] == -1) {
+                        transitions[j] = other;
+                    }
+                }
+            }
+        }
+        // 生成接受状态列表，Token名称在此处一次性拆解
+        int[] acceptTokens = new int[stateCount];
+        Arrays.fill(acceptTokens, NO_TOKEN);
+        List<String> tokenNames = new ArrayList<>();
+        Set<State> acceptStates = new HashSet<>(dfa.getAcceptStates());
+        for (int i = 0; i < stateCount; i++) {
+            State state = dfa.getStates().get(i);
+            if (acceptStates.contains(state)) {
+                String name = getTokenName(dfa.getAcceptActionMap().get(state.getUuid()).getCode());
+                int token = tokenNames.indexOf(name);
+                if (token == -1) {
+                    token = tokenNames.size();
+                    tokenNames.add(name);
+                }
+                acceptTokens[i] = token;
+            }
+        }
+        // 识别完一个Token后分析器回到0号状态，因此最小化后原0号状态仍编号为0
+        int[] mapping = new DFAMinimizer(stateCount, columns, transitions, acceptTokens).minimize(0);
+        int minStateCount = Arrays.stream(mapping).max().orElse(-1) + 1;
+        int[] minTransitions = new int[minStateCount * columns];
+        int[] minAcceptTokens = new int[minStateCount];
+        for (int i = 0; i < stateCount; i++) {
+            int state = mapping[i];
+            for (int j = 0; j < columns; j++) {
+                int target = transitions[i * columns + j];
+                minTransitions[state * columns + j] = target == -1 ? -1 : mapping[target];
+            }
+            minAcceptTokens[state] = acceptTokens[i];
+        }
+        return withCharClasses(minStateCount, mapping[dfa.getStartStatesIndex().get(0)],
+                minTransitions, minAcceptTokens, tokenNames.toArray(new String[0]));
+    }
+
+    // 转移行为完全相同的字符列合并为同一等价类
+    private static LexTable withCharClasses(int stateCount, int startState, int[] transitions,
+                                            int[] acceptTokens, String[] tokenNames) {
+        int columns = ALPHABET_SIZE + 1;
+        int[] columnClasses = new int[columns];
+        List<Integer> representatives = new ArrayList<>();
+        for (int column = 0; column < columns; column++) {
+            columnClasses[column] = -1;
+            for (int cls = 0; cls < representatives.size(); cls++) {
+                if (sameColumn(transitions, stateCount, columns, column, representatives.get(cls))) {
+                    columnClasses[column] = cls;
+                    break;
+                }
+            }
+            if (columnClasses[column] == -1) {
+                columnClasses[column] = representatives.size();
+                representatives.add(column);
+            }
+        }
+        int classCount = representatives.size();
+        int[] classTransitions = new int[stateCount * classCount];
+        for (int state = 0; state < stateCount; state++) {
+            for (int cls = 0; cls < classCount; cls++) {
+                classTransitions[state * classCount + cls] = transitions[state * columns + representatives.get(cls)];
+            }
+        }
+        return new LexTable(stateCount, startState, classCount, Arrays.copyOf(columnClasses, ALPHABET_SIZE),
+                columnClasses[ALPHABET_SIZE], classTransitions, acceptTokens, tokenNames);
+    }
+
+    private static boolean sameColumn(int[] transitions, int stateCount, int columns, int a, int b) {
+        for (int state = 0; state < stateCount; state++) {
+            if (transitions[state * columns + a] != transitions[state * columns + b]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 拆解动作代码
+    private static String getTokenName(String actionCode) {
+        return actionCode.replace(" ", "")
+                .replace("return", "")
+                .replace(";", "")
+                .replace("(", "")
+                .replace(")", "");
+    }
+}
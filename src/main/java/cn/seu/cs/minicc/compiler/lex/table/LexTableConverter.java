@@ -0,0 +1,38 @@
+package cn.seu.cs.minicc.compiler.lex.table;
+
+import cn.seu.cs.minicc.compiler.lex.DFAParser;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 将MiniC-Lex.json转换为二进制状态转移表
+ * <p>
+ * 用法：java -cp minicc-java.jar cn.seu.cs.minicc.compiler.lex.table.LexTableConverter &lt;json&gt; &lt;bin&gt;
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/17
+ */
+@Slf4j
+public class LexTableConverter {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            log.error("Usage: LexTableConverter <input_json> <output_bin>");
+            return;
+        }
+        Path input = Path.of(args[0]), output = Path.of(args[1]);
+        String json = Files.readString(input, StandardCharsets.UTF_8);
+        LexTable table = LexTable.fromDFA(new DFAParser().fromJson(json));
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            new LexTableIO().write(table, out);
+        }
+        log.info("Converted {} states, {} char classes, {} tokens to {}",
+                table.getStateCount(), table.getClassCount(), table.getTokenNames().length, output);
+    }
+}
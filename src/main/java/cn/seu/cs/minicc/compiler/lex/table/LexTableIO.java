@@ -0,0 +1,106 @@
+package cn.seu.cs.minicc.compiler.lex.table;
+
+import cn.seu.cs.minicc.compiler.exception.LexException;
+import cn.seu.cs.minicc.compiler.util.Utils;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 词法分析状态转移表的二进制格式读写
+ * <pre>
+ * int    magic       'MCLX'
+ * int    version
+ * int    stateCount, startState, alphabetSize, classCount, otherClass, tokenCount
+ * token  { short len; byte[len] name } × tokenCount
+ * byte[] 补齐到4字节对齐
+ * int    charClasses[alphabetSize]
+ * int    transitions[stateCount * classCount]
+ * int    acceptTokens[stateCount]
+ * </pre>
+ * 所有整数均为大端序，字符串为UTF-8。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/17
+ */
+public class LexTableIO {
+    public static final int MAGIC = 0x4D434C58;
+    public static final int VERSION = 2;
+
+    public LexTable fromFile(String path) throws LexException {
+        return read(Utils.readResource(path));
+    }
+
+    public LexTable read(ByteBuffer buffer) throws LexException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new LexException("状态转移表文件格式错误");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new LexException("不支持的状态转移表版本：%s", version);
+            }
+            int stateCount = buffer.getInt();
+            int startState = buffer.getInt();
+            int alphabetSize = buffer.getInt();
+            if (alphabetSize != LexTable.ALPHABET_SIZE) {
+                throw new LexException("不支持的字母表大小：%s", alphabetSize);
+            }
+            int classCount = buffer.getInt();
+            int otherClass = buffer.getInt();
+            String[] tokenNames = new String[buffer.getInt()];
+            for (int i = 0; i < tokenNames.length; i++) {
+                byte[] bytes = new byte[buffer.getShort() & 0xffff];
+                buffer.get(bytes);
+                tokenNames[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            buffer.position((buffer.position() + 3) & ~3);
+            IntBuffer ints = buffer.slice().asIntBuffer();
+            int[] charClasses = new int[alphabetSize];
+            int[] transitions = new int[stateCount * classCount];
+            int[] acceptTokens = new int[stateCount];
+            ints.get(charClasses);
+            ints.get(transitions);
+            ints.get(acceptTokens);
+            return new LexTable(stateCount, startState, classCount, charClasses, otherClass,
+                    transitions, acceptTokens, tokenNames);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new LexException("状态转移表文件已损坏");
+        }
+    }
+
+    public void write(LexTable table, OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(table.getStateCount());
+        out.writeInt(table.getStartState());
+        out.writeInt(LexTable.ALPHABET_SIZE);
+        out.writeInt(table.getClassCount());
+        out.writeInt(table.getOtherClass());
+        out.writeInt(table.getTokenNames().length);
+        for (String name : table.getTokenNames()) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+        while (out.size() % Integer.BYTES != 0) {
+            out.writeByte(0);
+        }
+        for (int cls : table.getCharClasses()) {
+            out.writeInt(cls);
+        }
+        for (int target : table.getTransitions()) {
+            out.writeInt(target);
+        }
+        for (int token : table.getAcceptTokens()) {
+            out.writeInt(token);
+        }
+        out.flush();
+    }
+}
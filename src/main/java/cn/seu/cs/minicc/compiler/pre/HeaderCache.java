@@ -0,0 +1,176 @@
+package cn.seu.cs.minicc.compiler.pre;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 被包含文件的缓存
+ * <p>
+ * 全进程共享，以规范路径为键，文件的修改时间或大小变化时重新读取。
+ * 缓存的是文件内容及逐行去除首尾空白后的行区间，同一头文件被多个源文件包含时不再读盘与重新扫描。
+ * 总大小按字节估计，超出上限时淘汰最久未使用的文件。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public final class HeaderCache {
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+    // 每个条目除内容外的估计开销
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private static volatile HeaderCache instance;
+
+    /**
+     * 已扫描的源文件
+     */
+    @Getter
+    public static final class Header {
+        private final String text;
+        // 各行去除首尾空白后的 [start, end) 区间，依次存放
+        private final int[] lines;
+        private final long modifiedTime;
+        private final long size;
+
+        Header(String text, long modifiedTime, long size) {
+            this.text = text;
+            this.lines = scan(text);
+            this.modifiedTime = modifiedTime;
+            this.size = size;
+        }
+
+        public int lineCount() {
+            return lines.length / 2;
+        }
+
+        long bytes() {
+            return (long) text.length() * 2 + (long) lines.length * 4 + ENTRY_OVERHEAD;
+        }
+
+        /**
+         * 按 '\n' 分行并去除各行首尾空白，不创建子串
+         */
+        static int[] scan(CharSequence text) {
+            int[] lines = new int[32];
+            int size = 0;
+            int pos = 0;
+            int length = text.length();
+            while (pos < length) {
+                int lineEnd = pos;
+                while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                int start = pos, end = lineEnd;
+                while (start < end && text.charAt(start) <= ' ') {
+                    start++;
+                }
+                while (end > start && text.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+                if (size + 2 > lines.length) {
+                    lines = Arrays.copyOf(lines, lines.length * 2);
+                }
+                lines[size++] = start;
+                lines[size++] = end;
+                pos = lineEnd + 1;
+            }
+            return Arrays.copyOf(lines, size);
+        }
+    }
+
+    @Getter
+    private final long maxBytes;
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    // 按访问顺序排列，最久未使用的在最前
+    private final LinkedHashMap<Path, Header> headers = new LinkedHashMap<>(16, 0.75f, true);
+
+    public HeaderCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 获取共享的头文件缓存
+     */
+    public static HeaderCache getInstance() {
+        HeaderCache cache = instance;
+        if (cache == null) {
+            synchronized (HeaderCache.class) {
+                cache = instance;
+                if (cache == null) {
+                    cache = new HeaderCache(DEFAULT_MAX_BYTES);
+                    instance = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * 读取文件，缓存中的内容仍有效时直接返回
+     *
+     * @param path 规范路径
+     */
+    public Header get(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long modifiedTime = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+        synchronized (this) {
+            Header header = headers.get(path);
+            if (header != null && header.modifiedTime == modifiedTime && header.size == size) {
+                hits++;
+                return header;
+            }
+            misses++;
+        }
+        // 读盘与扫描不持有锁。缓存需长期持有内容，不使用 Utils.readSource 的复用缓冲区
+        Header header = new Header(Files.readString(path, StandardCharsets.UTF_8), modifiedTime, size);
+        put(path, header);
+        return header;
+    }
+
+    private synchronized void put(Path path, Header header) {
+        Header old = headers.put(path, header);
+        if (old != null) {
+            bytes -= old.bytes();
+        }
+        bytes += header.bytes();
+        Iterator<Map.Entry<Path, Header>> iterator = headers.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Path, Header> entry = iterator.next();
+            // 超出上限的单个文件本次仍可使用，只是不保留
+            bytes -= entry.getValue().bytes();
+            iterator.remove();
+        }
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return headers.size();
+    }
+
+    public synchronized void clear() {
+        headers.clear();
+        bytes = 0;
+    }
+}
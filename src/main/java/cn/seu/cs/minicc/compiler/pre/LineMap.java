@@ -0,0 +1,92 @@
+package cn.seu.cs.minicc.compiler.pre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 预编译结果的行号来源表
+ * <p>
+ * 输出中连续来自同一文件、行号连续的若干行记为一段，每段只保存起始输出行、文件编号与起始源行号，
+ * 查询时二分查找所在的段。行号均从1开始，与词法分析的行号一致。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public class LineMap {
+    private static final int MIN_CAPACITY = 8;
+
+    private final List<String> files = new ArrayList<>();
+    private int[] starts = new int[MIN_CAPACITY];
+    private int[] fileIds = new int[MIN_CAPACITY];
+    private int[] origins = new int[MIN_CAPACITY];
+    private int size;
+
+    int addFile(String name) {
+        files.add(name);
+        return files.size() - 1;
+    }
+
+    /**
+     * 自输出行 line 起对应文件 fileId 的第 origin 行，与上一段连续时不新增段
+     */
+    void mark(int line, int fileId, int origin) {
+        if (size > 0) {
+            int last = size - 1;
+            if (fileIds[last] == fileId && origins[last] + (line - starts[last]) == origin) {
+                return;
+            }
+            if (starts[last] == line) {
+                fileIds[last] = fileId;
+                origins[last] = origin;
+                return;
+            }
+        }
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            fileIds = Arrays.copyOf(fileIds, size * 2);
+            origins = Arrays.copyOf(origins, size * 2);
+        }
+        starts[size] = line;
+        fileIds[size] = fileId;
+        origins[size] = origin;
+        size++;
+    }
+
+    // 输出行所在的段，不存在时为-1
+    private int segment(int line) {
+        int index = Arrays.binarySearch(starts, 0, size, line);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * 输出行来自的文件
+     */
+    public String file(int line) {
+        int index = segment(line);
+        return index < 0 ? null : files.get(fileIds[index]);
+    }
+
+    /**
+     * 输出行在其来源文件中的行号
+     */
+    public int line(int line) {
+        int index = segment(line);
+        return index < 0 ? line : origins[index] + line - starts[index];
+    }
+
+    /**
+     * 形如 "file:line" 的来源位置
+     */
+    public String origin(int line) {
+        return file(line) + ":" + line(line);
+    }
+
+    public int segmentCount() {
+        return size;
+    }
+
+    public List<String> getFiles() {
+        return List.copyOf(files);
+    }
+}
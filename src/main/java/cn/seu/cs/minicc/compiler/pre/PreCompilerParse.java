@@ -1,60 +1,303 @@
 package cn.seu.cs.minicc.compiler.pre;
 
 import cn.seu.cs.minicc.compiler.exception.PreException;
-import cn.seu.cs.minicc.compiler.util.Utils;
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Getter;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
 
 /**
+ * 预编译 处理include
+ * <p>
+ * 逐行扫描源码并写入同一个输出缓冲区，行首为 '#' 时才解析预编译指令。
+ * 被包含文件通过 HeaderCache 读取，多次编译共享同一头文件时不再读盘与重新扫描。
+ * include 递归展开，被包含文件中的相对路径相对于该文件所在目录；
+ * 支持 #pragma once 与 #ifndef/#define/#endif 形式的头文件保护，循环包含时报错。
+ * include 行替换为被包含文件的内容，其余指令行与被跳过的行输出为空行，输出各行的来源位置记录在 LineMap 中。
+ *
  * @author Shuxin Wang <shuxinwang662@gmail.com>
  * Created on 2023/12/23
  */
 public class PreCompilerParse {
-    public static final Pattern INCLUDE_PATTERN = Pattern.compile("^#include\\s+\"(.*?)\"$");
+    private static final String SOURCE_NAME = "<source>";
 
-    @Data
-    @AllArgsConstructor
-    public static class Record {
-        private int line;
-        private List<String> content;
-        private String path;
+    /**
+     * 头文件保护的识别状态
+     */
+    private enum GuardState {
+        // 尚未遇到非空行
+        NONE,
+        // 首个非空行为#ifndef，尚未闭合
+        OPEN,
+        // 对应的#endif已出现，之后只有空行
+        CLOSED,
+        // 不是头文件保护的形式
+        INVALID
+    }
+
+    /**
+     * 正在处理的文件
+     */
+    private static class Frame {
+        private final CharSequence text;
+        private final int[] lines;
+        // 规范路径，源码不来自文件时为null
+        private final Path path;
+        // 被包含文件的查找目录
+        private final Path dir;
+        private final int fileId;
+        // 已处理的行数
+        private int line = 0;
+        // 条件指令的嵌套深度，以及开始跳过时的深度
+        private int depth = 0;
+        private int skipDepth = -1;
+        private GuardState guardState = GuardState.NONE;
+        private String guard;
+
+        Frame(CharSequence text, int[] lines, Path path, Path dir, int fileId) {
+            this.text = text;
+            this.lines = lines;
+            this.path = path;
+            this.dir = dir;
+            this.fileId = fileId;
+        }
+    }
+
+    @Getter
+    private final String code;
+    @Getter
+    private final LineMap lineMap = new LineMap();
+
+    private final StringBuilder out;
+    private int outputLine = 0;
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    private final Set<String> macros = new HashSet<>();
+    private final Set<Path> onceFiles = new HashSet<>();
+    // 完整受保护的文件及其保护宏
+    private final Map<Path, String> guardMacros = new HashMap<>();
+    private final HeaderCache cache;
+
+    /**
+     * @param basePath 源文件所在目录，为null时为当前目录
+     * @param fileName 源文件名，用于行号来源表，可为null
+     */
+    public PreCompilerParse(CharSequence code, String basePath, String fileName) {
+        this(code, basePath, fileName, HeaderCache.getInstance());
+    }
+
+    /**
+     * @param cache 被包含文件的缓存
+     */
+    public PreCompilerParse(CharSequence code, String basePath, String fileName, HeaderCache cache) {
+        this.cache = cache;
+        this.out = new StringBuilder(code.length() + 16);
+        Path dir = basePath == null ? Path.of("") : Path.of(basePath);
+        Path path = null;
+        if (fileName != null) {
+            try {
+                path = dir.resolve(fileName).toRealPath();
+            } catch (IOException ignored) {
+                // 源码不一定来自文件
+            }
+        }
+        push(code, HeaderCache.Header.scan(code), path, dir, fileName == null ? SOURCE_NAME : fileName);
+        run();
+        this.code = out.toString();
     }
 
     /**
      * 预编译 处理include
      */
     public static String preCompile(String code, String basePath) {
-        List<String> lines = new ArrayList<>(Arrays.stream(code.replaceAll("\r\n", "\n")
-                        .split("\n"))
-                .map(String::trim)
-                .toList());
-        List<Record> patches = new ArrayList<>();
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i);
-            var matcher = INCLUDE_PATTERN.matcher(line);
-            if (matcher.find()) {
-                String path = matcher.group(1);
-                try {
-                    String content = Utils.readCode(path, basePath);
-                    patches.add(new Record(i, Arrays.asList(content.replaceAll("\r\n", "\n").split("\n")), path));
-                } catch (Exception e) {
-                    throw new PreException("Cannot find include file '%s'", path);
+        return new PreCompilerParse(code, basePath, null).getCode();
+    }
+
+    private void push(CharSequence text, int[] lines, Path path, Path dir, String name) {
+        frames.push(new Frame(text, lines, path, dir, lineMap.addFile(name)));
+    }
+
+    private void run() {
+        while (!frames.isEmpty()) {
+            Frame frame = frames.peek();
+            CharSequence text = frame.text;
+            if (frame.line * 2 >= frame.lines.length) {
+                finish(frames.pop());
+                continue;
+            }
+            lineMap.mark(outputLine + 1, frame.fileId, frame.line + 1);
+            // 已去除首尾空白的行区间
+            int start = frame.lines[frame.line * 2], end = frame.lines[frame.line * 2 + 1];
+            frame.line++;
+            if (start < end && text.charAt(start) == '#') {
+                directive(frame, start, end);
+            } else {
+                if (start < end) {
+                    if (frame.depth == 0) {
+                        frame.guardState = GuardState.INVALID;
+                    }
+                    if (frame.skipDepth < 0) {
+                        out.append(text, start, end);
+                    }
                 }
+                newLine();
             }
         }
+    }
+
+    private void newLine() {
+        out.append('\n');
+        outputLine++;
+    }
 
-        int bias = 0;
-        for (Record patch : patches) {
-            lines.remove(patch.getLine() + bias);
-            lines.addAll(patch.getLine() + bias, patch.getContent());
-            bias += patch.getContent().size() - 1;
+    private void directive(Frame frame, int hash, int end) {
+        CharSequence text = frame.text;
+        int start = skipSpaces(text, hash + 1, end);
+        int nameEnd = start;
+        while (nameEnd < end && Character.isLetter(text.charAt(nameEnd))) {
+            nameEnd++;
         }
+        String name = text.subSequence(start, nameEnd).toString();
+        int argStart = skipSpaces(text, nameEnd, end);
+        boolean skipping = frame.skipDepth >= 0;
+        boolean guardLine = false;
+        switch (name) {
+            case "ifdef", "ifndef" -> {
+                String macro = identifier(frame, argStart, end, name);
+                frame.depth++;
+                if (!skipping && macros.contains(macro) != name.equals("ifdef")) {
+                    frame.skipDepth = frame.depth;
+                }
+                if (frame.depth == 1 && frame.guardState == GuardState.NONE && name.equals("ifndef")) {
+                    frame.guardState = GuardState.OPEN;
+                    frame.guard = macro;
+                    guardLine = true;
+                }
+            }
+            case "endif" -> {
+                if (frame.depth == 0) {
+                    throw new PreException("#endif without #if at line %s", frame.line);
+                }
+                if (frame.skipDepth == frame.depth) {
+                    frame.skipDepth = -1;
+                }
+                frame.depth--;
+                if (frame.depth == 0 && frame.guardState == GuardState.OPEN) {
+                    frame.guardState = GuardState.CLOSED;
+                    guardLine = true;
+                }
+            }
+            default -> {
+                if (!skipping) {
+                    switch (name) {
+                        case "define" -> macros.add(identifier(frame, argStart, end, name));
+                        case "pragma" -> {
+                            if ("once".contentEquals(text.subSequence(argStart, end)) && frame.path != null) {
+                                onceFiles.add(frame.path);
+                            }
+                        }
+                        case "include" -> {
+                            include(frame, argStart, end);
+                            return;
+                        }
+                        // 其余指令原样保留
+                        default -> out.append(text, hash, end);
+                    }
+                }
+            }
+        }
+        if (frame.depth == 0 && !guardLine) {
+            frame.guardState = GuardState.INVALID;
+        }
+        newLine();
+    }
 
-        return String.join("\n", lines);
+    private static int skipSpaces(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    // 指令的唯一参数，须为标识符
+    private static String identifier(Frame frame, int start, int end, String directive) {
+        int pos = start;
+        while (pos < end && (Character.isLetterOrDigit(frame.text.charAt(pos)) || frame.text.charAt(pos) == '_')) {
+            pos++;
+        }
+        if (pos == start || skipSpaces(frame.text, pos, end) != end) {
+            throw new PreException("Unsupported #%s directive at line %s", directive, frame.line);
+        }
+        return frame.text.subSequence(start, pos).toString();
+    }
+
+    private void include(Frame frame, int start, int end) {
+        CharSequence text = frame.text;
+        if (frame.depth == 0) {
+            frame.guardState = GuardState.INVALID;
+        }
+        if (end - start < 2 || text.charAt(start) != '"' || text.charAt(end - 1) != '"') {
+            throw new PreException("Invalid include directive '%s'", text.subSequence(start, end).toString());
+        }
+        String name = text.subSequence(start + 1, end - 1).toString();
+        Path file = frame.dir.resolve(name);
+        Path path;
+        try {
+            path = file.toRealPath();
+        } catch (IOException e) {
+            throw new PreException("Cannot find include file '%s'", name);
+        }
+        if (onceFiles.contains(path)) {
+            return;
+        }
+        String guard = guardMacros.get(path);
+        if (guard != null && macros.contains(guard)) {
+            return;
+        }
+        for (Frame active : frames) {
+            if (path.equals(active.path)) {
+                // 正在展开且受保护的文件再次被包含时内容为空，否则为循环包含
+                if (active.guardState == GuardState.OPEN && macros.contains(active.guard)) {
+                    return;
+                }
+                throw new PreException("Circular include: %s", chain(path));
+            }
+        }
+        HeaderCache.Header header;
+        try {
+            header = cache.get(path);
+        } catch (IOException e) {
+            throw new PreException("Cannot find include file '%s'", name);
+        }
+        push(header.getText(), header.getLines(), path, file.getParent() == null ? Path.of("") : file.getParent(),
+                file.normalize().toString());
+    }
+
+    private String chain(Path path) {
+        List<String> names = new ArrayList<>();
+        Iterator<Frame> iterator = frames.descendingIterator();
+        while (iterator.hasNext()) {
+            Frame frame = iterator.next();
+            names.add(frame.path == null ? SOURCE_NAME : frame.path.getFileName().toString());
+        }
+        names.add(path.getFileName().toString());
+        return String.join(" -> ", names);
+    }
+
+    private void finish(Frame frame) {
+        if (frame.depth != 0) {
+            throw new PreException("Unterminated conditional directive in %s", lineMap.getFiles().get(frame.fileId));
+        }
+        if (frame.guardState == GuardState.CLOSED && frame.path != null) {
+            guardMacros.put(frame.path, frame.guard);
+        }
     }
 }
@@ -1,38 +1,81 @@
 package cn.seu.cs.minicc.compiler.util;
 
-import cn.seu.cs.minicc.compiler.Main;
 import cn.seu.cs.minicc.compiler.exception.PreException;
 
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * @author Shuxin Wang <shuxinwang662@gmail.com>
  * Created on 2023/12/24
  */
 public class Utils {
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    // 各线程复用的解码缓冲区
+    private static final ThreadLocal<CharBuffer> SOURCE_BUFFER = ThreadLocal.withInitial(() -> CharBuffer.allocate(0));
+
     public static String readCode(String fileName) {
-        File file = new File(fileName);
-        return readCode(file);
+        return readSource(Path.of(fileName)).toString();
     }
 
     public static String readCode(String fileName, String basePath) {
-        File file = new File(basePath, fileName);
-        return readCode(file);
+        return readSource(new File(basePath, fileName).toPath()).toString();
     }
 
-    private static String readCode(File file) {
+    /**
+     * 内存映射源文件并按UTF-8解码到当前线程复用的缓冲区
+     * <p>
+     * 返回的缓冲区只在本线程下一次调用前有效，需要保留时应转为字符串。
+     */
+    public static CharBuffer readSource(Path path) {
+        ByteBuffer bytes;
         try {
-            return Files.readString(file.toPath(), StandardCharsets.UTF_8);
-        } catch (IOException e1) {
-            throw new PreException("Cannot find file %s", file.getName());
-        } catch (OutOfMemoryError e2) {
-            throw new PreException("File %s is too large", file.getName());
+            bytes = mapFile(path);
+        } catch (IOException e) {
+            throw new PreException("Cannot find file %s", path.getFileName());
+        } catch (IllegalArgumentException e) {
+            throw new PreException("File %s is too large", path.getFileName());
+        }
+        // UTF-8每个字节至多解码为一个字符
+        CharBuffer chars = SOURCE_BUFFER.get();
+        if (chars.capacity() < bytes.remaining()) {
+            chars = CharBuffer.allocate(bytes.remaining());
+            SOURCE_BUFFER.set(chars);
+        }
+        chars.clear();
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CoderResult result = decoder.decode(bytes, chars, true);
+        if (result.isError() || (result = decoder.flush(chars)).isError()) {
+            throw new PreException("Cannot read file %s", path.getFileName());
+        }
+        return chars.flip();
+    }
+
+    public static boolean isBlank(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
         }
+        return true;
     }
 
     public static String getBasePath(String fileName) {
@@ -54,10 +97,24 @@ public class Utils {
         }
     }
 
+    /**
+     * 打开输出文件，经缓冲区写入文件通道，已存在时覆盖
+     */
+    public static Writer openWriter(String basePath, String fileName) {
+        File file = new File(basePath, fileName);
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            return Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), WRITE_BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new PreException("Cannot write file %s", file.getName());
+        }
+    }
+
     public static String readJson(String path) {
         try {
 
-            InputStream inputStream = Main.class.getClassLoader().getResourceAsStream(path);
+            InputStream inputStream = Utils.class.getClassLoader().getResourceAsStream(path);
 
             if (inputStream == null) {
                 throw new PreException("Cannot find file %s", path);
@@ -74,4 +131,30 @@ public class Utils {
             throw new PreException("Cannot read file %s", path);
         }
     }
+
+    /**
+     * 读取二进制资源文件，资源位于文件系统时直接内存映射，位于jar包内时整体读入
+     */
+    public static ByteBuffer readResource(String path) {
+        URL url = Utils.class.getClassLoader().getResource(path);
+        if (url == null) {
+            throw new PreException("Cannot find file %s", path);
+        }
+        try {
+            if ("file".equals(url.getProtocol())) {
+                return mapFile(Path.of(url.toURI()));
+            }
+            try (InputStream inputStream = url.openStream()) {
+                return ByteBuffer.wrap(inputStream.readAllBytes());
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new PreException("Cannot read file %s", path);
+        }
+    }
+
+    public static ByteBuffer mapFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package cn.seu.cs.minicc.compiler.yacc;
+
+/**
+ * 语法分析过程中的移进与规约回调
+ * <p>
+ * 回调顺序即LR分析的动作顺序：叶节点从左到右依次移进，内部节点按后序规约。
+ * 每次回调返回的值压入分析器的值栈，规约时以值栈的形式交还给监听者；
+ * 构造语法树（SyntaxTree）与语法制导的中间代码生成（IRParse）都以此接口接入分析器。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public interface ParseListener {
+    /**
+     * 移进Token
+     *
+     * @param symbol  Token的文法符号编号
+     * @param literal Token文本，重放语法树中未保留的Token时为null
+     * @param line    Token所在行，未知时为0
+     * @return 压入值栈的值
+     */
+    int shift(int symbol, String literal, int line);
+
+    /**
+     * 按产生式规约
+     *
+     * @param producer 产生式编号
+     * @param values   值栈
+     * @param base     产生式右部第一个符号在值栈中的下标
+     * @return 压入值栈的值
+     */
+    int reduce(int producer, int[] values, int base);
+}
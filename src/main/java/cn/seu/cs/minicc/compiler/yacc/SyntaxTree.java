@@ -0,0 +1,382 @@
+package cn.seu.cs.minicc.compiler.yacc;
+
+import cn.seu.cs.minicc.compiler.exception.YaccException;
+import cn.seu.cs.minicc.compiler.yacc.table.ParseTable;
+import cn.seu.cs.minicc.compiler.yacc.table.Reduction;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static cn.seu.cs.minicc.compiler.yacc.grammar.GrammarSymbolType.NON_TERMINAL;
+import static cn.seu.cs.minicc.compiler.yacc.grammar.GrammarSymbolType.TOKEN;
+
+/**
+ * 紧凑存储的语法树
+ * <p>
+ * 节点以编号表示，各属性保存在并行的int数组中：产生式编号（叶节点为LEAF）、文法符号编号、
+ * 子节点在children数组中的起始位置与个数、叶节点的Token文本下标；Token文本与所在行另存于并行数组。
+ * 子节点总是先于父节点创建，因此子节点编号总小于父节点编号。
+ * 节点名称由分析表中的符号名与规约动作得到，不再为每个节点保存字符串。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+public class SyntaxTree implements ParseListener {
+    public static final int LEAF = -1;
+    public static final int NO_NODE = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    @Getter
+    private final ParseTable table;
+
+    private int[] producers;
+    private int[] symbols;
+    private int[] childStarts;
+    private int[] childCounts;
+    private int[] tokens;
+    private int size;
+
+    private int[] children;
+    private int childSize;
+
+    private String[] literals;
+    private int[] lines;
+    private int literalSize;
+
+    @Getter
+    private int root = NO_NODE;
+
+    public SyntaxTree(ParseTable table) {
+        this(table, MIN_CAPACITY);
+    }
+
+    /**
+     * @param capacity 预估的节点数
+     */
+    public SyntaxTree(ParseTable table, int capacity) {
+        this.table = table;
+        capacity = Math.max(MIN_CAPACITY, capacity);
+        this.producers = new int[capacity];
+        this.symbols = new int[capacity];
+        this.childStarts = new int[capacity];
+        this.childCounts = new int[capacity];
+        this.tokens = new int[capacity];
+        this.children = new int[capacity];
+        this.literals = new String[capacity / 2];
+        this.lines = new int[capacity / 2];
+    }
+
+    /**
+     * 添加叶节点
+     *
+     * @param symbol  Token的文法符号编号
+     * @param literal Token文本
+     * @return 节点编号
+     */
+    public int addLeaf(int symbol, String literal) {
+        return addLeaf(symbol, literal, 0);
+    }
+
+    /**
+     * 添加叶节点
+     *
+     * @param symbol  Token的文法符号编号
+     * @param literal Token文本
+     * @param line    Token所在行，未知时为0
+     * @return 节点编号
+     */
+    public int addLeaf(int symbol, String literal, int line) {
+        if (literalSize == literals.length) {
+            literals = Arrays.copyOf(literals, literalSize * 2);
+            lines = Arrays.copyOf(lines, literalSize * 2);
+        }
+        literals[literalSize] = literal;
+        lines[literalSize] = line;
+        return newNode(LEAF, symbol, literalSize++, 0);
+    }
+
+    /**
+     * 按产生式添加内部节点
+     *
+     * @param producer 产生式编号
+     * @param childIds 子节点编号，须已在本树中
+     * @return 节点编号
+     */
+    public int addNode(int producer, int... childIds) {
+        ensureChildren(childIds.length);
+        System.arraycopy(childIds, 0, children, childSize, childIds.length);
+        return newNode(producer, table.getProducerLhs()[producer], -1, childIds.length);
+    }
+
+    @Override
+    public int shift(int symbol, String literal, int line) {
+        return addLeaf(symbol, literal, line);
+    }
+
+    /**
+     * 规约时添加内部节点，子节点按规约动作从值栈中取出
+     */
+    @Override
+    public int reduce(int producer, int[] stack, int base) {
+        Reduction reduction = table.getReductions()[producer];
+        int[] offsets = reduction.getChildren();
+        ensureChildren(offsets.length);
+        for (int i = 0; i < offsets.length; i++) {
+            children[childSize + i] = stack[base + offsets[i]];
+        }
+        return newNode(producer, reduction.getLhs(), -1, offsets.length);
+    }
+
+    void setRoot(int root) {
+        this.root = root;
+    }
+
+    private int newNode(int producer, int symbol, int token, int childCount) {
+        if (size == producers.length) {
+            int capacity = size * 2;
+            producers = Arrays.copyOf(producers, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+            childStarts = Arrays.copyOf(childStarts, capacity);
+            childCounts = Arrays.copyOf(childCounts, capacity);
+            tokens = Arrays.copyOf(tokens, capacity);
+        }
+        producers[size] = producer;
+        symbols[size] = symbol;
+        childStarts[size] = childSize;
+        childCounts[size] = childCount;
+        tokens[size] = token;
+        childSize += childCount;
+        return size++;
+    }
+
+    private void ensureChildren(int count) {
+        if (childSize + count > children.length) {
+            children = Arrays.copyOf(children, Math.max(childSize + count, children.length * 2));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int producer(int node) {
+        return producers[node];
+    }
+
+    public int symbol(int node) {
+        return symbols[node];
+    }
+
+    public boolean isLeaf(int node) {
+        return producers[node] == LEAF;
+    }
+
+    public int childCount(int node) {
+        return childCounts[node];
+    }
+
+    /**
+     * 第index个子节点，与 ASTNode.getByIndex 一致从1开始
+     */
+    public int child(int node, int index) throws YaccException {
+        if (index < 1 || index > childCounts[node]) {
+            throw new YaccException("i超出范围：%s out-of %s", index, childCounts[node]);
+        }
+        return children[childStarts[node] + index - 1];
+    }
+
+    /**
+     * 叶节点的Token文本，内部节点为其名称
+     */
+    public String literal(int node) {
+        return isLeaf(node) ? literals[tokens[node]] : name(node);
+    }
+
+    /**
+     * 叶节点的Token所在行，内部节点与行号未知时为0
+     */
+    public int line(int node) {
+        return isLeaf(node) ? lines[tokens[node]] : 0;
+    }
+
+    /**
+     * 叶节点为Token名称，内部节点为规约动作中的名称
+     */
+    public String name(int node) {
+        return isLeaf(node) ? table.getSymbols()[symbols[node]] : table.getReductions()[producers[node]].getName();
+    }
+
+    /**
+     * 按LR分析的动作顺序重放本树，不使用递归
+     * <p>
+     * 规约动作中未保留的Token同样会移进，其文本为null、行号为0。
+     *
+     * @return 根节点规约得到的值
+     */
+    public int replay(ParseListener listener) {
+        if (root == NO_NODE) {
+            return NO_NODE;
+        }
+        // 节点栈及各节点下一个要处理的右部下标
+        int[] nodes = new int[MIN_CAPACITY];
+        int[] positions = new int[MIN_CAPACITY];
+        int depth = 0;
+        nodes[0] = root;
+        // 与分析器相同的值栈
+        int[] values = new int[MIN_CAPACITY];
+        int top = 0;
+        while (true) {
+            int node = nodes[depth];
+            int producer = producers[node];
+            int position = positions[depth];
+            int rhsLength = table.getProducerRhsLength()[producer];
+            int value;
+            if (position == rhsLength) {
+                top -= rhsLength;
+                value = listener.reduce(producer, values, top);
+                if (depth-- == 0) {
+                    return value;
+                }
+            } else {
+                positions[depth]++;
+                int child = keptChild(node, position);
+                if (child == NO_NODE) {
+                    value = listener.shift(table.rhsSymbol(producer, position), null, 0);
+                } else if (isLeaf(child)) {
+                    value = listener.shift(symbols[child], literals[tokens[child]], lines[tokens[child]]);
+                } else {
+                    if (++depth == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, depth * 2);
+                        positions = Arrays.copyOf(positions, depth * 2);
+                    }
+                    nodes[depth] = child;
+                    positions[depth] = 0;
+                    continue;
+                }
+            }
+            if (top == values.length) {
+                values = Arrays.copyOf(values, top * 2);
+            }
+            values[top++] = value;
+        }
+    }
+
+    // 产生式右部第position个符号对应的子节点，规约动作未保留该符号时为NO_NODE
+    private int keptChild(int node, int position) {
+        int[] offsets = table.getReductions()[producers[node]].getChildren();
+        for (int i = 0; i < offsets.length; i++) {
+            if (offsets[i] == position) {
+                return children[childStarts[node] + i];
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * 转换为 ASTNode 表示的语法树，不使用递归
+     */
+    public ASTNode toNode() {
+        if (root == NO_NODE) {
+            return null;
+        }
+        // 子节点编号小于父节点，按编号从大到小标记可达节点，再从小到大构造
+        boolean[] reachable = new boolean[root + 1];
+        reachable[root] = true;
+        for (int node = root; node >= 0; node--) {
+            if (reachable[node]) {
+                for (int i = 0; i < childCounts[node]; i++) {
+                    reachable[children[childStarts[node] + i]] = true;
+                }
+            }
+        }
+        ASTNode[] nodes = new ASTNode[root + 1];
+        for (int node = 0; node <= root; node++) {
+            if (!reachable[node]) {
+                continue;
+            }
+            if (isLeaf(node)) {
+                nodes[node] = new ASTNode(name(node), TOKEN.getType(), literal(node), new ArrayList<>());
+            } else {
+                String name = name(node);
+                List<ASTNode> list = new ArrayList<>(childCounts[node]);
+                for (int i = 0; i < childCounts[node]; i++) {
+                    list.add(nodes[children[childStarts[node] + i]]);
+                }
+                nodes[node] = new ASTNode(name, NON_TERMINAL.getType(), name, list);
+            }
+        }
+        return nodes[root];
+    }
+
+    /**
+     * 由 ASTNode 表示的语法树构造，按节点名称与子节点名称确定产生式
+     *
+     * @throws YaccException 节点与分析表中的任何产生式均不对应
+     */
+    public static SyntaxTree fromNode(ASTNode node, ParseTable table) throws YaccException {
+        SyntaxTree tree = new SyntaxTree(table);
+        if (node == null) {
+            return tree;
+        }
+        Map<String, Integer> producerIds = new HashMap<>();
+        for (int producer = 0; producer < table.getProducerCount(); producer++) {
+            Reduction reduction = table.getReductions()[producer];
+            StringBuilder signature = new StringBuilder(reduction.getName());
+            for (int offset : reduction.getChildren()) {
+                signature.append(' ').append(table.getSymbols()[table.rhsSymbol(producer, offset)]);
+            }
+            producerIds.putIfAbsent(signature.toString(), producer);
+        }
+        Map<String, Integer> symbolIds = new HashMap<>();
+        for (int symbol = 0; symbol < table.getSymbolCount(); symbol++) {
+            symbolIds.put(table.getSymbols()[symbol], symbol);
+        }
+        // 先序遍历，逆序处理时子节点总在父节点之前
+        List<ASTNode> order = new ArrayList<>();
+        Deque<ASTNode> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            ASTNode current = stack.pop();
+            order.add(current);
+            if (!TOKEN.equals(current.getType()) && current.getChildren() != null) {
+                current.getChildren().forEach(stack::push);
+            }
+        }
+        Map<ASTNode, Integer> ids = new IdentityHashMap<>();
+        for (int i = order.size() - 1; i >= 0; i--) {
+            ASTNode current = order.get(i);
+            if (ids.containsKey(current)) {
+                continue;
+            }
+            if (TOKEN.equals(current.getType())) {
+                Integer symbol = symbolIds.get(current.getName());
+                if (symbol == null) {
+                    throw new YaccException("未知的Token：%s", current.getName());
+                }
+                ids.put(current, tree.addLeaf(symbol, current.getLiteral()));
+                continue;
+            }
+            List<ASTNode> list = current.getChildren() == null ? List.of() : current.getChildren();
+            StringBuilder signature = new StringBuilder(current.getName());
+            int[] childIds = new int[list.size()];
+            for (int j = 0; j < list.size(); j++) {
+                signature.append(' ').append(list.get(j).getName());
+                childIds[j] = ids.get(list.get(j));
+            }
+            Integer producer = producerIds.get(signature.toString());
+            if (producer == null) {
+                throw new YaccException("无法识别的语法树节点：%s", signature);
+            }
+            ids.put(current, tree.addNode(producer, childIds));
+        }
+        tree.setRoot(ids.get(node));
+        return tree;
+    }
+}
@@ -1,25 +1,23 @@
 package cn.seu.cs.minicc.compiler.yacc;
 
+import cn.seu.cs.minicc.compiler.CompilerTables;
+import cn.seu.cs.minicc.compiler.exception.CompileException;
 import cn.seu.cs.minicc.compiler.exception.YaccException;
 import cn.seu.cs.minicc.compiler.lex.Token;
+import cn.seu.cs.minicc.compiler.lex.TokenBuffer;
+import cn.seu.cs.minicc.compiler.lex.TokenStream;
 import cn.seu.cs.minicc.compiler.yacc.grammar.LALR;
-import cn.seu.cs.minicc.compiler.yacc.grammar.LALRActionType;
-import cn.seu.cs.minicc.compiler.yacc.grammar.LALRProducer;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import cn.seu.cs.minicc.compiler.yacc.table.ParseTable;
+import cn.seu.cs.minicc.compiler.yacc.table.Reduction;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static cn.seu.cs.minicc.compiler.lex.TokenName.*;
 import static cn.seu.cs.minicc.compiler.yacc.grammar.GrammarSymbolType.*;
-import static cn.seu.cs.minicc.compiler.yacc.grammar.GrammarSymbolType.NON_TERMINAL;
-import static cn.seu.cs.minicc.compiler.yacc.grammar.LALRActionType.*;
+import static cn.seu.cs.minicc.compiler.yacc.table.ParseTable.*;
 
 /**
  * @author Shuxin Wang <shuxinwang662@gmail.com>
@@ -27,214 +25,281 @@ import static cn.seu.cs.minicc.compiler.yacc.grammar.LALRActionType.*;
  */
 public class YaccParse {
     public static final int WHITESPACE_SYMBOL_ID = -10;
+    private static final int UN_MATCH_SYMBOL_ID = -12;
+    private static final int UNKNOWN_SYMBOL_ID = -13;
 
-    public static final Pattern stringPattern = Pattern.compile("'([^']+)'");
-    public static final Pattern variablePattern = Pattern.compile("\\$\\d+");
+    private static final int INITIAL_DEPTH = 64;
+
+    // 状态栈与值栈，values[i]为states[i + 1]对应符号的语法树节点编号
+    private int[] states = new int[INITIAL_DEPTH];
+    private int[] values = new int[INITIAL_DEPTH];
+    private int top = -1;
+    private int lineNo = 0;
+    // 当前Token的行号
+    private int line = 0;
+    private ParseListener listener;
 
     /**
-     * 分析表单元格
+     * 语法分析
+     *
+     * @param tokens   词法分析结果
+     * @param analyzer LALR分析器
+     * @return 语法树根节点
+     * @throws YaccException 语法错误
      */
-    @Data
-    @AllArgsConstructor
-    @NoArgsConstructor
-    public static class TableCell {
-        private String action;
-        Integer target;
+    public ASTNode parseTokensLALR(List<Token> tokens, LALR analyzer) throws YaccException {
+        return parseTokensLALR(tokens, ParseTable.fromLALR(analyzer));
     }
 
     /**
-     * 符号栈元素
+     * 语法分析
+     *
+     * @param tokens 词法分析结果
+     * @param table  LALR分析表
+     * @return 语法树根节点
+     * @throws YaccException 语法错误
      */
-    @Data
-    @AllArgsConstructor
-    @NoArgsConstructor
-    public static class SymbolStackElement {
-        private String name;
-        private String type;
-        ASTNode node;
-    }
-
-    private final List<SymbolStackElement> symbolStack = new ArrayList<>();
-    private int curRhsLen = 0;
-    private SymbolStackElement curSymbol = null;
-    private final List<Integer> stateStack = new ArrayList<>();
-    private int lineNo = 0;
-    private int currentTokenIndex = 0;
+    public ASTNode parseTokensLALR(List<Token> tokens, ParseTable table) throws YaccException {
+        return toNode(parseTree(TokenBuffer.of(tokens), table, getTokenIds(table)));
+    }
 
     /**
-     * 语法分析
+     * 使用共享的编译器表进行语法分析
      *
-     * @param tokens   词法分析结果
-     * @param analyzer LALR分析器
+     * @param tokens 词法分析结果
+     * @param tables 编译器表
      * @return 语法树根节点
      * @throws YaccException 语法错误
      */
-    public ASTNode parseTokensLALR(List<Token> tokens, LALR analyzer) throws YaccException {
-        // 预处理
+    public ASTNode parseTokensLALR(List<Token> tokens, CompilerTables tables) throws YaccException {
+        return parseTokensLALR(TokenBuffer.of(tokens), tables);
+    }
+
+    /**
+     * 使用共享的编译器表进行语法分析，Token文本仅在移进时截取
+     *
+     * @param tokens 词法分析结果
+     * @param tables 编译器表
+     * @return 语法树根节点
+     * @throws YaccException 语法错误
+     */
+    public ASTNode parseTokensLALR(TokenBuffer tokens, CompilerTables tables) throws YaccException {
+        return toNode(parseTree(tokens, tables));
+    }
+
+    /**
+     * 直接消费按需拉取的Token流进行语法分析，无需先得到完整的Token序列
+     *
+     * @param tokens Token流
+     * @param tables 编译器表
+     * @return 语法树根节点
+     * @throws YaccException 语法错误
+     */
+    public ASTNode parseTokensLALR(TokenStream tokens, CompilerTables tables) throws YaccException {
+        return toNode(parseTree(tokens, tables));
+    }
+
+    /**
+     * 语法分析，得到紧凑存储的语法树
+     *
+     * @param tokens 词法分析结果
+     * @param tables 编译器表
+     * @return 语法树，Token序列中存在分析表之外的Token时为null
+     * @throws YaccException 语法错误
+     */
+    public SyntaxTree parseTree(TokenBuffer tokens, CompilerTables tables) throws YaccException {
+        return parseTree(tokens, tables.getParseTable(), tables.getTokenIds());
+    }
+
+    /**
+     * 直接消费Token流，得到紧凑存储的语法树
+     *
+     * @param tokens Token流
+     * @param tables 编译器表
+     * @return 语法树，Token流中存在分析表之外的Token时为null
+     * @throws YaccException 语法错误
+     */
+    public SyntaxTree parseTree(TokenStream tokens, CompilerTables tables) throws YaccException {
+        SyntaxTree tree = new SyntaxTree(tables.getParseTable());
+        return parse(tokens, tables, tree) ? accept(tree) : null;
+    }
+
+    /**
+     * 语法分析，每次移进与规约时回调listener，不构造语法树
+     *
+     * @param tokens   词法分析结果
+     * @param tables   编译器表
+     * @param listener 移进与规约的回调
+     * @return 是否接受，Token序列中存在分析表之外的Token时为false
+     * @throws YaccException 语法错误
+     */
+    public boolean parse(TokenBuffer tokens, CompilerTables tables, ParseListener listener) throws YaccException {
+        return parse(tokens, tables.getParseTable(), tables.getTokenIds(), listener);
+    }
+
+    /**
+     * 直接消费Token流进行语法分析，每次移进与规约时回调listener
+     *
+     * @param tokens   Token流
+     * @param tables   编译器表
+     * @param listener 移进与规约的回调
+     * @return 是否接受，Token流中存在分析表之外的Token时为false
+     * @throws YaccException 语法错误
+     */
+    public boolean parse(TokenStream tokens, CompilerTables tables, ParseListener listener) throws YaccException {
+        return parse(tokens, tables.getParseTable(), tables.getTokenIds(), listener);
+    }
+
+    /**
+     * 最近一次分析读入的最后一个Token的行号
+     */
+    public int getLine() {
+        return line;
+    }
+
+    private static ASTNode toNode(SyntaxTree tree) {
+        return tree == null ? null : tree.toNode();
+    }
+
+    private SyntaxTree parseTree(TokenBuffer tokens, ParseTable table,
+                                 Map<String, Integer> tokenIds) throws YaccException {
+        SyntaxTree tree = new SyntaxTree(table, tokens.size() * 2);
+        return parse(tokens, table, tokenIds, tree) ? accept(tree) : null;
+    }
+
+    private SyntaxTree accept(SyntaxTree tree) {
+        tree.setRoot(values[0]);
+        return tree;
+    }
+
+    private boolean parse(TokenBuffer tokens, ParseTable table, Map<String, Integer> tokenIds,
+                          ParseListener listener) throws YaccException {
         // 检查未匹配符号
-        if (tokens.stream().anyMatch(token -> UN_MATCH.equals(token.getName()))) {
-            throw new YaccException("Token中存在未匹配符号");
-        }
-        // 移除注释
-        tokens.forEach(token -> {
-            // 保护行号
-            if (COMMENT.equals(token.getName()) && token.getLiteral().equals("\n")) {
-                token.setName(WHITESPACE.name());
-            }
-        });
-        tokens.removeIf(token -> COMMENT.equals(token.getName()));
-        // 移除空白符
-        tokens.removeIf(token -> WHITESPACE.equals(token.getName()) && !token.getLiteral().equals("\n"));
-        // Token编号
-        Map<String, Integer> tokenIds = getTokenIds(analyzer);
-        // LALR分析表
-        List<List<TableCell>> table = getTable(analyzer);
-
-        stateStack.add(analyzer.getDfa().getStartStateId());
-
-        Integer token = tokenIds.getOrDefault(getCurrToken(tokens).getName(), null);
-        while (token != null) {
-            Integer nextToken = dealWithSymbol(token, table, tokens, analyzer);
-            while (!nextToken.equals(token)) {
-                if (nextToken == -1) {
-                    return symbolStack.get(0).getNode();
-                }
-                dealWithSymbol(nextToken, table, tokens, analyzer);
-                nextToken = dealWithSymbol(token, table, tokens, analyzer);
+        int[] kindSymbols = getKindSymbols(tokens.getKindNames(), tokenIds);
+        for (int i = 0; i < tokens.size(); i++) {
+            if (kindSymbols[tokens.kind(i)] == UN_MATCH_SYMBOL_ID) {
+                throw new YaccException(tokens.line(i), "Token中存在未匹配符号");
             }
-            token = tokenIds.getOrDefault(getCurrToken(tokens).getName(), null);
         }
-        return null;
+        return parse(tokens.stream(), table, tokenIds, listener);
     }
 
-    private Map<String, Integer> getTokenIds(LALR analyzer) {
-        Map<String, Integer> map = new HashMap<>();
-        for (int i = 0; i < analyzer.getSymbols().size(); i++) {
-            if (SP_TOKEN.equals(analyzer.getSymbols().get(i).getType()) ||
-                    TOKEN.equals(analyzer.getSymbols().get(i).getType())) {
-                map.put(analyzer.getSymbols().get(i).getContent(), i);
+    private boolean parse(TokenStream tokens, ParseTable table, Map<String, Integer> tokenIds,
+                          ParseListener listener) throws YaccException {
+        int[] kindSymbols = getKindSymbols(tokens.getKindNames(), tokenIds);
+        // 每次分析前重置，同一实例可重复使用
+        top = -1;
+        lineNo = 0;
+        line = 0;
+        this.listener = listener;
+        push(table.getStartState(), SyntaxTree.NO_NODE);
+
+        boolean accepted = false;
+        try {
+            accepted = consume(tokens, table, kindSymbols);
+            return accepted;
+        } catch (CompileException e) {
+            // 回调中抛出的错误定位到当前Token
+            e.locate(line);
+            throw e;
+        } finally {
+            this.listener = null;
+            // 出错或未接受时不再读取剩余的Token，关闭流以结束可能存在的生产者线程
+            if (!accepted) {
+                tokens.close();
             }
         }
-        map.put(WHITESPACE.getName(), WHITESPACE_SYMBOL_ID);
-        return map;
-    }
-
-    private List<List<TableCell>> getTable(LALR analyzer) {
-        List<List<TableCell>> table = new ArrayList<>();
-        for (int state = 0; state < analyzer.getDfa().getStates().size(); state++) {
-            int nonCnt = 0, nonNonCnt = 0;
-            List<TableCell> row = new ArrayList<>();
-            for (int symbol = 0; symbol < analyzer.getSymbols().size(); symbol++) {
-                String action;
-                Integer target = 0;
-                if (NON_TERMINAL.equals(analyzer.getSymbols().get(symbol).getType())) {
-                    action = LALRActionType.NON_TERMINAL.getType();
-                    target = analyzer.getGotoTable().get(state).get(nonCnt++);
+    }
+
+    private boolean consume(TokenStream tokens, ParseTable table, int[] kindSymbols) throws YaccException {
+        while (tokens.next()) {
+            int symbol = kindSymbols[tokens.kind()];
+            line = tokens.line();
+            if (symbol == UN_MATCH_SYMBOL_ID) {
+                throw new YaccException(line, "Token中存在未匹配符号");
+            } else if (symbol == UNKNOWN_SYMBOL_ID) {
+                return false;
+            } else if (symbol == WHITESPACE_SYMBOL_ID) {
+                lineNo++;
+                continue;
+            }
+            // 归约直到当前Token被移进
+            while (true) {
+                int cell = table.action(states[top], symbol);
+                int kind = kindOf(cell);
+                if (kind == KIND_SHIFT) {
+                    push(targetOf(cell), listener.shift(symbol, tokens.literal(), line));
+                    break;
+                } else if (kind == KIND_REDUCE) {
+                    reduce(targetOf(cell), table);
+                } else if (kind == KIND_ACCEPT) {
+                    return true;
                 } else {
-                    String actionType = analyzer.getActionTable().get(state).get(nonNonCnt).getType();
-                    if (SHIFT.equals(actionType)) {
-                        action = SHIFT.getType();
-                        target = analyzer.getActionTable().get(state).get(nonNonCnt).getData();
-                    } else if (REDUCE.equals(actionType)) {
-                        action = REDUCE.getType();
-                        target = analyzer.getActionTable().get(state).get(nonNonCnt).getData();
-                    } else if (ACCEPT.equals(actionType)) {
-                        action = ACCEPT.getType();
-                    } else {
-                        action = "default";
-                    }
-                    nonNonCnt++;
+                    throw undefinedAction(table, symbol, kind);
                 }
-                row.add(new TableCell(action, target));
             }
-            table.add(row);
         }
-        return table;
+        return false;
     }
 
-    private SymbolStackElement getNode(int num) throws YaccException {
-        if (num <= 0 || num > curRhsLen) {
-            throw new YaccException("动作代码中存在错误的属性值引用:%s", num);
+    /**
+     * 按产生式归约并转移到GOTO状态，左部符号在GOTO表中只能是转移动作
+     */
+    private void reduce(int producer, ParseTable table) throws YaccException {
+        Reduction reduction = table.getReductions()[producer];
+        top -= reduction.getRhsLength();
+        int node = listener.reduce(producer, values, top);
+        int lhs = reduction.getLhs();
+        int cell = table.action(states[top], lhs);
+        int kind = kindOf(cell);
+        if (kind != KIND_GOTO) {
+            throw undefinedAction(table, lhs, kind);
         }
-        return symbolStack.get(symbolStack.size() + num - curRhsLen - 1);
+        push(targetOf(cell), node);
     }
 
-    private void setStackNode(String name, ASTNode node) {
-        curSymbol = new SymbolStackElement(name, NON_TERMINAL.getType(), node);
-    }
-
-    private Integer dealWithSymbol(Integer symbol,
-                                   List<List<TableCell>> table,
-                                   List<Token> tokens,
-                                   LALR analyzer) throws YaccException {
-        if (symbol == null) {
-            return null;
-        }
-        if (symbol == WHITESPACE_SYMBOL_ID) {
-            lineNo++;
-            return WHITESPACE_SYMBOL_ID;
+    private void push(int state, int value) {
+        if (++top == states.length) {
+            states = Arrays.copyOf(states, top * 2);
+            values = Arrays.copyOf(values, top * 2);
         }
-        String action = table.get(stateStack.get(stateStack.size() - 1)).get(symbol).getAction();
-        if (SHIFT.equals(action)) {
-            Token preToken = tokens.get(currentTokenIndex - 1);
-            symbolStack.add(
-                    new SymbolStackElement(preToken.getName(), TOKEN.getType(),
-                            new ASTNode(preToken.getName(), TOKEN.getType(),
-                                    preToken.getLiteral(), new ArrayList<>()))
-            );
-        }
-        if (SHIFT.equals(action) || LALRActionType.NON_TERMINAL.equals(action)) {
-            stateStack.add(table.get(stateStack.get(stateStack.size() - 1)).get(symbol).getTarget());
-            return symbol;
-        } else if (REDUCE.equals(action)) {
-            LALRProducer producer =
-                    analyzer.getProducers().get(table.get(stateStack.get(stateStack.size() - 1)).get(symbol).getTarget());
-            curRhsLen = producer.getRhs().size();
-            curSymbol = symbolStack.get(symbolStack.size() - curRhsLen);
-            String actionCode = producer.getAction();
-            Matcher stringMatcher = stringPattern.matcher(actionCode);
-            Matcher variableMatcher = variablePattern.matcher(actionCode);
-            String name = "";
-            if (stringMatcher.find()) {
-                name = stringMatcher.group(1);
-            }
-            name = name.replaceAll("'", "");
-            List<Integer> nums = new ArrayList<>();
-            while (variableMatcher.find()) {
-                nums.add(Integer.parseInt(variableMatcher.group().substring(1)));
-            }
-            SymbolStackElement node = newNode(name, nums);
-            setStackNode(analyzer.getLHS(producer) + "_DOLLAR2", node.getNode());
-            while (curRhsLen-- > 0) {
-                symbolStack.remove(symbolStack.size() - 1);
-                stateStack.remove(stateStack.size() - 1);
-            }
-            symbolStack.add(curSymbol);
-            return producer.getLhs();
-        } else if (ACCEPT.equals(action)) {
-            return -1;
-        } else {
-            throw new YaccException("语法分析表中存在未定义行为：在状态%s下收到%s时进行%s，推测行号为%s",
-                    stateStack.get(stateStack.size() - 1),
-                    analyzer.getSymbols().get(symbol).getContent(),
-                    table.get(stateStack.get(stateStack.size()-1)).get(symbol).getAction(),
-                    lineNo);
+        states[top] = state;
+        if (top > 0) {
+            values[top - 1] = value;
         }
     }
 
-    private SymbolStackElement newNode(String name, List<Integer> nums) throws YaccException {
-        ASTNode node = new ASTNode(name, NON_TERMINAL.getType(), name, new ArrayList<>());
-        List<ASTNode> nodes = new ArrayList<>();
-        if (nums != null && !nums.isEmpty()) {
-            for (Integer num : nums) {
-                nodes.add(getNode(num).getNode());
+    private YaccException undefinedAction(ParseTable table, int symbol, int kind) {
+        return new YaccException(line, "语法分析表中存在未定义行为：在状态%s下收到%s时进行%s，推测行号为%s",
+                states[top], table.getSymbols()[symbol], kindName(kind), lineNo);
+    }
+
+    // 词法Token类别到语法符号编号的映射，流中只会出现单个换行符的注释，视作换行
+    private static int[] getKindSymbols(String[] names, Map<String, Integer> tokenIds) {
+        int[] kindSymbols = new int[names.length];
+        for (int kind = 0; kind < names.length; kind++) {
+            if (UN_MATCH.equals(names[kind])) {
+                kindSymbols[kind] = UN_MATCH_SYMBOL_ID;
+            } else if (COMMENT.equals(names[kind])) {
+                kindSymbols[kind] = WHITESPACE_SYMBOL_ID;
+            } else {
+                kindSymbols[kind] = tokenIds.getOrDefault(names[kind], UNKNOWN_SYMBOL_ID);
             }
         }
-        nodes.forEach(node::pushNode);
-        return new SymbolStackElement(name, NON_TERMINAL.getType(), node);
+        return kindSymbols;
     }
 
-    private Token getCurrToken(List<Token> tokens) {
-        return tokens.get(currentTokenIndex++);
+    /**
+     * Token名称到符号编号的映射，换行符映射为WHITESPACE_SYMBOL_ID
+     */
+    public static Map<String, Integer> getTokenIds(ParseTable table) {
+        Map<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < table.getSymbolCount(); i++) {
+            if (table.getSymbolTypes()[i] == SP_TOKEN || table.getSymbolTypes()[i] == TOKEN) {
+                map.put(table.getSymbols()[i], i);
+            }
+        }
+        map.put(WHITESPACE.getName(), WHITESPACE_SYMBOL_ID);
+        return Map.copyOf(map);
     }
 }
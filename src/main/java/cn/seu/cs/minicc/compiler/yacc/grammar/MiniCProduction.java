@@ -0,0 +1,126 @@
+package cn.seu.cs.minicc.compiler.yacc.grammar;
+
+import cn.seu.cs.minicc.compiler.yacc.table.ParseTable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MiniC文法的产生式
+ * <p>
+ * 分析表中的产生式编号由文法文件决定，通过 resolve 按产生式的符号串一次性映射到本枚举，
+ * 之后语法树的处理只需按枚举switch，不再比较节点名称。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+@AllArgsConstructor
+@Getter
+public enum MiniCProduction {
+    PROGRAM("program -> decl_list"),
+    DECL_LIST_APPEND("decl_list -> decl_list decl"),
+    DECL_LIST_SINGLE("decl_list -> decl"),
+    DECL_VAR("decl -> var_decl"),
+    DECL_FUN("decl -> fun_decl"),
+    VAR_DECL("var_decl -> type_spec IDENTIFIER SEMICOLON"),
+    VAR_DECL_ARRAY("var_decl -> type_spec IDENTIFIER LBRACKET CONSTANT RBRACKET SEMICOLON"),
+    TYPE_VOID("type_spec -> VOID"),
+    TYPE_INT("type_spec -> INT"),
+    TYPE_STRING("type_spec -> STRING"),
+    FUN_DECL_LOCALS("fun_decl -> type_spec IDENTIFIER LPAREN params RPAREN LBRACE local_decls stmt_list RBRACE"),
+    FUN_DECL("fun_decl -> type_spec IDENTIFIER LPAREN params RPAREN LBRACE stmt_list RBRACE"),
+    PARAMS_LIST("params -> param_list"),
+    PARAMS_VOID("params -> VOID"),
+    PARAM_LIST_APPEND("param_list -> param_list COMMA param"),
+    PARAM_LIST_SINGLE("param_list -> param"),
+    PARAM("param -> type_spec IDENTIFIER"),
+    STMT_LIST_APPEND("stmt_list -> stmt_list stmt"),
+    STMT_LIST_SINGLE("stmt_list -> stmt"),
+    STMT_EXPR("stmt -> expr_stmt"),
+    STMT_COMPOUND("stmt -> compound_stmt"),
+    STMT_IF("stmt -> if_stmt"),
+    STMT_WHILE("stmt -> while_stmt"),
+    STMT_RETURN("stmt -> return_stmt"),
+    STMT_CONTINUE("stmt -> continue_stmt"),
+    STMT_BREAK("stmt -> break_stmt"),
+    COMPOUND_STMT_LOCALS("compound_stmt -> LBRACE local_decls stmt_list RBRACE"),
+    COMPOUND_STMT("compound_stmt -> LBRACE stmt_list RBRACE"),
+    IF_STMT("if_stmt -> IF LPAREN expr RPAREN stmt"),
+    WHILE_STMT("while_stmt -> WHILE LPAREN expr RPAREN stmt"),
+    CONTINUE_STMT("continue_stmt -> CONTINUE SEMICOLON"),
+    BREAK_STMT("break_stmt -> BREAK SEMICOLON"),
+    EXPR_STMT_ASSIGN("expr_stmt -> IDENTIFIER ASSIGN expr SEMICOLON"),
+    EXPR_STMT_ARRAY_ASSIGN("expr_stmt -> IDENTIFIER LBRACKET expr RBRACKET ASSIGN expr SEMICOLON"),
+    EXPR_STMT_ADDR_ASSIGN("expr_stmt -> DOLLAR expr ASSIGN expr SEMICOLON"),
+    EXPR_STMT_CALL("expr_stmt -> IDENTIFIER LPAREN args RPAREN SEMICOLON"),
+    EXPR_STMT_CALL_VOID("expr_stmt -> IDENTIFIER LPAREN RPAREN SEMICOLON"),
+    LOCAL_DECLS_APPEND("local_decls -> local_decls local_decl"),
+    LOCAL_DECLS_SINGLE("local_decls -> local_decl"),
+    LOCAL_DECL("local_decl -> type_spec IDENTIFIER SEMICOLON"),
+    LOCAL_DECL_ARRAY("local_decl -> type_spec IDENTIFIER LBRACKET CONSTANT RBRACKET SEMICOLON"),
+    RETURN_VOID("return_stmt -> RETURN SEMICOLON"),
+    RETURN_EXPR("return_stmt -> RETURN expr SEMICOLON"),
+    EXPR_OR("expr -> expr OR_OP expr"),
+    EXPR_AND("expr -> expr AND_OP expr"),
+    EXPR_EQ("expr -> expr EQ_OP expr"),
+    EXPR_NE("expr -> expr NE_OP expr"),
+    EXPR_GT("expr -> expr GT_OP expr"),
+    EXPR_LT("expr -> expr LT_OP expr"),
+    EXPR_GE("expr -> expr GE_OP expr"),
+    EXPR_LE("expr -> expr LE_OP expr"),
+    EXPR_PLUS("expr -> expr PLUS expr"),
+    EXPR_MINUS("expr -> expr MINUS expr"),
+    EXPR_MULTIPLY("expr -> expr MULTIPLY expr"),
+    EXPR_SLASH("expr -> expr SLASH expr"),
+    EXPR_PERCENT("expr -> expr PERCENT expr"),
+    EXPR_NOT("expr -> NOT_OP expr"),
+    EXPR_NEGATE("expr -> MINUS expr"),
+    EXPR_POSITIVE("expr -> PLUS expr"),
+    EXPR_ADDR("expr -> DOLLAR expr"),
+    EXPR_PAREN("expr -> LPAREN expr RPAREN"),
+    EXPR_IDENTIFIER("expr -> IDENTIFIER"),
+    EXPR_ARRAY("expr -> IDENTIFIER LBRACKET expr RBRACKET"),
+    EXPR_CALL("expr -> IDENTIFIER LPAREN args RPAREN"),
+    EXPR_CALL_VOID("expr -> IDENTIFIER LPAREN RPAREN"),
+    EXPR_CONSTANT("expr -> CONSTANT"),
+    EXPR_STRING("expr -> STRING_LITERAL"),
+    EXPR_BITAND("expr -> expr BITAND_OP expr"),
+    EXPR_BITXOR("expr -> expr BITXOR_OP expr"),
+    EXPR_BITINV("expr -> BITINV_OP expr"),
+    EXPR_LEFT("expr -> expr LEFT_OP expr"),
+    EXPR_RIGHT("expr -> expr RIGHT_OP expr"),
+    EXPR_BITOR("expr -> expr BITOR_OP expr"),
+    ARGS_APPEND("args -> args COMMA expr"),
+    ARGS_SINGLE("args -> expr"),
+
+    ;
+    final String signature;
+
+    /**
+     * 分析表中各产生式对应的枚举，下标为产生式编号，文法中不存在的产生式为null
+     */
+    public static MiniCProduction[] resolve(ParseTable table) {
+        Map<String, MiniCProduction> bySignature = new HashMap<>();
+        for (MiniCProduction production : values()) {
+            bySignature.put(production.signature, production);
+        }
+        MiniCProduction[] result = new MiniCProduction[table.getProducerCount()];
+        for (int producer = 0; producer < result.length; producer++) {
+            result[producer] = bySignature.get(signature(table, producer));
+        }
+        return result;
+    }
+
+    /**
+     * 形如 "lhs -> rhs1 rhs2" 的产生式符号串
+     */
+    public static String signature(ParseTable table, int producer) {
+        StringBuilder sb = new StringBuilder(table.getSymbols()[table.getProducerLhs()[producer]]).append(" ->");
+        for (int i = 0; i < table.getProducerRhsLength()[producer]; i++) {
+            sb.append(' ').append(table.getSymbols()[table.rhsSymbol(producer, i)]);
+        }
+        return sb.toString();
+    }
+}
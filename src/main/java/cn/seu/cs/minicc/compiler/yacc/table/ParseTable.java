@@ -0,0 +1,287 @@
+package cn.seu.cs.minicc.compiler.yacc.table;
+
+import cn.seu.cs.minicc.compiler.exception.YaccException;
+import cn.seu.cs.minicc.compiler.yacc.grammar.GrammarSymbolType;
+import cn.seu.cs.minicc.compiler.yacc.grammar.LALR;
+import cn.seu.cs.minicc.compiler.yacc.grammar.LALRAction;
+import cn.seu.cs.minicc.compiler.yacc.grammar.LALRProducer;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static cn.seu.cs.minicc.compiler.yacc.grammar.LALRActionType.*;
+
+/**
+ * 语法分析运行时所需的LALR分析表
+ * <p>
+ * ACTION与GOTO按 状态 × 符号 编码为整数动作，高4位为动作类型，低28位为目标
+ * （移进/GOTO的目标状态或规约的产生式编号）。
+ * <p>
+ * 表以行位移（comb-vector）方式压缩存储：每个状态的非空单元格以base[state]为偏移
+ * 叠放进next数组，check数组记录每个位置所属的状态；每个状态中出现最多的规约动作
+ * 作为该状态的默认规约，不再单独存放。查表只需两到三次数组访问。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/17
+ */
+@Getter
+public class ParseTable {
+    public static final int KIND_ERROR = 0;
+    public static final int KIND_SHIFT = 1;
+    public static final int KIND_REDUCE = 2;
+    public static final int KIND_ACCEPT = 3;
+    public static final int KIND_GOTO = 4;
+
+    private static final int KIND_SHIFT_BITS = 28;
+    private static final int TARGET_MASK = (1 << KIND_SHIFT_BITS) - 1;
+    private static final int NO_STATE = -1;
+
+    private final int stateCount;
+    private final int symbolCount;
+    private final int startState;
+    // 符号表
+    private final String[] symbols;
+    private final GrammarSymbolType[] symbolTypes;
+    // 产生式
+    private final int[] producerLhs;
+    private final int[] producerRhsLength;
+    // 各产生式右部符号依次拼接，第i个产生式从producerRhsStart[i]开始
+    private final int[] producerRhs;
+    private final int[] producerRhsStart;
+    private final String[] producerActions;
+    // 预编译的规约动作，下标为产生式编号
+    private final Reduction[] reductions;
+    // 压缩后的分析表
+    private final int[] base;
+    private final int[] defaults;
+    private final int[] check;
+    private final int[] next;
+
+    public ParseTable(int stateCount, int startState,
+                      String[] symbols, GrammarSymbolType[] symbolTypes,
+                      int[] producerLhs, int[] producerRhsLength, int[] producerRhs, String[] producerActions,
+                      int[] base, int[] defaults, int[] check, int[] next) {
+        this.stateCount = stateCount;
+        this.symbolCount = symbols.length;
+        this.startState = startState;
+        this.symbols = symbols;
+        this.symbolTypes = symbolTypes;
+        this.producerLhs = producerLhs;
+        this.producerRhsLength = producerRhsLength;
+        this.producerRhs = producerRhs;
+        this.producerRhsStart = new int[producerLhs.length];
+        for (int producer = 1; producer < producerLhs.length; producer++) {
+            producerRhsStart[producer] = producerRhsStart[producer - 1] + producerRhsLength[producer - 1];
+        }
+        this.producerActions = producerActions;
+        this.reductions = new Reduction[producerLhs.length];
+        for (int producer = 0; producer < producerLhs.length; producer++) {
+            reductions[producer] = Reduction.compile(producerLhs[producer], producerRhsLength[producer],
+                    producerActions[producer]);
+        }
+        this.base = base;
+        this.defaults = defaults;
+        this.check = check;
+        this.next = next;
+    }
+
+    public static int encode(int kind, int target) {
+        return (kind << KIND_SHIFT_BITS) | (target & TARGET_MASK);
+    }
+
+    public static int kindOf(int cell) {
+        return cell >>> KIND_SHIFT_BITS;
+    }
+
+    public static int targetOf(int cell) {
+        return cell & TARGET_MASK;
+    }
+
+    /**
+     * 动作类别的名称，用于报错
+     */
+    public static String kindName(int kind) {
+        return switch (kind) {
+            case KIND_SHIFT -> SHIFT.getType();
+            case KIND_REDUCE -> REDUCE.getType();
+            case KIND_ACCEPT -> ACCEPT.getType();
+            case KIND_GOTO -> "goto";
+            default -> NONE.getType();
+        };
+    }
+
+    /**
+     * 查表
+     *
+     * @param state  当前状态
+     * @param symbol 符号编号
+     * @return 编码后的动作，未命中时终结符返回该状态的默认规约，非终结符返回错误
+     */
+    public int action(int state, int symbol) {
+        int index = base[state] + symbol;
+        if (check[index] == state) {
+            return next[index];
+        }
+        return symbolTypes[symbol] == GrammarSymbolType.NON_TERMINAL ? KIND_ERROR : defaults[state];
+    }
+
+    /**
+     * 产生式右部第index个符号（从0开始）
+     */
+    public int rhsSymbol(int producer, int index) {
+        return producerRhs[producerRhsStart[producer] + index];
+    }
+
+    public int getProducerCount() {
+        return producerLhs.length;
+    }
+
+    public int getEntryCount() {
+        return next.length;
+    }
+
+    /**
+     * 压缩稠密分析表
+     *
+     * @param cells 下标为 状态 × 符号数 + 符号 的稠密表
+     */
+    public static ParseTable compress(int stateCount, int startState,
+                                      String[] symbols, GrammarSymbolType[] symbolTypes,
+                                      int[] producerLhs, int[] producerRhsLength, int[] producerRhs,
+                                      String[] producerActions, int[] cells) {
+        int symbolCount = symbols.length;
+        // 选出每个状态的默认规约
+        int[] defaults = new int[stateCount];
+        int[] reduceCounts = new int[producerLhs.length];
+        for (int state = 0; state < stateCount; state++) {
+            Arrays.fill(reduceCounts, 0);
+            int best = -1;
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int cell = cells[state * symbolCount + symbol];
+                if (kindOf(cell) == KIND_REDUCE) {
+                    int producer = targetOf(cell);
+                    if (++reduceCounts[producer] > (best == -1 ? 0 : reduceCounts[best])) {
+                        best = producer;
+                    }
+                }
+            }
+            defaults[state] = best == -1 ? KIND_ERROR : encode(KIND_REDUCE, best);
+        }
+        // 收集每个状态需要显式存放的列
+        int[][] columns = new int[stateCount][];
+        Integer[] order = new Integer[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            int[] row = new int[symbolCount];
+            int size = 0;
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int cell = cells[state * symbolCount + symbol];
+                if (cell != KIND_ERROR && cell != defaults[state]) {
+                    row[size++] = symbol;
+                }
+            }
+            columns[state] = Arrays.copyOf(row, size);
+            order[state] = state;
+        }
+        // 按非空列数从多到少依次寻找不冲突的最小偏移
+        Arrays.sort(order, (a, b) -> columns[b].length - columns[a].length);
+        int[] base = new int[stateCount];
+        int[] owner = new int[stateCount * symbolCount + symbolCount];
+        Arrays.fill(owner, NO_STATE);
+        int size = symbolCount;
+        for (int state : order) {
+            int offset = 0;
+            while (!fits(owner, offset, columns[state])) {
+                offset++;
+            }
+            base[state] = offset;
+            for (int symbol : columns[state]) {
+                owner[offset + symbol] = state;
+            }
+            size = Math.max(size, offset + symbolCount);
+        }
+        // 数组长度覆盖 base + symbol 的最大值，查表时无需越界判断
+        int[] check = Arrays.copyOf(owner, size);
+        int[] next = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (check[i] != NO_STATE) {
+                next[i] = cells[check[i] * symbolCount + i - base[check[i]]];
+            }
+        }
+        return new ParseTable(stateCount, startState, symbols, symbolTypes,
+                producerLhs, producerRhsLength, producerRhs, producerActions, base, defaults, check, next);
+    }
+
+    private static boolean fits(int[] owner, int offset, int[] columns) {
+        for (int symbol : columns) {
+            if (owner[offset + symbol] != NO_STATE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 由JSON反序列化得到的LALR分析器构造分析表
+     */
+    public static ParseTable fromLALR(LALR analyzer) {
+        int stateCount = analyzer.getActionTable().size();
+        int symbolCount = analyzer.getSymbols().size();
+        String[] symbols = new String[symbolCount];
+        GrammarSymbolType[] symbolTypes = new GrammarSymbolType[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            symbols[i] = analyzer.getSymbols().get(i).getContent();
+            symbolTypes[i] = symbolType(analyzer.getSymbols().get(i).getType());
+        }
+        int producerCount = analyzer.getProducers().size();
+        int[] producerLhs = new int[producerCount];
+        int[] producerRhsLength = new int[producerCount];
+        String[] producerActions = new String[producerCount];
+        List<Integer> rhs = new ArrayList<>();
+        for (int i = 0; i < producerCount; i++) {
+            LALRProducer producer = analyzer.getProducers().get(i);
+            producerLhs[i] = producer.getLhs();
+            producerRhsLength[i] = producer.getRhs().size();
+            rhs.addAll(producer.getRhs());
+            producerActions[i] = producer.getAction();
+        }
+        int[] producerRhs = rhs.stream().mapToInt(Integer::intValue).toArray();
+        int[] cells = new int[stateCount * symbolCount];
+        for (int state = 0; state < stateCount; state++) {
+            int nonCnt = 0, nonNonCnt = 0;
+            List<LALRAction> actionRow = analyzer.getActionTable().get(state);
+            List<Integer> gotoRow = analyzer.getGotoTable().get(state);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int cell = encode(KIND_ERROR, 0);
+                if (symbolTypes[symbol] == GrammarSymbolType.NON_TERMINAL) {
+                    int target = gotoRow.get(nonCnt++);
+                    if (target >= 0) {
+                        cell = encode(KIND_GOTO, target);
+                    }
+                } else {
+                    LALRAction action = actionRow.get(nonNonCnt++);
+                    if (SHIFT.equals(action.getType())) {
+                        cell = encode(KIND_SHIFT, action.getData());
+                    } else if (REDUCE.equals(action.getType())) {
+                        cell = encode(KIND_REDUCE, action.getData());
+                    } else if (ACCEPT.equals(action.getType())) {
+                        cell = encode(KIND_ACCEPT, 0);
+                    }
+                }
+                cells[state * symbolCount + symbol] = cell;
+            }
+        }
+        return compress(stateCount, analyzer.getDfa().getStartStateId(),
+                symbols, symbolTypes, producerLhs, producerRhsLength, producerRhs, producerActions, cells);
+    }
+
+    private static GrammarSymbolType symbolType(String type) {
+        for (GrammarSymbolType value : GrammarSymbolType.values()) {
+            if (value.equals(type)) {
+                return value;
+            }
+        }
+        throw new YaccException("Unknown grammar symbol type %s", type);
+    }
+}
@@ -0,0 +1,38 @@
+package cn.seu.cs.minicc.compiler.yacc.table;
+
+import cn.seu.cs.minicc.compiler.yacc.grammar.LALR;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 将MiniC-LALRParse.json转换为二进制分析表
+ * <p>
+ * 用法：java -cp minicc-java.jar cn.seu.cs.minicc.compiler.yacc.table.ParseTableConverter &lt;json&gt; &lt;bin&gt;
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/17
+ */
+@Slf4j
+public class ParseTableConverter {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            log.error("Usage: ParseTableConverter <input_json> <output_bin>");
+            return;
+        }
+        Path input = Path.of(args[0]), output = Path.of(args[1]);
+        LALR lalr = new ObjectMapper().readValue(input.toFile(), LALR.class);
+        ParseTable table = ParseTable.fromLALR(lalr);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            new ParseTableIO().write(table, out);
+        }
+        log.info("Converted {} states, {} symbols, {} producers, {} packed entries to {} ({} bytes)",
+                table.getStateCount(), table.getSymbolCount(), table.getProducerCount(),
+                table.getEntryCount(), output, Files.size(output));
+    }
+}
@@ -0,0 +1,155 @@
+package cn.seu.cs.minicc.compiler.yacc.table;
+
+import cn.seu.cs.minicc.compiler.exception.YaccException;
+import cn.seu.cs.minicc.compiler.util.Utils;
+import cn.seu.cs.minicc.compiler.yacc.grammar.GrammarSymbolType;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LALR分析表的二进制格式读写
+ * <pre>
+ * int      magic           'MCLR'
+ * int      version
+ * int      stateCount, symbolCount, producerCount, startState, entryCount
+ * symbol   { byte type; short len; byte[len] content }     × symbolCount
+ * producer { int lhs; int rhsLength; int[rhsLength] rhs; short len; byte[len] action } × producerCount
+ * byte[]   补齐到4字节对齐
+ * int      base[stateCount]
+ * int      defaults[stateCount]
+ * int      check[entryCount]
+ * int      next[entryCount]
+ * </pre>
+ * 所有整数均为大端序，字符串为UTF-8。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/17
+ */
+public class ParseTableIO {
+    public static final int MAGIC = 0x4D434C52;
+    public static final int VERSION = 3;
+
+    /**
+     * 从classpath加载分析表，资源位于文件系统时使用内存映射
+     */
+    public ParseTable fromFile(String path) throws YaccException {
+        return read(Utils.readResource(path));
+    }
+
+    public ParseTable fromFile(Path path) throws YaccException {
+        try {
+            return read(Utils.mapFile(path));
+        } catch (IOException e) {
+            throw new YaccException(e, "Cannot read parse table %s", path);
+        }
+    }
+
+    public ParseTable read(ByteBuffer buffer) throws YaccException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new YaccException("分析表文件格式错误");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new YaccException("不支持的分析表版本：%s", version);
+            }
+            int stateCount = buffer.getInt();
+            int symbolCount = buffer.getInt();
+            int producerCount = buffer.getInt();
+            int startState = buffer.getInt();
+            int entryCount = buffer.getInt();
+
+            String[] symbols = new String[symbolCount];
+            GrammarSymbolType[] symbolTypes = new GrammarSymbolType[symbolCount];
+            for (int i = 0; i < symbolCount; i++) {
+                symbolTypes[i] = GrammarSymbolType.values()[buffer.get()];
+                symbols[i] = readString(buffer);
+            }
+            int[] producerLhs = new int[producerCount];
+            int[] producerRhsLength = new int[producerCount];
+            String[] producerActions = new String[producerCount];
+            List<Integer> rhs = new ArrayList<>();
+            for (int i = 0; i < producerCount; i++) {
+                producerLhs[i] = buffer.getInt();
+                producerRhsLength[i] = buffer.getInt();
+                for (int j = 0; j < producerRhsLength[i]; j++) {
+                    rhs.add(buffer.getInt());
+                }
+                producerActions[i] = readString(buffer);
+            }
+            int[] producerRhs = rhs.stream().mapToInt(Integer::intValue).toArray();
+            buffer.position((buffer.position() + 3) & ~3);
+            IntBuffer ints = buffer.slice().asIntBuffer();
+            int[] base = new int[stateCount];
+            int[] defaults = new int[stateCount];
+            int[] check = new int[entryCount];
+            int[] next = new int[entryCount];
+            ints.get(base);
+            ints.get(defaults);
+            ints.get(check);
+            ints.get(next);
+            return new ParseTable(stateCount, startState, symbols, symbolTypes,
+                    producerLhs, producerRhsLength, producerRhs, producerActions, base, defaults, check, next);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new YaccException(e, "分析表文件已损坏");
+        }
+    }
+
+    public void write(ParseTable table, OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(table.getStateCount());
+        out.writeInt(table.getSymbolCount());
+        out.writeInt(table.getProducerCount());
+        out.writeInt(table.getStartState());
+        out.writeInt(table.getEntryCount());
+        for (int i = 0; i < table.getSymbolCount(); i++) {
+            out.writeByte(table.getSymbolTypes()[i].ordinal());
+            writeString(out, table.getSymbols()[i]);
+        }
+        for (int i = 0; i < table.getProducerCount(); i++) {
+            out.writeInt(table.getProducerLhs()[i]);
+            out.writeInt(table.getProducerRhsLength()[i]);
+            for (int j = 0; j < table.getProducerRhsLength()[i]; j++) {
+                out.writeInt(table.rhsSymbol(i, j));
+            }
+            writeString(out, table.getProducerActions()[i]);
+        }
+        while (out.size() % Integer.BYTES != 0) {
+            out.writeByte(0);
+        }
+        writeInts(out, table.getBase());
+        writeInts(out, table.getDefaults());
+        writeInts(out, table.getCheck());
+        writeInts(out, table.getNext());
+        out.flush();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,58 @@
+package cn.seu.cs.minicc.compiler.yacc.table;
+
+import cn.seu.cs.minicc.compiler.exception.YaccException;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的规约动作
+ * <p>
+ * 动作代码形如 $$ = newNode('name', $1, $3); ，在加载分析表时解析一次，
+ * 规约时直接按children中的下标从值栈取子节点，不再做任何字符串处理。
+ *
+ * @author Shuxin Wang <shuxinwang662@gmail.com>
+ * Created on 2026/10/18
+ */
+@Getter
+public class Reduction {
+    private static final Pattern NAME_PATTERN = Pattern.compile("'([^']+)'");
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile("\\$\\d+");
+
+    private final int lhs;
+    private final int rhsLength;
+    // 新节点的名称，动作代码中没有时为空串
+    private final String name;
+    // 子节点在产生式右部中的下标（从0开始）
+    private final int[] children;
+
+    public Reduction(int lhs, int rhsLength, String name, int[] children) {
+        this.lhs = lhs;
+        this.rhsLength = rhsLength;
+        this.name = name;
+        this.children = children;
+    }
+
+    /**
+     * 解析动作代码
+     *
+     * @throws YaccException 动作代码引用了产生式右部之外的符号
+     */
+    public static Reduction compile(int lhs, int rhsLength, String actionCode) throws YaccException {
+        Matcher nameMatcher = NAME_PATTERN.matcher(actionCode);
+        String name = nameMatcher.find() ? nameMatcher.group(1).intern() : "";
+        Matcher referenceMatcher = REFERENCE_PATTERN.matcher(actionCode);
+        int[] children = new int[0];
+        while (referenceMatcher.find()) {
+            int num = Integer.parseInt(referenceMatcher.group().substring(1));
+            if (num <= 0 || num > rhsLength) {
+                throw new YaccException("动作代码中存在错误的属性值引用:%s", num);
+            }
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = num - 1;
+        }
+        return new Reduction(lhs, rhsLength, name, children);
+    }
+}
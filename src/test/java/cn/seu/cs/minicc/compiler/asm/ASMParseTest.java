@@ -0,0 +1,50 @@
+package cn.seu.cs.minicc.compiler.asm;
+
+import cn.seu.cs.minicc.compiler.CompilerTables;
+import cn.seu.cs.minicc.compiler.ir.IRParse;
+import cn.seu.cs.minicc.compiler.lex.LexParser;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ASMParseTest {
+
+    @Test
+    public void testAllocateRegByLiveness() {
+        String code = """
+                int f(int r, int q) {
+                  int v0;
+                  int v1;
+                  int v2;
+                  v0 = r * 2 + q;
+                  v1 = r * 3 + q;
+                  v2 = r * 4 + q;
+                  r = -r + ~q;
+                  v0 = r;
+                  v1 = r;
+                  v2 = r;
+                  return r + v0 + v1 + v2;
+                }
+                int main(void) {
+                  return f(3, 5);
+                }
+                """;
+        IRParse irParse = new IRParse(new LexParser().tokenize(code), CompilerTables.getInstance());
+        // 不经优化，v0 至 v2 的首次赋值都保留在寄存器中
+        List<String> asm = new ASMParse(irParse).getAsm();
+
+        // 寄存器用尽时，v2 之后只被重新赋值而不再被读取，其所在的 $t0 直接复用，不必保留 r 所在的 $t1
+        int sub = asm.indexOf("sub $t0, $zero, $t1");
+        assertTrue(sub > 0);
+        assertEquals("add $t0, $t9, $t3", asm.get(sub - 1));
+        assertEquals(List.of(
+                "nor $t1, $t3, $t3",
+                "add $t0, $t0, $t1",
+                "add $t1, $t0, $t0",
+                "add $t1, $t1, $t0",
+                "add $v0, $t1, $t0",
+                "sw $t0, 16($sp)"), asm.subList(sub + 1, sub + 7));
+    }
+}
@@ -0,0 +1,97 @@
+package cn.seu.cs.minicc.compiler.ir;
+
+import cn.seu.cs.minicc.compiler.CompilerTables;
+import cn.seu.cs.minicc.compiler.ir.compont.BasicBlock;
+import cn.seu.cs.minicc.compiler.ir.compont.ControlFlowGraph;
+import cn.seu.cs.minicc.compiler.ir.compont.IRFunc;
+import cn.seu.cs.minicc.compiler.ir.compont.Quad;
+import cn.seu.cs.minicc.compiler.ir.compont.QuadOpType;
+import cn.seu.cs.minicc.compiler.lex.LexParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ControlFlowGraphTest {
+
+    @Test
+    public void testControlFlowGraph() {
+        String code = """
+                int f(int a) { return a; }
+                int main(void) {
+                  int i;
+                  i = 0;
+                  while (i < 3) {
+                    if (i == 1) break;
+                    i = i + 1;
+                  }
+                  return f(i);
+                }
+                """;
+        IRParse irParse = new IRParse(new LexParser().tokenize(code), CompilerTables.getInstance());
+        ControlFlowGraph cfg = irParse.getCfg();
+        List<BasicBlock> blocks = cfg.getBlocks();
+        assertSame(blocks, irParse.getBasicBlocks());
+        // 基本块依次覆盖全部四元式
+        int next = 0;
+        for (BasicBlock block : blocks) {
+            assertEquals(next, block.getStart());
+            assertSame(block, cfg.blockOf(block.getStart()));
+            next += block.getContent().size();
+        }
+        assertEquals(irParse.getQuads().size(), next);
+        // 前驱与后继互为对应
+        for (BasicBlock block : blocks) {
+            for (int succ : block.getSuccessors()) {
+                assertTrue(Arrays.stream(blocks.get(succ).getPredecessors()).anyMatch(p -> p == block.getId()));
+            }
+            for (int pred : block.getPredecessors()) {
+                assertTrue(Arrays.stream(blocks.get(pred).getSuccessors()).anyMatch(s -> s == block.getId()));
+            }
+        }
+        IRFunc f = irParse.getFuncPool().get(0);
+        IRFunc main = irParse.getFuncPool().get(1);
+        // 块内只有末条四元式转移控制，跳转与返回的目标标号及其后的四元式都开始新的块
+        List<Quad> quads = irParse.getQuads();
+        for (int i = 0; i < quads.size(); i++) {
+            QuadOpType op = quads.get(i).getOp();
+            if (op == QuadOpType.JUMP || op == QuadOpType.J_FALSE
+                    || op == QuadOpType.RETURN_VOID || op == QuadOpType.RETURN_EXPR) {
+                assertEquals(i + 1, cfg.end(cfg.blockIdOf(i)));
+                int target = cfg.labelIndex(quads.get(i).getRes());
+                assertEquals(target, cfg.blockOf(target).getStart());
+            }
+        }
+        // 函数之间不连边，入口块没有前驱，逆后序从入口开始
+        assertArrayEquals(new int[]{cfg.exit(f).getId()}, cfg.entry(f).getSuccessors());
+        for (BasicBlock block : blocks) {
+            for (int succ : block.getSuccessors()) {
+                assertEquals(cfg.funcOf(block.getId()), cfg.funcOf(succ));
+            }
+        }
+        assertEquals(2, cfg.funcCount());
+        assertEquals(cfg.entry(main).getStart(), cfg.funcStart(1));
+        assertEquals(quads.size(), cfg.funcEnd(1));
+        assertEquals(0, cfg.entry(main).getPredecessors().length);
+        assertEquals(cfg.exit(f).getRpo() + 1, cfg.entry(main).getRpo());
+        assertEquals(blocks.size(), cfg.getReversePostorder().length);
+        assertArrayEquals(cfg.getReversePostorder(), cfg.order());
+        assertNull(cfg.entry(irParse.getFuncPool().get(2)));
+        // 循环标号所在块有一条来自逆后序更靠后的块的回边
+        Quad loop = irParse.getQuads().stream()
+                .filter(quad -> quad.getOp() == QuadOpType.SET_LABEL
+                        && irParse.getOperands().name(quad.getRes()).endsWith("_loop"))
+                .findFirst()
+                .orElseThrow();
+        int loopIndex = cfg.labelIndex(loop.getRes());
+        assertSame(loop, irParse.getQuads().get(loopIndex));
+        BasicBlock header = cfg.blockOf(loopIndex);
+        assertTrue(Arrays.stream(header.getPredecessors()).anyMatch(p -> blocks.get(p).getRpo() > header.getRpo()));
+        // 出口所在的块在循环之后
+        BasicBlock exit = cfg.exit(main);
+        assertTrue(exit.getRpo() > header.getRpo());
+        assertEquals(-1, cfg.labelIndex(irParse.getOperands().find("3")));
+    }
+}
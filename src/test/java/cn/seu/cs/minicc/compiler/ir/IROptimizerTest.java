@@ -0,0 +1,55 @@
+package cn.seu.cs.minicc.compiler.ir;
+
+import cn.seu.cs.minicc.compiler.CompilerTables;
+import cn.seu.cs.minicc.compiler.ir.compont.Quad;
+import cn.seu.cs.minicc.compiler.ir.compont.QuadOpType;
+import cn.seu.cs.minicc.compiler.lex.LexParser;
+import org.junit.Test;
+
+import java.util.List;
+
+import static cn.seu.cs.minicc.compiler.ir.IRTestSupport.*;
+import static org.junit.Assert.*;
+
+public class IROptimizerTest {
+
+    @Test
+    public void testDeadVarUseEliminate() {
+        String code = """
+                int g;
+                int h(int n) {
+                  g = n;
+                  return n;
+                }
+                int f(int n) {
+                  int t;
+                  int s;
+                  s = 0;
+                  t = n * 2;
+                  t = h(n);
+                  while (n > 0) {
+                    s = s + t;
+                    t = n - 1;
+                    n = t;
+                  }
+                  t = s + 1;
+                  return t;
+                }
+                int main(void) {
+                  return f(4) + g;
+                }
+                """;
+        IRParse irParse = new IRParse(new LexParser().tokenize(code), CompilerTables.getInstance());
+        int expected = interpret(irParse);
+        IROptimizer optimizer = new IROptimizer(irParse);
+        List<Quad> quads = optimizer.getIrParse().getQuads();
+
+        // 被覆盖的 n * 2 与其常量被删除，调用有副作用而保留，循环中下一轮仍要用到的 t 保留
+        assertTrue(quads.stream().noneMatch(quad -> quad.getOp() == QuadOpType.MULTIPLY));
+        indexOf(quads, QuadOpType.CALL_FUNC, 0);
+        indexOf(quads, QuadOpType.MINUS, 0);
+        assertTrue(optimizer.getLogs().stream().anyMatch(log -> log.startsWith("删除从未被使用的变量 ")));
+        assertEquals(expected, interpret(optimizer.getIrParse()));
+        assertEquals(15, expected);
+    }
+}
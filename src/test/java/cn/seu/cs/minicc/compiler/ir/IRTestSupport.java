@@ -0,0 +1,137 @@
+package cn.seu.cs.minicc.compiler.ir;
+
+import cn.seu.cs.minicc.compiler.ir.compont.ControlFlowGraph;
+import cn.seu.cs.minicc.compiler.ir.compont.IRFunc;
+import cn.seu.cs.minicc.compiler.ir.compont.Operands;
+import cn.seu.cs.minicc.compiler.ir.compont.Quad;
+import cn.seu.cs.minicc.compiler.ir.compont.QuadOpType;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 中间代码测试共用的解释器与查找方法
+ */
+public class IRTestSupport {
+    private IRTestSupport() {
+    }
+
+    /**
+     * 操作数是否为某个函数的局部变量
+     */
+    public static boolean isLocal(IRParse irParse, int operand) {
+        String id = irParse.getOperands().name(operand);
+        return irParse.getFuncPool().stream()
+                .anyMatch(func -> func.getLocalVars().stream().anyMatch(val -> val.getId().equals(id)));
+    }
+
+    /**
+     * 变量操作数在源代码中的名称
+     */
+    public static String nameOf(IRParse irParse, int operand) {
+        String id = irParse.getOperands().name(operand);
+        return irParse.getValPool().stream()
+                .filter(val -> val.getId().equals(id))
+                .findFirst()
+                .orElseThrow()
+                .getName();
+    }
+
+    /**
+     * 按四元式解释执行 main，返回其返回值，用于比较变换前后的语义
+     */
+    public static int interpret(IRParse irParse) {
+        ControlFlowGraph cfg = new ControlFlowGraph(irParse.getQuads(), irParse.getFuncPool(), irParse.getOperands());
+        return call(irParse, cfg, "main", new int[0], new HashMap<>(), new HashMap<>());
+    }
+
+    private static int call(IRParse irParse, ControlFlowGraph cfg, String name, int[] actuals,
+                            Map<Integer, Integer> globals, Map<Integer, Map<Integer, Integer>> globalArrays) {
+        Operands operands = irParse.getOperands();
+        IRFunc func = irParse.getFuncPool().stream()
+                .filter(f -> f.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+        Map<Integer, Integer> frame = new HashMap<>();
+        Map<Integer, Map<Integer, Integer>> frameArrays = new HashMap<>();
+        for (int i = 0; i < actuals.length; i++) {
+            frame.put(operands.find(func.getParamList().get(i).getId()), actuals[i]);
+        }
+        List<Integer> globalIds = irParse.getGlobalVars().stream().map(val -> operands.find(val.getId())).toList();
+        IntUnaryOperator value = operand -> !operands.isVar(operand) ? Long.decode(operands.name(operand)).intValue()
+                : (globalIds.contains(operand) ? globals : frame).getOrDefault(operand, 0);
+        IntFunction<Map<Integer, Integer>> array = operand -> (globalIds.contains(operand) ? globalArrays : frameArrays)
+                .computeIfAbsent(operand, k -> new HashMap<>());
+        int pc = cfg.labelIndex(operands.find(func.getEntryLabel()));
+        while (true) {
+            Quad quad = irParse.getQuads().get(pc++);
+            int arg1 = quad.getArg1(), arg2 = quad.getArg2(), result;
+            switch (quad.getOp()) {
+                case SET_LABEL -> {
+                    continue;
+                }
+                case JUMP -> {
+                    pc = cfg.labelIndex(quad.getRes());
+                    continue;
+                }
+                case J_FALSE -> {
+                    if (value.applyAsInt(arg1) == 0) {
+                        pc = cfg.labelIndex(quad.getRes());
+                    }
+                    continue;
+                }
+                case RETURN_VOID -> {
+                    return 0;
+                }
+                case RETURN_EXPR -> {
+                    return value.applyAsInt(arg1);
+                }
+                case CALL_FUNC -> result = call(irParse, cfg, operands.name(arg1),
+                        Arrays.stream(quad.getArgs()).map(value).toArray(), globals, globalArrays);
+                case INIT_CONST, INIT_VAL -> result = value.applyAsInt(arg1);
+                case INIT_ARRAY -> {
+                    array.apply(quad.getRes()).put(value.applyAsInt(arg1), value.applyAsInt(arg2));
+                    continue;
+                }
+                case READ_ARRAY -> result = array.apply(arg1).getOrDefault(value.applyAsInt(arg2), 0);
+                case PLUS -> result = value.applyAsInt(arg1) + value.applyAsInt(arg2);
+                case MINUS -> result = value.applyAsInt(arg1) - value.applyAsInt(arg2);
+                case MULTIPLY -> result = value.applyAsInt(arg1) * value.applyAsInt(arg2);
+                case LT_OP -> result = value.applyAsInt(arg1) < value.applyAsInt(arg2) ? 1 : 0;
+                case GT_OP -> result = value.applyAsInt(arg1) > value.applyAsInt(arg2) ? 1 : 0;
+                case EQ_OP -> result = value.applyAsInt(arg1) == value.applyAsInt(arg2) ? 1 : 0;
+                default -> throw new AssertionError(quad);
+            }
+            if (quad.getRes() != Operands.NONE) {
+                (globalIds.contains(quad.getRes()) ? globals : frame).put(quad.getRes(), result);
+            }
+        }
+    }
+
+    /**
+     * 源代码中名为 name 的首个变量的操作数编号
+     */
+    public static int varOf(IRParse irParse, String name) {
+        return irParse.getOperands().find(irParse.getValPool().stream()
+                .filter(val -> val.getName().equals(name))
+                .findFirst()
+                .orElseThrow()
+                .getId());
+    }
+
+    /**
+     * 自 from 起首条运算符为 op 的四元式下标
+     */
+    public static int indexOf(List<Quad> quads, QuadOpType op, int from) {
+        for (int i = from; i < quads.size(); i++) {
+            if (quads.get(i).getOp() == op) {
+                return i;
+            }
+        }
+        throw new AssertionError(op);
+    }
+}
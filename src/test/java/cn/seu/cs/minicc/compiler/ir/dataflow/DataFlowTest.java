@@ -0,0 +1,94 @@
+package cn.seu.cs.minicc.compiler.ir.dataflow;
+
+import cn.seu.cs.minicc.compiler.CompilerTables;
+import cn.seu.cs.minicc.compiler.ir.IRParse;
+import cn.seu.cs.minicc.compiler.ir.compont.Quad;
+import cn.seu.cs.minicc.compiler.ir.compont.QuadOpType;
+import cn.seu.cs.minicc.compiler.lex.LexParser;
+import org.junit.Test;
+
+import java.util.List;
+
+import static cn.seu.cs.minicc.compiler.ir.IRTestSupport.*;
+import static org.junit.Assert.*;
+
+public class DataFlowTest {
+
+    @Test
+    public void testDataFlow() {
+        String code = """
+                int g;
+                int sum(int n) {
+                  int i;
+                  int s;
+                  i = 0;
+                  s = 0;
+                  while (i < n) {
+                    s = s + i * 2;
+                    i = i + 1;
+                  }
+                  g = s;
+                  return s;
+                }
+                int main(void) {
+                  int a;
+                  int b;
+                  int x;
+                  a = sum(3);
+                  b = 2;
+                  x = a * b;
+                  g = a * b;
+                  a = 1;
+                  x = a * b;
+                  return x;
+                }
+                """;
+        IRParse irParse = new IRParse(new LexParser().tokenize(code), CompilerTables.getInstance());
+        List<Quad> quads = irParse.getQuads();
+        int i = varOf(irParse, "i");
+        int s = varOf(irParse, "s");
+        int global = varOf(irParse, "g");
+        int header = indexOf(quads, QuadOpType.LT_OP, 0);
+        int times = indexOf(quads, QuadOpType.MULTIPLY, 0);
+        int ret = indexOf(quads, QuadOpType.RETURN_EXPR, 0);
+
+        // 活跃变量：循环条件处 i 与 s 活跃，临时变量在使用后不再活跃，全局变量在函数结束时活跃
+        Liveness liveness = new Liveness(irParse);
+        assertTrue(liveness.isLiveBefore(header, i));
+        assertTrue(liveness.isLiveBefore(header, s));
+        int temp = quads.get(times).getRes();
+        assertTrue(liveness.isLiveAfter(times, temp));
+        int use = indexOf(quads, QuadOpType.PLUS, times);
+        assertEquals(temp, quads.get(use).getArg2());
+        assertFalse(liveness.isLiveAfter(use, temp));
+        assertTrue(liveness.isLiveAfter(ret, global));
+        assertFalse(liveness.isLiveAfter(ret, s));
+        assertFalse(liveness.isLiveAfter(ret, -1));
+
+        // 到达定值：循环条件处 i 的初值与循环体中的赋值都能到达
+        ReachingDefinitions reaching = new ReachingDefinitions(irParse);
+        int[] defs = reaching.reachingDefs(header, i);
+        assertEquals(2, defs.length);
+        for (int def : defs) {
+            assertEquals(i, quads.get(def).def());
+            assertTrue(reaching.reaches(def, header));
+        }
+        assertTrue(defs[0] < header && defs[1] > header);
+        // 函数之间没有边
+        assertEquals(0, reaching.reachingDefs(indexOf(quads, QuadOpType.CALL_FUNC, 0), i).length);
+
+        // 可用表达式：a * b 第二次计算时可用，a 重新赋值后不可用
+        AvailableExpressions available = new AvailableExpressions(irParse);
+        int first = indexOf(quads, QuadOpType.MULTIPLY, ret);
+        int second = indexOf(quads, QuadOpType.MULTIPLY, first + 1);
+        int third = indexOf(quads, QuadOpType.MULTIPLY, second + 1);
+        assertFalse(available.isAvailable(first));
+        assertTrue(available.isAvailable(second));
+        assertFalse(available.isAvailable(third));
+        assertEquals(available.expressionOf(first), available.expressionOf(third));
+        assertEquals(-1, available.expressionOf(ret));
+        // 循环中 i * 2 的操作数每轮都被重新赋值
+        assertFalse(available.isAvailable(times));
+        assertTrue(liveness.getEvaluations() > 0);
+    }
+}
@@ -0,0 +1,130 @@
+package cn.seu.cs.minicc.compiler.ir.ssa;
+
+import cn.seu.cs.minicc.compiler.CompilerTables;
+import cn.seu.cs.minicc.compiler.ir.IRParse;
+import cn.seu.cs.minicc.compiler.ir.compont.ControlFlowGraph;
+import cn.seu.cs.minicc.compiler.ir.compont.Operands;
+import cn.seu.cs.minicc.compiler.ir.compont.Quad;
+import cn.seu.cs.minicc.compiler.ir.compont.QuadOpType;
+import cn.seu.cs.minicc.compiler.lex.LexParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static cn.seu.cs.minicc.compiler.ir.IRTestSupport.*;
+import static org.junit.Assert.*;
+
+public class SSAFormTest {
+
+    @Test
+    public void testSSA() {
+        String code = """
+                int g;
+                int step(int n) {
+                  if (n > 3) { n = n - 4; }
+                  n = n + 1;
+                  return n;
+                }
+                int main(void) {
+                  int i;
+                  int s;
+                  int a;
+                  int b;
+                  int t;
+                  i = 0;
+                  s = 0;
+                  a = 1;
+                  b = 2;
+                  while (i < 6) {
+                    i = i + 1;
+                    if (i == 4) { continue; }
+                    s = s + step(i) * a;
+                    t = a;
+                    a = b;
+                    b = t;
+                  }
+                  g = s;
+                  return s * 10 + a;
+                }
+                """;
+        IRParse irParse = new IRParse(new LexParser().tokenize(code), CompilerTables.getInstance());
+        int expected = interpret(irParse);
+        assertEquals(192, expected);
+        SSAForm ssa = new SSAForm(irParse);
+        List<Quad> quads = irParse.getQuads();
+        assertTrue(ssa.getPhiCount() > 0);
+        // 局部变量的每个版本至多定值一次，phi 函数紧跟在标号之后
+        Map<Integer, Integer> defCounts = new HashMap<>();
+        for (int i = 0; i < quads.size(); i++) {
+            Quad quad = quads.get(i);
+            if (quad.getOp() == QuadOpType.PHI) {
+                QuadOpType prev = quads.get(i - 1).getOp();
+                assertTrue(prev == QuadOpType.SET_LABEL || prev == QuadOpType.PHI);
+            }
+            int def = quad.def();
+            if (def != Operands.NONE && isLocal(irParse, def)) {
+                assertNull(defCounts.put(def, 1));
+            }
+        }
+        // 循环条件所在块支配循环体，循环体的支配边界包含循环条件所在块
+        ControlFlowGraph graph = irParse.getCfg();
+        DominatorTree dom = new DominatorTree(graph);
+        int header = graph.blockIdOf(indexOf(quads, QuadOpType.LT_OP, 0));
+        int body = graph.blockIdOf(indexOf(quads, QuadOpType.EQ_OP, 0));
+        assertTrue(dom.dominates(header, body));
+        assertFalse(dom.dominates(body, header));
+        assertTrue(Arrays.stream(dom.frontier(body)).anyMatch(f -> f == header));
+        assertEquals(-1, dom.idom(0));
+        // 消去后不再有 phi 函数，语义不变
+        assertTrue(ssa.destruct() > 0);
+        assertTrue(irParse.getQuads().stream().noneMatch(quad -> quad.getOp() == QuadOpType.PHI));
+        assertEquals(expected, interpret(irParse));
+
+        // 复制传播后回边上的 phi 实参互相引用，消去时需要借助临时变量完成交换
+        code = """
+                int main(void) {
+                  int i;
+                  int a;
+                  int b;
+                  i = 0;
+                  a = 1;
+                  b = 2;
+                  while (i < 3) {
+                    a = a + 0;
+                    b = b + 0;
+                    i = i + 1;
+                  }
+                  return a * 10 + b;
+                }
+                """;
+        IRParse swap = new IRParse(new LexParser().tokenize(code), CompilerTables.getInstance());
+        assertEquals(12, interpret(swap));
+        ssa = new SSAForm(swap);
+        List<Quad> swapQuads = swap.getQuads();
+        graph = swap.getCfg();
+        int phiA = -1, phiB = -1;
+        for (int i = 0; i < swapQuads.size(); i++) {
+            if (swapQuads.get(i).getOp() == QuadOpType.PHI) {
+                String name = nameOf(swap, swapQuads.get(i).getRes());
+                phiA = name.equals("a") ? i : phiA;
+                phiB = name.equals("b") ? i : phiB;
+            }
+        }
+        int loop = graph.blockIdOf(phiA);
+        int[] preds = graph.predecessors(loop);
+        int back = preds[0] > loop ? 0 : 1;
+        Quad a = swapQuads.get(phiA), b = swapQuads.get(phiB);
+        int[] argsA = a.getArgs().clone(), argsB = b.getArgs().clone();
+        argsA[back] = b.getRes();
+        argsB[back] = a.getRes();
+        swapQuads.set(phiA, Quad.phi(swap.getOperands(), argsA, a.getRes()));
+        swapQuads.set(phiB, Quad.phi(swap.getOperands(), argsB, b.getRes()));
+        ssa.destruct();
+        assertEquals(21, interpret(swap));
+        assertTrue(swapQuads.stream().anyMatch(quad -> quad.getOp() == QuadOpType.INIT_VAL
+                && swap.getOperands().isVar(quad.getRes()) && !isLocal(swap, quad.getRes())));
+    }
+}
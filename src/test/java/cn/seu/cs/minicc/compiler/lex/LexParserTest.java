@@ -1,10 +1,23 @@
 package cn.seu.cs.minicc.compiler.lex;
 
+import cn.seu.cs.minicc.compiler.exception.LexException;
 import cn.seu.cs.minicc.compiler.lex.dfa.DFA;
+import cn.seu.cs.minicc.compiler.lex.table.DFAMinimizer;
+import cn.seu.cs.minicc.compiler.lex.table.LexTable;
+import cn.seu.cs.minicc.compiler.lex.table.LexTableIO;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
 
 @Slf4j
 public class LexParserTest {
@@ -29,4 +42,226 @@ public class LexParserTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testLexBinaryTable() throws Exception {
+        String code = """
+                int g[10];
+                // comment
+                int main(void) {
+                    g[1] = 0x1f << 2;
+                    $0xfffffc60 = g[1] != 3 && 1;
+                    __asm("nop");
+                    return 0;
+                }
+                """;
+        DFA dfa = new DFAParser().fromFile("MiniC-Lex.json");
+        LexTable table = new LexTableIO().fromFile("MiniC-Lex.bin");
+        assertEquals(new LexParser().lexSourceCode(code, dfa), new LexParser().lexSourceCode(code, table));
+    }
+
+    @Test
+    public void testMinimizeDeadState() {
+        // 0 -a-> 1(接受), 0 -b-> 2, 1 -a-> 1；2为显式死状态，所有转移都指向自身
+        int[] transitions = {
+                1, 2,
+                1, -1,
+                2, 2};
+        int[] acceptTokens = {-1, 0, -1};
+        int[] mapping = new DFAMinimizer(3, 2, transitions, acceptTokens).minimize(0);
+        // 死状态不并入陷阱状态，仍有自己的编号，也不与同为非接受状态的0号状态合并
+        assertArrayEquals(new int[]{0, 1, 2}, mapping);
+
+        // 与0号状态等价的状态照常合并，映射中不出现-1
+        transitions = new int[]{
+                1, 3,
+                1, -1,
+                1, 3,
+                3, 3};
+        acceptTokens = new int[]{-1, 0, -1, -1};
+        mapping = new DFAMinimizer(4, 2, transitions, acceptTokens).minimize(0);
+        assertArrayEquals(new int[]{0, 1, 0, 2}, mapping);
+    }
+
+    @Test
+    public void testLexNonAscii() throws Exception {
+        String code = "int a; // 注释\nint b;";
+        LexTable table = new LexTableIO().fromFile("MiniC-Lex.bin");
+        List<Token> tokens = new LexParser().lexSourceCode(code, table);
+        assertTrue(tokens.contains(new Token("_COMMENT", "// 注释\n")));
+        assertEquals(new Token("SP_END", ""), tokens.get(tokens.size() - 1));
+    }
+
+    @Test
+    public void testDirectScanner() throws Exception {
+        String code = """
+                int g[10];
+                // 注释 comment
+                int main(void) {
+                    int x_1;
+                    x_1 = 0x1F >> 2 | 07 ^ ~g[1];
+                    while (x_1 <= 100 || !x_1) { x_1 = x_1 * 3 % 7; }
+                    $0xfffffc60 = g[1] != 3 && 1 @ é;
+                    return 0;
+                }""";
+        LexTable table = new LexTableIO().fromFile("MiniC-Lex.bin");
+        assertEquals(new LexParser(table).lexSourceCode(code), new MiniCScanner().lexSourceCode(code));
+    }
+
+    @Test
+    public void testTokenBuffer() throws Exception {
+        String code = "int a;\n// c\na = 0x1f;\n";
+        LexTable table = new LexTableIO().fromFile("MiniC-Lex.bin");
+        TokenBuffer buffer = new LexParser(table).tokenize(code);
+        List<Token> tokens = new LexParser().lexSourceCode(code, table);
+        assertEquals(tokens.size(), buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            assertEquals(tokens.get(i), buffer.token(i));
+        }
+        assertEquals(TokenBuffer.END_NAME, buffer.name(buffer.size() - 1));
+        assertEquals(3, buffer.line(buffer.size() - 2));
+        assertEquals(tokens, TokenBuffer.of(tokens).toTokens());
+    }
+
+    @Test
+    public void testRetokenizeAfterNewline() throws Exception {
+        String code = "a = b / 2;\n// c\n/ 3;\n\"s\"\nx=1;\n";
+        LexParser parser = new LexParser(new LexTableIO().fromFile("MiniC-Lex.bin"));
+        TokenBuffer tokens = parser.tokenize(code);
+        String[] texts = {"", "/", "*", "\n", "x", "\"", "// "};
+        // 在每个换行处及其后两个字符内编辑，结果需与从头分析一致
+        for (int newline = code.indexOf('\n'); newline != -1; newline = code.indexOf('\n', newline + 1)) {
+            for (int from = newline; from <= Math.min(newline + 2, code.length()); from++) {
+                for (int removed = 0; removed <= Math.min(1, code.length() - from); removed++) {
+                    for (String text : texts) {
+                        String edited = code.substring(0, from) + text + code.substring(from + removed);
+                        TokenBuffer expected = parser.tokenize(edited);
+                        TokenBuffer actual = parser.retokenize(tokens, from, removed, text).getTokens();
+                        assertEquals(expected.toTokens(), actual.toTokens());
+                        for (int i = 0; i < expected.size(); i++) {
+                            assertEquals(expected.line(i), actual.line(i));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTokenStream() throws Exception {
+        String code = "int a;\r\n// c\r\n\r\ra = 0x1f  ;\t\n".repeat(2000);
+        LexTable table = new LexTableIO().fromFile("MiniC-Lex.bin");
+        TokenStream expected = new LexParser(table).tokenize(code).stream();
+        // 每次只读入一个字符，覆盖"\r\n"跨块的情况
+        Reader reader = new StringReader(code) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+        TokenStream actual = new LexParser(table).stream(reader);
+        while (expected.next()) {
+            assertTrue(actual.next());
+            assertEquals(expected.name(), actual.name());
+            assertEquals(expected.literal(), actual.literal());
+            assertEquals(expected.line(), actual.line());
+        }
+        assertFalse(actual.next());
+    }
+
+    @Test(expected = LexException.class)
+    public void testTokenStreamUnmatch() {
+        TokenStream stream = new LexParser().stream("int a @;");
+        while (stream.next()) {
+            assertNotEquals(TokenName.UN_MATCH.getName(), stream.name());
+        }
+    }
+
+    @Test
+    public void testPipelinedTokenStream() throws Exception {
+        String code = "int a;\n// c\na = 0x1f  ;\t\n".repeat(3000);
+        LexParser parser = new LexParser();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            // 小批次与小缓冲区，覆盖环形缓冲区回绕与生产者等待
+            for (int batchSize : new int[]{1, 7, 1024}) {
+                TokenStream expected = parser.stream(code);
+                TokenStream actual = new PipelinedTokenStream(parser.stream(code), executor, batchSize, 2);
+                while (expected.next()) {
+                    assertTrue(actual.next());
+                    assertEquals(expected.kind(), actual.kind());
+                    assertEquals(expected.literal(), actual.literal());
+                    assertEquals(expected.line(), actual.line());
+                    assertEquals(expected.start(), actual.start());
+                }
+                assertFalse(actual.next());
+                assertFalse(actual.next());
+            }
+            // 上游保留源码时按位置截取文本，含"\r\n"的源码按归一化后的位置截取；从Reader读入时复制文本
+            String crlf = code.replace("\n", "\r\n");
+            for (TokenStream upstream : List.of(parser.stream(crlf), parser.stream(new StringReader(crlf)))) {
+                TokenStream expected = parser.stream(new StringReader(crlf));
+                TokenStream actual = new PipelinedTokenStream(upstream, executor, 7, 2);
+                while (expected.next()) {
+                    assertTrue(actual.next());
+                    assertEquals(expected.literal(), actual.literal());
+                }
+                assertFalse(actual.next());
+            }
+            // 异常在出错位置抛出
+            TokenStream bad = new PipelinedTokenStream(parser.stream(code + "int b @;" + code), executor, 5, 4);
+            int count = 0;
+            TokenStream expected = parser.stream(code + "int b @;");
+            try {
+                while (bad.next()) {
+                    assertTrue(expected.next());
+                    assertEquals(expected.literal(), bad.literal());
+                    count++;
+                }
+                fail();
+            } catch (LexException e) {
+                assertThrows(LexException.class, expected::next);
+            }
+            assertTrue(count > 0);
+            // 提前关闭时生产者线程结束
+            PipelinedTokenStream closed = new PipelinedTokenStream(parser.stream(code), executor, 1, 2);
+            assertTrue(closed.next());
+            closed.close();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testTokenizeParallel() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            sb.append("int g").append(i).append(";\r\n");
+            sb.append("// comment ").append(i).append(" 注释\n");
+            sb.append("int f").append(i).append("(void) {\n\n  $0x").append(Integer.toHexString(i))
+                    .append(" = g").append(i).append(" << 2;\t__asm(\"nop\");\n}\n");
+        }
+        String code = sb.toString();
+        // 含未匹配符号与未闭合字符串的源码同样需要一致
+        String bad = code + "int a = 1 @ 2;\n__asm(\"nop);\n" + code;
+        LexParser parser = new LexParser();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (String source : new String[]{code, bad}) {
+                TokenBuffer expected = parser.tokenize(source);
+                for (int chunkSize : new int[]{7, 100, 4096}) {
+                    TokenBuffer actual = parser.tokenizeParallel(source, pool, chunkSize);
+                    assertEquals(expected.size(), actual.size());
+                    for (int i = 0; i < expected.size(); i++) {
+                        assertEquals(expected.kind(i), actual.kind(i));
+                        assertEquals(expected.start(i), actual.start(i));
+                        assertEquals(expected.length(i), actual.length(i));
+                        assertEquals(expected.line(i), actual.line(i));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
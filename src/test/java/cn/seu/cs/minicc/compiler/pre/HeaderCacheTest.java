@@ -0,0 +1,41 @@
+package cn.seu.cs.minicc.compiler.pre;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.*;
+
+public class HeaderCacheTest {
+
+    @Test
+    public void testHeaderCache() throws IOException {
+        Path dir = Files.createTempDirectory("minicc-cache");
+        Path header = dir.resolve("h.h");
+        Files.writeString(header, "int h;\n");
+        HeaderCache cache = new HeaderCache(4096);
+        String code = "#include \"h.h\"\nint main(void) {\n}\n";
+        for (int i = 0; i < 3; i++) {
+            assertEquals("int h;\nint main(void) {\n}\n",
+                    new PreCompilerParse(code, dir.toString(), null, cache).getCode());
+        }
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        // 文件修改后重新读取
+        Files.writeString(header, "int h2;\n");
+        Files.setLastModifiedTime(header, FileTime.fromMillis(Files.getLastModifiedTime(header).toMillis() + 1000));
+        assertEquals("int h2;\nint main(void) {\n}\n", new PreCompilerParse(code, dir.toString(), null, cache).getCode());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.size());
+        // 超出字节上限时淘汰最久未使用的文件
+        Files.writeString(dir.resolve("big.h"), "int b;\n".repeat(180));
+        new PreCompilerParse("#include \"big.h\"\n", dir.toString(), null, cache);
+        assertTrue(cache.getBytes() <= cache.getMaxBytes());
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertEquals(0, cache.getBytes());
+    }
+}
@@ -0,0 +1,90 @@
+package cn.seu.cs.minicc.compiler.pre;
+
+import cn.seu.cs.minicc.compiler.CompilerTables;
+import cn.seu.cs.minicc.compiler.exception.CompileException;
+import cn.seu.cs.minicc.compiler.exception.IRException;
+import cn.seu.cs.minicc.compiler.exception.LexException;
+import cn.seu.cs.minicc.compiler.exception.PreException;
+import cn.seu.cs.minicc.compiler.exception.YaccException;
+import cn.seu.cs.minicc.compiler.ir.IRParse;
+import cn.seu.cs.minicc.compiler.lex.LexParser;
+import cn.seu.cs.minicc.compiler.lex.TokenStream;
+import cn.seu.cs.minicc.compiler.yacc.YaccParse;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class PreCompilerParseTest {
+
+    @Test
+    public void testPreCompile() throws IOException {
+        Path dir = Files.createTempDirectory("minicc-pre");
+        Files.createDirectories(dir.resolve("sub"));
+        Files.writeString(dir.resolve("a.h"), "#ifndef A_H\n#define A_H\n#include \"sub/b.h\"\nint a;\n#endif\n");
+        Files.writeString(dir.resolve("sub/b.h"), "#pragma once\n#include \"../a.h\"\n  int b;\n");
+        Files.writeString(dir.resolve("main.c"), "#include \"a.h\"\n#include \"a.h\"\n#include \"sub/b.h\"\n"
+                + "int main(void) {\n  return @;\n}\n");
+        PreCompilerParse pre = new PreCompilerParse(Files.readString(dir.resolve("main.c")), dir.toString(), "main.c");
+        // 各文件只展开一次，指令行为空行
+        assertEquals("\n\n\nint b;\nint a;\n\nint main(void) {\nreturn @;\n}\n", pre.getCode());
+        LineMap lineMap = pre.getLineMap();
+        assertEquals(dir.resolve("sub/b.h").toString(), lineMap.file(4));
+        assertEquals(3, lineMap.line(4));
+        assertEquals(dir.resolve("a.h").toString(), lineMap.file(5));
+        assertEquals(4, lineMap.line(5));
+        // 词法分析的行号可映射回源文件
+        try {
+            TokenStream stream = new LexParser().stream(pre.getCode());
+            while (stream.next()) {
+                assertTrue(stream.line() <= 8);
+            }
+            fail();
+        } catch (LexException e) {
+            assertTrue(e.getMessage().contains("行号：8"));
+            assertEquals("main.c:5", lineMap.origin(8));
+        }
+
+        // 没有保护的循环包含
+        Files.writeString(dir.resolve("c.h"), "#include \"d.h\"\n");
+        Files.writeString(dir.resolve("d.h"), "#include \"c.h\"\n");
+        PreException e = assertThrows(PreException.class,
+                () -> PreCompilerParse.preCompile("#include \"c.h\"\n", dir.toString()));
+        assertTrue(e.getMessage().contains("c.h -> d.h -> c.h"));
+        assertThrows(PreException.class, () -> PreCompilerParse.preCompile("#include \"none.h\"", dir.toString()));
+    }
+
+    @Test
+    public void testErrorOrigin() throws IOException {
+        Path dir = Files.createTempDirectory("minicc-origin");
+        Files.writeString(dir.resolve("lex.h"), "int h;\nint @;\n");
+        Files.writeString(dir.resolve("syntax.h"), "int g(void) {\n  int a;\n  a = ;\n  return a;\n}\n");
+        Files.writeString(dir.resolve("semantic.h"), "int f(void) {\n  int a;\n  return x;\n}\n");
+        Files.writeString(dir.resolve("call.h"), "int k(void) {\n\n  return m();\n}\n");
+        String[][] cases = {
+                {"lex.h", "2", LexException.class.getName()},
+                {"syntax.h", "3", YaccException.class.getName()},
+                {"semantic.h", "3", IRException.class.getName()},
+                {"call.h", "3", IRException.class.getName()},
+        };
+        CompilerTables tables = CompilerTables.getInstance();
+        LexParser lexParser = new LexParser();
+        for (String[] c : cases) {
+            String code = "int before;\n#include \"" + c[0] + "\"\nint main(void) {\n  return 0;\n}\n";
+            PreCompilerParse pre = new PreCompilerParse(code, dir.toString(), "main.c");
+            String expected = dir.resolve(c[0]) + ":" + c[1];
+            // 语法制导与经由语法树两种方式的错误都可映射回头文件中的行
+            CompileException direct = assertThrows(CompileException.class,
+                    () -> new IRParse(lexParser.stream(pre.getCode()), tables));
+            assertEquals(c[2], direct.getClass().getName());
+            assertEquals(expected, pre.getLineMap().origin(direct.getLine()));
+            CompileException viaTree = assertThrows(CompileException.class,
+                    () -> new IRParse(new YaccParse().parseTree(lexParser.stream(pre.getCode()), tables)));
+            assertEquals(c[2], viaTree.getClass().getName());
+            assertEquals(expected, pre.getLineMap().origin(viaTree.getLine()));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package cn.seu.cs.minicc.compiler.util;
+
+import cn.seu.cs.minicc.compiler.exception.PreException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class UtilsTest {
+
+    @Test
+    public void testReadSource() throws IOException {
+        Path dir = Files.createTempDirectory("minicc-read");
+        String code = "// 注释\r\nint main(void) {\n    __asm(\"nop\");\n}\n";
+        Files.writeString(dir.resolve("a.c"), code);
+        Files.writeString(dir.resolve("b.c"), "int b;");
+        assertEquals(code, Utils.readSource(dir.resolve("a.c")).toString());
+        // 缓冲区复用，较短的文件不残留上次的内容
+        assertEquals("int b;", Utils.readSource(dir.resolve("b.c")).toString());
+        assertEquals(code, Utils.readCode(dir.resolve("a.c").toString()));
+        Files.write(dir.resolve("bad.c"), new byte[]{'i', (byte) 0xff, 'n'});
+        assertThrows(PreException.class, () -> Utils.readSource(dir.resolve("bad.c")));
+        assertThrows(PreException.class, () -> Utils.readSource(dir.resolve("none.c")));
+    }
+}
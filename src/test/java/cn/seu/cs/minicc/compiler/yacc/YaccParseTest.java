@@ -1,14 +1,43 @@
 package cn.seu.cs.minicc.compiler.yacc;
 
+import cn.seu.cs.minicc.compiler.CompilerTables;
+import cn.seu.cs.minicc.compiler.FrontendSession;
+import cn.seu.cs.minicc.compiler.exception.IRException;
+import cn.seu.cs.minicc.compiler.exception.YaccException;
+import cn.seu.cs.minicc.compiler.ir.IRParse;
+import cn.seu.cs.minicc.compiler.ir.IRTestSupport;
+import cn.seu.cs.minicc.compiler.ir.compont.IRFunc;
+import cn.seu.cs.minicc.compiler.ir.compont.Operands;
+import cn.seu.cs.minicc.compiler.ir.compont.Quad;
+import cn.seu.cs.minicc.compiler.ir.compont.QuadOpType;
 import cn.seu.cs.minicc.compiler.lex.DFAParser;
 import cn.seu.cs.minicc.compiler.lex.LexParser;
+import cn.seu.cs.minicc.compiler.lex.PipelinedTokenStream;
 import cn.seu.cs.minicc.compiler.lex.Token;
+import cn.seu.cs.minicc.compiler.lex.TokenBuffer;
 import cn.seu.cs.minicc.compiler.lex.dfa.DFA;
 import cn.seu.cs.minicc.compiler.yacc.grammar.LALR;
+import cn.seu.cs.minicc.compiler.yacc.grammar.MiniCProduction;
+import cn.seu.cs.minicc.compiler.yacc.table.MiniCParseTables;
+import cn.seu.cs.minicc.compiler.yacc.table.ParseTable;
+import cn.seu.cs.minicc.compiler.yacc.table.ParseTableIO;
+import cn.seu.cs.minicc.compiler.yacc.table.Reduction;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Test;
 
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -38,4 +67,406 @@ public class YaccParseTest {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testYaccBinaryTable() throws Exception {
+        String code = """
+                int main(void) {
+                  int a;
+                  a = 10;
+                  return a;
+                }""";
+        DFA dfa = new DFAParser().fromFile("MiniC-Lex.json");
+        List<Token> tokens = new LexParser().lexSourceCode(code, dfa);
+        ParseTable table = new ParseTableIO().fromFile("MiniC-LALRParse.bin");
+        ASTNode node = new YaccParse().parseTokensLALR(tokens, table);
+        assertNotNull(node);
+        assertEquals("program", node.getName());
+        assertEquals("decl_list", node.getByIndex(1).getName());
+
+        // 读取失败时保留底层异常
+        YaccException e = assertThrows(YaccException.class,
+                () -> new ParseTableIO().fromFile(Path.of("none", "MiniC-LALRParse.bin")));
+        assertTrue(e.getCause() instanceof NoSuchFileException);
+        ByteBuffer truncated = ByteBuffer.allocate(8).putInt(ParseTableIO.MAGIC).putInt(ParseTableIO.VERSION).flip();
+        e = assertThrows(YaccException.class, () -> new ParseTableIO().read(truncated));
+        assertTrue(e.getCause() instanceof BufferUnderflowException);
+    }
+
+    @Test
+    public void testGeneratedTable() throws Exception {
+        ParseTable expected = new ParseTableIO().fromFile("MiniC-LALRParse.bin");
+        ParseTable generated = MiniCParseTables.table();
+        assertEquals(expected.getStateCount(), generated.getStateCount());
+        assertArrayEquals(expected.getSymbols(), generated.getSymbols());
+        assertArrayEquals(expected.getSymbolTypes(), generated.getSymbolTypes());
+        assertArrayEquals(expected.getProducerLhs(), generated.getProducerLhs());
+        assertArrayEquals(expected.getProducerActions(), generated.getProducerActions());
+        assertArrayEquals(expected.getBase(), generated.getBase());
+        assertArrayEquals(expected.getDefaults(), generated.getDefaults());
+        assertArrayEquals(expected.getCheck(), generated.getCheck());
+        assertArrayEquals(expected.getNext(), generated.getNext());
+    }
+
+    @Test(expected = YaccException.class)
+    public void testYaccSyntaxError() throws Exception {
+        String code = """
+                int main(void) {
+                  int a;
+                  a = ;
+                  return a;
+                }""";
+        DFA dfa = new DFAParser().fromFile("MiniC-Lex.json");
+        List<Token> tokens = new LexParser().lexSourceCode(code, dfa);
+        new YaccParse().parseTokensLALR(tokens, MiniCParseTables.table());
+    }
+
+    @Test
+    public void testSharedTables() throws Exception {
+        String code = """
+                int g;
+                int add(int a, int b) {
+                  return a + b;
+                }
+                int main(void) {
+                  g = add(1, 2);
+                  return g;
+                }""";
+        CompilerTables tables = CompilerTables.getInstance();
+        assertSame(tables, CompilerTables.getInstance());
+        ASTNode expected = new YaccParse().parseTokensLALR(
+                new LexParser().lexSourceCode(code, tables.getLexTable()), tables);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ASTNode>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> new YaccParse().parseTokensLALR(
+                        new LexParser().lexSourceCode(code, CompilerTables.getInstance().getLexTable()),
+                        CompilerTables.getInstance())));
+            }
+            for (Future<ASTNode> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(expected, new YaccParse().parseTokensLALR(new LexParser().stream(code), tables));
+    }
+
+    @Test
+    public void testParserReuse() throws Exception {
+        String code = """
+                int g[4];
+                int main(void) {
+                  int a;
+                  a = (1 + 2) * 3 - g[1];
+                  while (a > 0) { a = a - 1; }
+                  return a;
+                }""";
+        String bad = "int main(void) {\n  a = ;\n}";
+        CompilerTables tables = CompilerTables.getInstance();
+        LexParser lexParser = new LexParser();
+        ASTNode expected = new YaccParse().parseTokensLALR(lexParser.tokenize(code), tables);
+        // 同一实例在成功与失败之后均可继续使用
+        YaccParse parser = new YaccParse();
+        assertEquals(expected, parser.parseTokensLALR(lexParser.tokenize(code), tables));
+        YaccException error = assertThrows(YaccException.class, () -> parser.parseTokensLALR(lexParser.tokenize(bad), tables));
+        assertTrue(error.getMessage().endsWith("推测行号为1"));
+        assertEquals(expected, parser.parseTokensLALR(lexParser.stream(code), tables));
+        // 深层嵌套需要扩容状态栈
+        String nested = "int main(void) {\n  return " + "(".repeat(200) + "1" + ")".repeat(200) + ";\n}";
+        assertNotNull(parser.parseTokensLALR(lexParser.tokenize(nested), tables));
+    }
+
+    @Test
+    public void testReductionDescriptors() {
+        Reduction reduction = Reduction.compile(3, 5, "$$ = newNode('expr_stmt', $1, $3, $5);");
+        assertEquals("expr_stmt", reduction.getName());
+        assertArrayEquals(new int[]{0, 2, 4}, reduction.getChildren());
+        assertEquals("", Reduction.compile(0, 1, "$$ = $1;").getName());
+        assertThrows(YaccException.class, () -> Reduction.compile(0, 1, "$$ = newNode('x', $2);"));
+        ParseTable table = MiniCParseTables.table();
+        for (int producer = 0; producer < table.getProducerCount(); producer++) {
+            assertEquals(table.getProducerLhs()[producer], table.getReductions()[producer].getLhs());
+        }
+    }
+
+    @Test
+    public void testSyntaxTree() {
+        String code = """
+                int g[4];
+                int f(int a, int b) {
+                  while (a < b) { a = a + 1; if (a == 3) { continue; } g[a] = -a + ~b; $a = !b; }
+                  return g[1] << 2 ^ 3 | 1 & 2 >> 1 % 5 / 1 * 2 || 0 && 1;
+                }
+                void h(void) { return; }
+                int main(void) { int a; a = f(1, 2); f(a, (a)); h(); return a; }
+                """;
+        CompilerTables tables = CompilerTables.getInstance();
+        ParseTable table = tables.getParseTable();
+        MiniCProduction[] productions = MiniCProduction.resolve(table);
+        // 除增广产生式外均有对应的枚举
+        for (int producer = 0; producer < table.getProducerCount(); producer++) {
+            assertEquals(table.getProducerLhs()[producer] != table.getProducerLhs()[table.getProducerCount() - 1],
+                    productions[producer] != null);
+        }
+        assertEquals(MiniCProduction.values().length, Arrays.stream(productions).filter(Objects::nonNull).distinct().count());
+
+        TokenBuffer tokens = new LexParser().tokenize(code);
+        SyntaxTree tree = new YaccParse().parseTree(tokens, tables);
+        ASTNode node = tree.toNode();
+        assertEquals(new YaccParse().parseTokensLALR(tokens.toTokens(), table), node);
+        SyntaxTree converted = SyntaxTree.fromNode(node, table);
+        assertEquals(node, converted.toNode());
+        assertEquals(MiniCProduction.PROGRAM, productions[tree.producer(tree.getRoot())]);
+        // 子节点先于父节点创建，第一个节点为第一个移进的Token
+        assertTrue(tree.isLeaf(0));
+        assertEquals("int", tree.literal(0));
+        assertThrows(YaccException.class, () -> tree.child(tree.getRoot(), 2));
+        assertEquals(new IRParse(node).toString(), new IRParse(tree).toString());
+    }
+
+    @Test
+    public void testSyntaxDirectedIR() {
+        String code = """
+                int g[4];
+                int f(int a, int b) {
+                  int c;
+                  c = c;
+                  while (a < b) { int d; d = a; a = d + 1; if (a == 3) { continue; } g[a] = -a + ~b; $a = !b; }
+                  return g[1] << 2 ^ 3 | 1 & 2 >> 1 % 5 / 1 * 2 || 0 && 1;
+                }
+                void h(void) { if (1) { return; } while (1) { break; } return; }
+                int main(void) { int a; a = f(1, 2); f(a, (a)); h(); return a; }
+                """;
+        CompilerTables tables = CompilerTables.getInstance();
+        LexParser lexParser = new LexParser();
+        SyntaxTree tree = new YaccParse().parseTree(lexParser.tokenize(code), tables);
+        // 重放语法树得到相同的语法树
+        SyntaxTree replayed = new SyntaxTree(tree.getTable());
+        replayed.setRoot(tree.replay(replayed));
+        assertEquals(tree.toNode(), replayed.toNode());
+
+        String expected = new IRParse(tree).toString();
+        assertEquals(expected, new IRParse(lexParser.tokenize(code), tables).toString());
+        assertEquals(expected, new IRParse(lexParser.stream(code), tables).toString());
+
+        // 语义错误与语法树路径一致，语法错误优先
+        String undeclared = "void f(void) { return g(); }\nint main(void) { return 0; }";
+        IRException error = assertThrows(IRException.class,
+                () -> new IRParse(new YaccParse().parseTree(lexParser.tokenize(undeclared), tables)));
+        assertEquals(error.getMessage(), assertThrows(IRException.class,
+                () -> new IRParse(lexParser.tokenize(undeclared), tables)).getMessage());
+        assertThrows(YaccException.class,
+                () -> new IRParse(lexParser.tokenize("int main(void) { return x; }\nint h(void) { return }"), tables));
+
+        // 分析表之外的Token使分析失败，与经由语法树的路径一样报告语法错误
+        TokenBuffer unknown = TokenBuffer.of(List.of(
+                new Token("INT", "int"), new Token("_WHITESPACE", "\n"), new Token("UNKNOWN", "@")));
+        assertNull(new YaccParse().parseTree(unknown, tables));
+        YaccException failed = assertThrows(YaccException.class, () -> new IRParse(unknown, tables));
+        assertEquals("Parsing failed", failed.getMessage());
+        assertEquals(2, failed.getLine());
+    }
+
+    @Test
+    public void testSyntaxDirectedArrayAssign() {
+        // 数组赋值出现在函数体、局部声明、语句、if与while条件之后，数组取值出现在下标与右部中
+        String code = """
+                int g[4];
+                int f(int a) {
+                  g[0] = a;
+                  if (a) g[1] = a + 1;
+                  while (g[3] < 2) g[3] = g[3] + 1;
+                  { g[2] = g[g[0] - a] + 1; }
+                  return g[0] + g[1] + g[2] + g[3];
+                }
+                int main(void) {
+                  int b;
+                  g[3] = 0;
+                  b = f(3);
+                  return b;
+                }
+                """;
+        CompilerTables tables = CompilerTables.getInstance();
+        LexParser lexParser = new LexParser();
+        IRParse irParse = new IRParse(lexParser.tokenize(code), tables);
+        assertEquals(13, IRTestSupport.interpret(irParse));
+        assertEquals(new IRParse(new YaccParse().parseTree(lexParser.tokenize(code), tables)).toString(),
+                irParse.toString());
+    }
+
+    @Test
+    public void testPipelinedStreamClosedOnError() throws Exception {
+        // 出错位置之后的Token远多于缓冲区容量，未关闭时生产者线程会一直等待
+        String tail = "int g;\n".repeat(20000);
+        String syntaxError = "int main(void) { int a; a = ; return a; }\n" + tail;
+        String semanticError = "int main(void) { return x; }\n" + tail;
+        CompilerTables tables = CompilerTables.getInstance();
+        LexParser lexParser = new LexParser();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            assertThrows(YaccException.class, () -> new YaccParse().parseTree(
+                    new PipelinedTokenStream(lexParser.stream(syntaxError), executor), tables));
+            assertThrows(YaccException.class, () -> new IRParse(
+                    new PipelinedTokenStream(lexParser.stream(syntaxError), executor), tables));
+            assertThrows(IRException.class, () -> new IRParse(
+                    new PipelinedTokenStream(lexParser.stream(semanticError), executor), tables));
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testIncrementalSession() throws Exception {
+        StringBuilder sb = new StringBuilder("// header\nint g[10];\n");
+        for (int i = 0; i < 40; i++) {
+            sb.append("int f").append(i).append("(int a, int b) {\n")
+                    .append("  int c;\n  c = a + ").append(i).append(" * b;\n")
+                    .append("  while (c > 0) { c = c - 1; if (c == 3) { break; } }\n")
+                    .append("  return c;\n}\n\n");
+        }
+        CompilerTables tables = CompilerTables.getInstance();
+        FrontendSession session = new FrontendSession(sb.toString(), tables);
+        LexParser lexParser = new LexParser();
+
+        // 函数体内的编辑只重新分析该函数，其余decl子树直接复用
+        List<ASTNode> before = decls(session.getRoot());
+        int offset = session.getSource().indexOf("c = a + 20");
+        ASTNode root = session.edit(offset + 8, 2, "(20 - a)");
+        List<ASTNode> after = decls(root);
+        assertEquals(before.size(), after.size());
+        for (int i = 0; i < after.size(); i++) {
+            if (i == 21) {
+                assertNotSame(before.get(i), after.get(i));
+            } else {
+                assertSame(before.get(i), after.get(i));
+            }
+        }
+        assertEquals(new YaccParse().parseTokensLALR(lexParser.tokenize(session.getSource()), tables), root);
+
+        // 随机编辑，结果需与从头分析一致
+        String[] snippets = {"", " ", "\n", "}", "{", ";", "int x;", "// c\n", "a", "0x1f", "\"s\"", "int h(void) { return 1; }\n"};
+        Random random = new Random(42);
+        for (int round = 0; round < 300; round++) {
+            String source = session.getSource();
+            int from = random.nextInt(source.length() + 1);
+            int removed = random.nextInt(Math.min(12, source.length() - from) + 1);
+            String text = snippets[random.nextInt(snippets.length)];
+            ASTNode expected;
+            TokenBuffer tokens = lexParser.tokenize(source.substring(0, from) + text + source.substring(from + removed));
+            try {
+                expected = new YaccParse().parseTokensLALR(tokens, tables);
+            } catch (YaccException e) {
+                expected = null;
+            }
+            ASTNode actual;
+            try {
+                actual = session.edit(from, removed, text);
+            } catch (YaccException e) {
+                actual = null;
+            }
+            assertEquals(tokens.getSource(), session.getSource());
+            assertEquals(tokens.toTokens(), session.getTokens().toTokens());
+            for (int i = 0; i < tokens.size(); i++) {
+                assertEquals(tokens.line(i), session.getTokens().line(i));
+            }
+            assertEquals(expected, actual);
+            // 出错后恢复为合法程序
+            if (actual == null || random.nextInt(10) == 0) {
+                session.update(sb.toString());
+                assertNotNull(session.getRoot());
+            }
+        }
+    }
+
+    private static List<ASTNode> decls(ASTNode root) throws YaccException {
+        List<ASTNode> result = new ArrayList<>();
+        ASTNode list = root.getByIndex(1);
+        while (list != null) {
+            result.add(0, list.getByIndex(list.getChildren().size()));
+            list = list.getChildren().size() == 2 ? list.getByIndex(1) : null;
+        }
+        return result;
+    }
+
+    @Test
+    public void testScopedSymbolTable() {
+        String code = """
+                int x;
+                int g[2];
+                int main(void) {
+                  int y;
+                  y = 1;
+                  { int x; x = y; { int y; y = x; } x = y; }
+                  x = y;
+                  { int g; g = 2; }
+                  return x;
+                }
+                """;
+        LexParser lexParser = new LexParser();
+        CompilerTables tables = CompilerTables.getInstance();
+        IRParse irParse = new IRParse(lexParser.tokenize(code), tables);
+        // 赋值目标按作用域由内向外解析，记录变量名与作用域深度
+        List<String> targets = new ArrayList<>();
+        for (Quad quad : irParse.getQuads()) {
+            irParse.getValPool().stream()
+                    .filter(val -> val.getId().equals(irParse.getOperands().name(quad.getRes())) && val.getName().length() == 1)
+                    .forEach(val -> targets.add(val.getName() + val.getScope().getDepth()));
+        }
+        assertEquals(List.of("y1", "x2", "y3", "x2", "x0", "g2"), targets);
+        // 作用域按引用比较，函数作用域包含其中所有局部变量的作用域
+        IRFunc main = irParse.getFuncPool().get(0);
+        assertSame(main.getScopePath(), irParse.getValPool().get(2).getScope());
+        assertEquals(main.getLocalVars().size(), irParse.getValPool().stream()
+                .filter(val -> main.getScopePath().contains(val.getScope()))
+                .count());
+        assertFalse(main.getScopePath().contains(irParse.getValPool().get(0).getScope()));
+        assertEquals("[0, 1, 2, 3]", irParse.getValPool().get(4).getScope().toString());
+
+        assertEquals("重复声明局部变量：a", assertThrows(IRException.class, () -> new IRParse(
+                lexParser.tokenize("int main(void) { int a; int a; return 0; }"), tables)).getMessage());
+        assertEquals("重复声明局部变量：a", assertThrows(IRException.class, () -> new IRParse(
+                lexParser.tokenize("int f(int a) { int a; return 0; }\nint main(void) { return 0; }"), tables)).getMessage());
+        assertEquals("重复声明变量：x", assertThrows(IRException.class, () -> new IRParse(
+                lexParser.tokenize("int x;\nint x;\nint main(void) { return 0; }"), tables)).getMessage());
+        assertEquals("未找到变量：a", assertThrows(IRException.class, () -> new IRParse(
+                lexParser.tokenize("int main(void) { { int a; a = 2; } a = 1; return 0; }"), tables)).getMessage());
+    }
+
+    @Test
+    public void testPackedQuads() {
+        String code = """
+                int f(int a, int b) { return a - b; }
+                int main(void) {
+                  int x;
+                  x = f(1, 2);
+                  x = x + 3;
+                  return x;
+                }
+                """;
+        IRParse irParse = new IRParse(new LexParser().tokenize(code), CompilerTables.getInstance());
+        Operands operands = irParse.getOperands();
+        Quad call = irParse.getQuads().stream()
+                .filter(quad -> quad.getOp() == QuadOpType.CALL_FUNC)
+                .findFirst()
+                .orElseThrow();
+        // 实参以编号数组保存，只在输出时拼接
+        assertEquals(2, call.getArgs().length);
+        assertEquals(Operands.NONE, call.getArg2());
+        assertEquals("\t(call, f, " + operands.name(call.getArgs()[0]) + "&" + operands.name(call.getArgs()[1])
+                + ", " + operands.name(call.getRes()) + ")", call.toString());
+        // 同一操作数编号相同，运算符为Token名称对应的枚举
+        Quad plus = irParse.getQuads().stream()
+                .filter(quad -> quad.getOp() == QuadOpType.PLUS)
+                .findFirst()
+                .orElseThrow();
+        int x = operands.find(irParse.getValPool().get(2).getId());
+        assertEquals(x, plus.getArg1());
+        assertTrue(operands.isVar(plus.getArg2()));
+        assertFalse(operands.isVar(operands.find("3")));
+        assertEquals(QuadOpType.MINUS, QuadOpType.of("MINUS"));
+        assertNull(QuadOpType.of("INC_OP"));
+    }
+}